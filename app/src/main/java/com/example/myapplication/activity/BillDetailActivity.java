@@ -100,7 +100,7 @@ public class BillDetailActivity extends AppCompatActivity {
     }
     
     private void updateStatusColor() {
-        String currentStatus = currentBill.getCurrentStatus();
+        String currentStatus = currentBill.getStatus();
         int color;
         switch (currentStatus) {
             case Bill.STATUS_PENDING:
@@ -148,4 +148,12 @@ public class BillDetailActivity extends AppCompatActivity {
     private String formatPrice(double price) {
         return String.format("%.0f₫", price);
     }
+    
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (billManager != null) {
+            billManager.flushPendingWrites();
+        }
+    }
 }
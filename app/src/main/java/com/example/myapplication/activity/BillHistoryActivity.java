@@ -7,6 +7,7 @@ import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.TextView;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -16,6 +17,7 @@ import com.example.myapplication.manager.BillManager;
 import com.example.myapplication.manager.UserManager;
 import com.example.myapplication.model.Bill;
 import com.example.myapplication.model.User;
+import com.example.myapplication.storage.BillPage;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -45,6 +47,12 @@ public class BillHistoryActivity extends AppCompatActivity implements BillAdapte
     private BillAdapter billAdapter;
     private String currentFilter = "ALL";
     
+    // Lịch sử tải theo trang, trang tiếp theo được tải khi cuộn hết danh sách
+    private static final int PAGE_SIZE = 20;
+    private String nextPageCursor;
+    private boolean hasMorePages = false;
+    private boolean loadingPage = false;
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -87,6 +95,16 @@ public class BillHistoryActivity extends AppCompatActivity implements BillAdapte
         billAdapter.setOnBillClickListener(this);
         recyclerViewBills.setLayoutManager(new LinearLayoutManager(this));
         recyclerViewBills.setAdapter(billAdapter);
+        recyclerViewBills.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (hasMorePages && !loadingPage && !recyclerView.canScrollVertically(1)) {
+                    // Không đổi adapter trong lúc RecyclerView đang layout
+                    loadingPage = true;
+                    recyclerView.post(() -> loadNextPage());
+                }
+            }
+        });
     }
     
     /**
@@ -199,22 +217,42 @@ public class BillHistoryActivity extends AppCompatActivity implements BillAdapte
     private void loadBills() {
         User currentUser = userManager.getCurrentUser();
         if (currentUser != null) {
-            List<Bill> bills;
+            // Chỉ tải trang đầu, số đơn nhiều đến đâu cũng không ảnh hưởng lần hiển thị đầu
+            BillPage page = billManager.getBillPage(currentUser.getUsername(), getStatusFilter(), null, PAGE_SIZE);
+            nextPageCursor = page.getNextCursor();
+            hasMorePages = page.hasMore();
             
-            if (currentFilter.equals("ALL")) {
-                bills = billManager.getBillsByUsername(currentUser.getUsername());
-            } else {
-                bills = billManager.getBillsByUsernameAndStatus(currentUser.getUsername(), currentFilter);
-            }
-            
-            if (bills.isEmpty()) {
+            if (page.getBills().isEmpty()) {
                 showEmptyState();
             } else {
-                showBillsList(bills);
+                showBillsList(page.getBills());
             }
         }
     }
     
+    /**
+     * Tải trang tiếp theo và thêm vào cuối danh sách
+     */
+    private void loadNextPage() {
+        loadingPage = false;
+        User currentUser = userManager.getCurrentUser();
+        if (currentUser == null || !hasMorePages) {
+            return;
+        }
+        
+        BillPage page = billManager.getBillPage(currentUser.getUsername(), getStatusFilter(), nextPageCursor, PAGE_SIZE);
+        nextPageCursor = page.getNextCursor();
+        hasMorePages = page.hasMore();
+        billAdapter.appendBills(page.getBills());
+    }
+    
+    /**
+     * Trạng thái đang lọc, null = tất cả
+     */
+    private String getStatusFilter() {
+        return currentFilter.equals("ALL") ? null : currentFilter;
+    }
+    
     private void showEmptyState() {
         recyclerViewBills.setVisibility(View.GONE);
         layoutEmptyBills.setVisibility(View.VISIBLE);
@@ -223,7 +261,7 @@ public class BillHistoryActivity extends AppCompatActivity implements BillAdapte
     private void showBillsList(List<Bill> bills) {
         recyclerViewBills.setVisibility(View.VISIBLE);
         layoutEmptyBills.setVisibility(View.GONE);
-        billAdapter.updateBills(bills);
+        billAdapter.updateBills(new ArrayList<>(bills));
     }
     
     private String formatPrice(double price) {
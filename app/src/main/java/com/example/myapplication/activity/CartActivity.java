@@ -18,10 +18,8 @@ import com.example.myapplication.adapter.CartAdapter;
 import com.example.myapplication.manager.CartManager;
 import com.example.myapplication.manager.UserManager;
 import com.example.myapplication.manager.BillManager;
-import com.example.myapplication.model.CartItem;
 import com.example.myapplication.model.User;
 import java.text.NumberFormat;
-import java.util.List;
 import java.util.Locale;
 
 /**
@@ -46,6 +44,10 @@ public class CartActivity extends AppCompatActivity implements CartAdapter.OnCar
     // Constants cho tính toán phí giao hàng
     private static final double DELIVERY_FEE = 15000;           // Phí giao hàng cố định
     private static final double FREE_DELIVERY_THRESHOLD = 100000; // Ngưỡng miễn phí giao hàng
+    private static final String STATE_CHECKOUT_TOKEN = "checkout_token";
+
+    // Token đặt hàng của màn hình này: bấm "Đặt hàng" nhiều lần chỉ tạo một hóa đơn
+    private String checkoutToken;
 
     /**
      * Hàm được gọi khi Activity được tạo
@@ -60,6 +62,10 @@ public class CartActivity extends AppCompatActivity implements CartAdapter.OnCar
         userManager = UserManager.getInstance(this);   // Khởi tạo UserManager
         billManager = BillManager.getInstance(this);   // Khởi tạo BillManager
         formatter = NumberFormat.getCurrencyInstance(new Locale("vi", "VN")); // Format tiền VND
+        checkoutToken = savedInstanceState != null ? savedInstanceState.getString(STATE_CHECKOUT_TOKEN) : null;
+        if (checkoutToken == null) {
+            checkoutToken = CartManager.newCheckoutToken();
+        }
 
         setupRecyclerView();               // Thiết lập RecyclerView
         setupClickListeners();            // Thiết lập sự kiện click
@@ -88,6 +94,7 @@ public class CartActivity extends AppCompatActivity implements CartAdapter.OnCar
     private void setupRecyclerView() {
         cartAdapter = new CartAdapter(cartManager.getCartItems(), cartManager);
         cartAdapter.setOnCartUpdateListener(this); // Set listener để nhận thông báo khi giỏ hàng thay đổi
+        cartManager.addOnCartChangeListener(cartAdapter); // Adapter tự cập nhật từng dòng theo CartChange
         recyclerViewCart.setLayoutManager(new LinearLayoutManager(this));
         recyclerViewCart.setAdapter(cartAdapter);
     }
@@ -147,11 +154,10 @@ public class CartActivity extends AppCompatActivity implements CartAdapter.OnCar
 
     /**
      * Cập nhật hiển thị giỏ hàng - hiện empty state hoặc danh sách món
+     * Danh sách món do CartAdapter tự cập nhật theo CartChange, ở đây chỉ đổi trạng thái và giá
      */
     private void updateCartDisplay() {
-        List<CartItem> cartItems = cartManager.getCartItems();
-        
-        if (cartItems.isEmpty()) {
+        if (cartManager.getCartItemCount() == 0) {
             // Giỏ hàng trống - hiển thị empty state
             layoutEmptyCart.setVisibility(View.VISIBLE);
             layoutCartContent.setVisibility(View.GONE);
@@ -160,7 +166,6 @@ public class CartActivity extends AppCompatActivity implements CartAdapter.OnCar
             layoutEmptyCart.setVisibility(View.GONE);
             layoutCartContent.setVisibility(View.VISIBLE);
             
-            cartAdapter.updateCartItems(cartItems); // Cập nhật adapter
             updatePriceDisplay();                   // Cập nhật hiển thị giá
         }
     }
@@ -199,6 +204,18 @@ public class CartActivity extends AppCompatActivity implements CartAdapter.OnCar
             return;
         }
 
+        // Đối chiếu giá và tình trạng món với thực đơn, có thay đổi thì cho người dùng xem lại giỏ
+        CartManager.CatalogCheck catalogCheck = cartManager.checkAgainstCatalog();
+        if (catalogCheck.hasChanges()) {
+            updateCartDisplay();
+            new AlertDialog.Builder(this)
+                .setTitle("Giỏ hàng đã thay đổi")
+                .setMessage(catalogCheck.getMessage() + "\n\nVui lòng kiểm tra lại giỏ hàng trước khi đặt.")
+                .setPositiveButton("OK", null)
+                .show();
+            return;
+        }
+
         // Kiểm tra địa chỉ giao hàng đã được cập nhật
         User currentUser = userManager.getCurrentUser();
         if (currentUser == null || currentUser.getAddress().equals("Nhập địa chỉ giao hàng")) {
@@ -208,8 +225,9 @@ public class CartActivity extends AppCompatActivity implements CartAdapter.OnCar
         }
 
         // Tính tổng tiền cuối cùng
-        double total = cartManager.getTotalPrice() + 
-                      (cartManager.getTotalPrice() >= FREE_DELIVERY_THRESHOLD ? 0 : DELIVERY_FEE);
+        double subtotal = cartManager.getTotalPrice();
+        double deliveryFee = subtotal >= FREE_DELIVERY_THRESHOLD ? 0 : DELIVERY_FEE;
+        double total = subtotal + deliveryFee;
 
         // Hiển thị dialog xác nhận đơn hàng
         new AlertDialog.Builder(this)
@@ -218,18 +236,17 @@ public class CartActivity extends AppCompatActivity implements CartAdapter.OnCar
                        "\nGiao hàng đến: " + currentUser.getAddress() + 
                        "\n\nBạn có muốn đặt hàng?")
             .setPositiveButton("Đặt hàng", (dialog, which) -> {
-                // Tạo Bill trước khi clear cart
-                billManager.createBill(
-                    currentUser.getUsername(),
-                    cartManager.getCartItems(),
-                    total,
-                    currentUser.getAddress(),
-                    currentUser.getPhone(),
-                    currentUser.getFullName()
-                );
-                
-                // Xử lý khi người dùng xác nhận đặt hàng
-                cartManager.clearCart(); // Xóa toàn bộ giỏ hàng
+                // Tạo Bill từ đúng giỏ đã xác nhận và xóa giỏ trong cùng một bước
+                CartManager.CheckoutResult result =
+                        cartManager.checkout(checkoutToken, subtotal, deliveryFee, currentUser);
+                if (!result.isSuccess()) {
+                    updateCartDisplay();
+                    Toast.makeText(this, result.getMessage(), Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                // Đơn đã xác nhận: ghi ngay mọi thay đổi hóa đơn và giỏ hàng đang chờ
+                billManager.flushPendingWrites();
+                cartManager.flushPendingWrites();
                 
                 Toast.makeText(this, "Đặt hàng thành công! Đơn hàng sẽ được giao trong 30-45 phút.", 
                               Toast.LENGTH_LONG).show();
@@ -260,12 +277,27 @@ public class CartActivity extends AppCompatActivity implements CartAdapter.OnCar
     @Override
     protected void onResume() {
         super.onResume();
-        updateCartDisplay(); // Refresh dữ liệu giỏ hàng
-        
-        // Force refresh adapter to ensure correct images
+        updateCartDisplay(); // Refresh tổng tiền; adapter vẫn nhận CartChange khi activity ở nền
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_CHECKOUT_TOKEN, checkoutToken);
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Các lần sửa số lượng được ghi nền, ghi hết trước khi rời màn hình
+        cartManager.flushPendingWrites();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
         if (cartAdapter != null) {
-            cartAdapter.updateCartItems(cartManager.getCartItems());
-            cartAdapter.notifyDataSetChanged();
+            cartManager.removeOnCartChangeListener(cartAdapter);
         }
     }
 }
\ No newline at end of file
@@ -119,6 +119,7 @@ public class FallbackMenuActivity extends AppCompatActivity implements FoodAdapt
         try {
             foodAdapter = new FoodAdapter(allFoodItems, cartManager);
             foodAdapter.setOnCartUpdateListener(this);
+            cartManager.addOnCartChangeListener(foodAdapter); // Chỉ bind lại dòng có số lượng thay đổi
             recyclerViewFood.setLayoutManager(new LinearLayoutManager(this));
             recyclerViewFood.setAdapter(foodAdapter);
             android.util.Log.d("FallbackMenuActivity", "RecyclerView setup completed");
@@ -182,9 +183,23 @@ public class FallbackMenuActivity extends AppCompatActivity implements FoodAdapt
     @Override
     protected void onResume() {
         super.onResume();
-        updateCartCount();
-        if (foodAdapter != null) {
-            foodAdapter.notifyDataSetChanged();
+        updateCartCount(); // Adapter vẫn nhận CartChange khi activity ở nền
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Ghi hết các thay đổi giỏ hàng đang chờ trước khi rời màn hình
+        if (cartManager != null) {
+            cartManager.flushPendingWrites();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (cartManager != null && foodAdapter != null) {
+            cartManager.removeOnCartChangeListener(foodAdapter);
         }
     }
 }
@@ -111,6 +111,7 @@ public class MenuActivity extends AppCompatActivity implements FoodAdapter.OnCar
         try {
             foodAdapter = new FoodAdapter(allAvailableFoodItems, cartManager);
             foodAdapter.setOnCartUpdateListener(this);
+            cartManager.addOnCartChangeListener(foodAdapter); // Chỉ bind lại dòng có số lượng thay đổi
             recyclerViewFood.setLayoutManager(new LinearLayoutManager(this));
             recyclerViewFood.setAdapter(foodAdapter);
         } catch (Exception e) {
@@ -186,12 +187,7 @@ public class MenuActivity extends AppCompatActivity implements FoodAdapter.OnCar
             filteredItems = FoodDataManager.getAvailableFoodItems();
         } else {
             // Lấy món theo category và chỉ những món available
-            List<FoodItem> categoryItems = FoodDataManager.getFoodItemsByCategory(category);
-            for (FoodItem item : categoryItems) {
-                if (item.isAvailable()) {
-                    filteredItems.add(item);
-                }
-            }
+            filteredItems = FoodDataManager.getAvailableFoodItemsByCategory(category);
         }
         
         foodAdapter.updateFoodItems(filteredItems);
@@ -225,7 +221,23 @@ public class MenuActivity extends AppCompatActivity implements FoodAdapter.OnCar
         allAvailableFoodItems = FoodDataManager.getAvailableFoodItems();
         filterAvailableFoodItems(selectedCategory);
         
-        updateCartCount();
-        foodAdapter.notifyDataSetChanged(); // Refresh adapter to update cart states
+        updateCartCount(); // Số lượng trong giỏ trên từng dòng do FoodAdapter nhận CartChange
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Ghi hết các thay đổi giỏ hàng đang chờ trước khi rời màn hình
+        if (cartManager != null) {
+            cartManager.flushPendingWrites();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (cartManager != null && foodAdapter != null) {
+            cartManager.removeOnCartChangeListener(foodAdapter);
+        }
     }
 }
@@ -8,6 +8,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.myapplication.R;
+import com.example.myapplication.manager.CartManager;
 import com.example.myapplication.manager.UserManager;
 import com.example.myapplication.model.User;
 import com.example.myapplication.utils.NotificationUtils;
@@ -119,6 +120,8 @@ public class ProfileActivity extends AppCompatActivity {
             .setTitle("Đăng xuất")
             .setMessage("Bạn có chắc chắn muốn đăng xuất?")
             .setPositiveButton("Đăng xuất", (dialog, which) -> {
+                // Ghi giỏ hàng đang chờ của user trước khi đăng xuất
+                CartManager.getInstance(this).flushPendingWrites();
                 userManager.logout();
                 Toast.makeText(this, "Đã đăng xuất", Toast.LENGTH_SHORT).show();
                 
@@ -110,32 +110,16 @@ public class OwnerCustomerActivity extends AppCompatActivity implements OwnerCus
         // Get additional statistics
         int orderCount = billManager.getBillCountByUsername(customer.getUsername());
         double totalSpent = billManager.getTotalSpentByUsername(customer.getUsername());
-        List<Bill> customerOrders = billManager.getBillsByUsername(customer.getUsername());
         
-        // Calculate additional stats
-        int completedOrders = 0;
-        int cancelledOrders = 0;
+        // Calculate additional stats (đếm trong store, gồm cả đơn đã lưu trữ)
+        int completedOrders = billManager.getBillCountByUsernameAndStatus(customer.getUsername(), Bill.STATUS_DELIVERED);
+        int cancelledOrders = billManager.getBillCountByUsernameAndStatus(customer.getUsername(), Bill.STATUS_CANCELLED);
         String lastOrderDate = "Chưa có đơn hàng";
         
-        if (!customerOrders.isEmpty()) {
-            for (Bill order : customerOrders) {
-                if (Bill.STATUS_DELIVERED.equals(order.getStatus())) {
-                    completedOrders++;
-                } else if (Bill.STATUS_CANCELLED.equals(order.getStatus())) {
-                    cancelledOrders++;
-                }
-            }
-            
-            // Find most recent order
-            Bill mostRecentOrder = customerOrders.get(0);
-            for (Bill order : customerOrders) {
-                if (order.getOrderDate().after(mostRecentOrder.getOrderDate())) {
-                    mostRecentOrder = order;
-                }
-            }
-            
+        Date mostRecentOrderDate = billManager.getLastOrderDateByUsername(customer.getUsername());
+        if (mostRecentOrderDate != null) {
             SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm", Locale.getDefault());
-            lastOrderDate = sdf.format(mostRecentOrder.getOrderDate());
+            lastOrderDate = sdf.format(mostRecentOrderDate);
         }
 
         // Create custom dialog layout
@@ -193,21 +177,20 @@ public class OwnerCustomerActivity extends AppCompatActivity implements OwnerCus
      * Hiển thị lịch sử đơn hàng của khách hàng
      */
     private void showCustomerOrderHistory(User customer) {
-        List<Bill> customerOrders = billManager.getBillsByUsername(customer.getUsername());
+        // Chỉ hiện 10 đơn mới nhất (trang đầu, gồm cả đơn đã lưu trữ)
+        List<Bill> customerOrders = billManager.getBillPage(customer.getUsername(), null, null, 10).getBills();
+        int totalOrders = billManager.getBillCountByUsername(customer.getUsername());
         
         if (customerOrders.isEmpty()) {
             showToast("Khách hàng này chưa có đơn hàng nào");
             return;
         }
         
-        // Sort orders by date (newest first)
-        customerOrders.sort((o1, o2) -> o2.getOrderDate().compareTo(o1.getOrderDate()));
-        
         StringBuilder history = new StringBuilder();
         history.append("📋 LỊCH SỬ ĐƠN HÀNG\n");
         history.append("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━\n");
         history.append("👤 Khách hàng: ").append(customer.getFullName()).append("\n");
-        history.append("📊 Tổng cộng: ").append(customerOrders.size()).append(" đơn hàng\n\n");
+        history.append("📊 Tổng cộng: ").append(totalOrders).append(" đơn hàng\n\n");
         
         for (int i = 0; i < Math.min(customerOrders.size(), 10); i++) { // Show max 10 orders
             Bill order = customerOrders.get(i);
@@ -226,8 +209,8 @@ public class OwnerCustomerActivity extends AppCompatActivity implements OwnerCus
             }
         }
         
-        if (customerOrders.size() > 10) {
-            history.append("\n⋯ Và ").append(customerOrders.size() - 10).append(" đơn hàng khác nữa");
+        if (totalOrders > 10) {
+            history.append("\n⋯ Và ").append(totalOrders - 10).append(" đơn hàng khác nữa");
         }
         
         new AlertDialog.Builder(this)
@@ -141,16 +141,9 @@ public class OwnerDashboardActivity extends AppCompatActivity {
             com.example.myapplication.manager.BillManager billManager = 
                 com.example.myapplication.manager.BillManager.getInstance(this);
             
-            // Tổng doanh thu từ tất cả đơn hàng
-            java.util.List<com.example.myapplication.model.Bill> allBills = 
-                billManager.getAllBillsFromAllUsers();
-            
-            double totalRevenue = 0;
-            int totalOrders = allBills.size();
-            
-            for (com.example.myapplication.model.Bill bill : allBills) {
-                totalRevenue += bill.getTotalAmount();
-            }
+            // Tổng doanh thu từ tất cả đơn hàng (cả đơn đã lưu trữ)
+            double totalRevenue = billManager.getTotalAmountAllUsers();
+            int totalOrders = billManager.getOrderCountAllUsers();
             
             // Lấy số lượng món ăn từ menu
             java.util.List<com.example.myapplication.model.FoodItem> foodItems = 
@@ -318,6 +311,7 @@ public class OwnerDashboardActivity extends AppCompatActivity {
                     idCounts.put(id, idCounts.getOrDefault(id, 0) + 1);
                 }
                 
+                int totalOrders = billManager.getOrderCountAllUsers();
                 java.util.List<Integer> duplicates = new java.util.ArrayList<>();
                 for (java.util.Map.Entry<Integer, Integer> entry : idCounts.entrySet()) {
                     if (entry.getValue() > 1) {
@@ -330,10 +324,10 @@ public class OwnerDashboardActivity extends AppCompatActivity {
                     
                     String message;
                     if (duplicates.isEmpty()) {
-                        message = "Không có ID trùng lặp.\n\nTổng số đơn hàng: " + allBills.size();
+                        message = "Không có ID trùng lặp.\n\nTổng số đơn hàng: " + totalOrders;
                     } else {
                         message = "Tìm thấy " + duplicates.size() + " ID trùng lặp:\n" + 
-                                duplicates.toString() + "\n\nTổng số đơn hàng: " + allBills.size();
+                                duplicates.toString() + "\n\nTổng số đơn hàng: " + totalOrders;
                     }
                     
                     new AlertDialog.Builder(this)
@@ -410,11 +404,8 @@ public class OwnerDashboardActivity extends AppCompatActivity {
             billManager.debugBillsStatus();
             
             // Hiển thị thông tin tổng quan
-            java.util.List<com.example.myapplication.model.Bill> allBills = 
-                billManager.getAllBillsFromAllUsers();
-            
             StringBuilder info = new StringBuilder();
-            info.append("Tổng số đơn hàng: ").append(allBills.size()).append("\n");
+            info.append("Tổng số đơn hàng: ").append(billManager.getOrderCountAllUsers()).append("\n");
             info.append("Tổng doanh thu: ").append(formatCurrency(billManager.getTotalRevenue())).append("\n");
             info.append("Doanh thu hôm nay: ").append(formatCurrency(billManager.getDailyRevenue())).append("\n\n");
             
@@ -24,6 +24,7 @@ import com.example.myapplication.model.FoodItem;
 import com.example.myapplication.manager.FoodDataManager;
 import com.example.myapplication.utils.ImageUtils;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -248,7 +249,13 @@ public class OwnerMenuActivity extends AppCompatActivity implements OwnerMenuAda
      * Setup category spinner
      */
     private void setupCategorySpinner(Spinner spinner) {
-        List<String> categories = Arrays.asList("Noodles", "Sushi", "Rice", "Appetizer");
+        // Danh mục mặc định cộng với các danh mục đang có trong thực đơn (bỏ "All")
+        List<String> categories = new ArrayList<>(Arrays.asList("Noodles", "Sushi", "Rice", "Appetizer"));
+        for (String category : FoodDataManager.getAllCategories()) {
+            if (!"All".equals(category) && !categories.contains(category)) {
+                categories.add(category);
+            }
+        }
         ArrayAdapter<String> adapter = new ArrayAdapter<>(this, 
             android.R.layout.simple_spinner_item, categories);
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
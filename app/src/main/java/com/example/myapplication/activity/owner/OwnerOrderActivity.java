@@ -9,6 +9,7 @@ import android.view.View;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -17,8 +18,8 @@ import com.example.myapplication.R;
 import com.example.myapplication.adapter.OwnerOrderAdapter;
 import com.example.myapplication.manager.BillManager;
 import com.example.myapplication.model.Bill;
+import com.example.myapplication.storage.BillPage;
 import java.text.SimpleDateFormat;
-import java.util.List;
 import java.util.Locale;
 
 /**
@@ -33,7 +34,9 @@ public class OwnerOrderActivity extends AppCompatActivity implements OwnerOrderA
     
     // Data
     private BillManager billManager;
-    private List<Bill> orderList;
+    private static final int PAGE_SIZE = 20;
+    private String nextPageCursor;                      // null khi đã tải hết
+    private boolean loadingPage = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -72,38 +75,51 @@ public class OwnerOrderActivity extends AppCompatActivity implements OwnerOrderA
         recyclerViewOrders.setLayoutManager(new LinearLayoutManager(this));
         orderAdapter = new OwnerOrderAdapter(this, this);
         recyclerViewOrders.setAdapter(orderAdapter);
+        recyclerViewOrders.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (nextPageCursor != null && !loadingPage && !recyclerView.canScrollVertically(1)) {
+                    // Không đổi adapter trong lúc RecyclerView đang layout
+                    loadingPage = true;
+                    recyclerView.post(() -> loadNextPage());
+                }
+            }
+        });
     }
 
     /**
-     * Load dữ liệu đơn hàng
+     * Load dữ liệu đơn hàng (trang đầu, các trang sau tải khi cuộn)
      */
     private void loadOrderData() {
         billManager = BillManager.getInstance(this);
         // Owner có thể xem tất cả đơn hàng từ tất cả khách hàng
-        orderList = billManager.getAllBillsFromAllUsers();
-        orderAdapter.updateOrderList(orderList);
+        BillPage page = billManager.getBillPage(null, null, null, PAGE_SIZE);
+        nextPageCursor = page.getNextCursor();
+        orderAdapter.updateOrderList(page.getBills());
         
         // Update title with order count
         updateTitle();
     }
 
+    /**
+     * Tải trang đơn hàng tiếp theo và thêm vào cuối danh sách
+     */
+    private void loadNextPage() {
+        loadingPage = false;
+        if (nextPageCursor == null) {
+            return;
+        }
+        
+        BillPage page = billManager.getBillPage(null, null, nextPageCursor, PAGE_SIZE);
+        nextPageCursor = page.getNextCursor();
+        orderAdapter.appendOrders(page.getBills());
+    }
+
     /**
      * Cập nhật title với số lượng đơn hàng
      */
     private void updateTitle() {
-        int totalOrders = orderList != null ? orderList.size() : 0;
-        int pendingOrders = 0;
-        int completedOrders = 0;
-        
-        if (orderList != null) {
-            for (Bill order : orderList) {
-                if (order.isCompleted()) {
-                    completedOrders++;
-                } else {
-                    pendingOrders++;
-                }
-            }
-        }
+        int totalOrders = billManager.getOrderCountAllUsers();
         
         String title = String.format("Quản Lý Đơn Hàng (%d)", totalOrders);
         if (getSupportActionBar() != null) {
@@ -271,7 +287,7 @@ public class OwnerOrderActivity extends AppCompatActivity implements OwnerOrderA
                 tvFoodName.setText(item.getFoodItem().getName());
                 tvFoodPrice.setText(String.format("%.0f₫", item.getFoodItem().getPrice()));
                 tvQuantity.setText(String.valueOf(item.getQuantity()));
-                tvItemTotal.setText(String.format("%.0f₫", item.getTotalPrice()));
+                tvItemTotal.setText(String.format("%.0f₫", item.getFoodItem().getPrice() * item.getQuantity()));
                 
                 container.addView(itemView);
             }
@@ -357,6 +373,13 @@ public class OwnerOrderActivity extends AppCompatActivity implements OwnerOrderA
         loadOrderData();
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Các lần chuyển trạng thái liên tiếp được gom lại, ghi hết trước khi rời màn hình
+        billManager.flushPendingWrites();
+    }
+
     @Override
     public boolean onSupportNavigateUp() {
         onBackPressed();
@@ -66,21 +66,15 @@ public class OwnerRevenueActivity extends AppCompatActivity {
      */
     private void loadRevenueData() {
         try {
-            // Lấy dữ liệu thực từ BillManager
+            // Lấy tổng theo ngày từ rollup, không cần đọc toàn bộ hóa đơn
             com.example.myapplication.manager.BillManager billManager = 
                 com.example.myapplication.manager.BillManager.getInstance(this);
             
-            java.util.List<com.example.myapplication.model.Bill> allBills = 
-                billManager.getAllBillsFromAllUsers();
-            
-            // Tính toán doanh thu theo thời gian
-            calculateRevenueByPeriod(allBills);
-            
-            // Tính toán số đơn hàng theo thời gian
-            calculateOrdersByPeriod(allBills);
+            // Tính toán doanh thu và số đơn hàng theo thời gian
+            calculateByPeriod(billManager);
             
             // Cập nhật analytics
-            updateAnalytics(allBills);
+            updateAnalytics(billManager);
             
         } catch (Exception e) {
             android.util.Log.e("OwnerRevenue", "Error loading revenue data: " + e.getMessage());
@@ -91,117 +85,51 @@ public class OwnerRevenueActivity extends AppCompatActivity {
     }
     
     /**
-     * Tính toán doanh thu theo thời gian
+     * Tính toán doanh thu và số đơn hàng theo thời gian (không tính đơn hủy)
      */
-    private void calculateRevenueByPeriod(java.util.List<com.example.myapplication.model.Bill> bills) {
+    private void calculateByPeriod(com.example.myapplication.manager.BillManager billManager) {
         java.util.Calendar calendar = java.util.Calendar.getInstance();
-        java.util.Date now = new java.util.Date();
-        
-        double todayRevenue = 0;
-        double weekRevenue = 0;
-        double monthRevenue = 0;
-        double yearRevenue = 0;
         
         // Get time boundaries
-        calendar.setTime(now);
         calendar.set(java.util.Calendar.HOUR_OF_DAY, 0);
         calendar.set(java.util.Calendar.MINUTE, 0);
         calendar.set(java.util.Calendar.SECOND, 0);
-        java.util.Date todayStart = calendar.getTime();
+        calendar.set(java.util.Calendar.MILLISECOND, 0);
+        long todayStart = calendar.getTimeInMillis();
         
         calendar.add(java.util.Calendar.DAY_OF_YEAR, -7);
-        java.util.Date weekStart = calendar.getTime();
+        long weekStart = calendar.getTimeInMillis();
         
-        calendar.setTime(now);
+        calendar.setTimeInMillis(todayStart);
         calendar.set(java.util.Calendar.DAY_OF_MONTH, 1);
-        calendar.set(java.util.Calendar.HOUR_OF_DAY, 0);
-        calendar.set(java.util.Calendar.MINUTE, 0);
-        java.util.Date monthStart = calendar.getTime();
+        long monthStart = calendar.getTimeInMillis();
         
         calendar.set(java.util.Calendar.DAY_OF_YEAR, 1);
-        java.util.Date yearStart = calendar.getTime();
-        
-        // Calculate revenue for each period
-        for (com.example.myapplication.model.Bill bill : bills) {
-            java.util.Date orderDate = bill.getOrderDate();
-            double amount = bill.getTotalAmount();
-            
-            if (orderDate.after(todayStart)) {
-                todayRevenue += amount;
-            }
-            if (orderDate.after(weekStart)) {
-                weekRevenue += amount;
-            }
-            if (orderDate.after(monthStart)) {
-                monthRevenue += amount;
-            }
-            if (orderDate.after(yearStart)) {
-                yearRevenue += amount;
-            }
-        }
-        
-        // Update UI
-        tvTodayRevenue.setText(formatCurrency(todayRevenue));
-        tvWeekRevenue.setText(formatCurrency(weekRevenue));
-        tvMonthRevenue.setText(formatCurrency(monthRevenue));
-        tvYearRevenue.setText(formatCurrency(yearRevenue));
-    }
-    
-    /**
-     * Tính toán số đơn hàng theo thời gian
-     */
-    private void calculateOrdersByPeriod(java.util.List<com.example.myapplication.model.Bill> bills) {
-        java.util.Calendar calendar = java.util.Calendar.getInstance();
-        java.util.Date now = new java.util.Date();
-        
-        int todayOrders = 0;
-        int weekOrders = 0;
-        int monthOrders = 0;
-        int yearOrders = bills.size(); // All bills for year
-        
-        // Get time boundaries (same as revenue calculation)
-        calendar.setTime(now);
-        calendar.set(java.util.Calendar.HOUR_OF_DAY, 0);
-        calendar.set(java.util.Calendar.MINUTE, 0);
-        calendar.set(java.util.Calendar.SECOND, 0);
-        java.util.Date todayStart = calendar.getTime();
+        long yearStart = calendar.getTimeInMillis();
         
-        calendar.add(java.util.Calendar.DAY_OF_YEAR, -7);
-        java.util.Date weekStart = calendar.getTime();
-        
-        calendar.setTime(now);
-        calendar.set(java.util.Calendar.DAY_OF_MONTH, 1);
-        calendar.set(java.util.Calendar.HOUR_OF_DAY, 0);
-        calendar.set(java.util.Calendar.MINUTE, 0);
-        java.util.Date monthStart = calendar.getTime();
-        
-        // Count orders for each period
-        for (com.example.myapplication.model.Bill bill : bills) {
-            java.util.Date orderDate = bill.getOrderDate();
-            
-            if (orderDate.after(todayStart)) {
-                todayOrders++;
-            }
-            if (orderDate.after(weekStart)) {
-                weekOrders++;
-            }
-            if (orderDate.after(monthStart)) {
-                monthOrders++;
-            }
-        }
+        com.example.myapplication.storage.RevenueRollup.Bucket today = billManager.getRevenueSince(todayStart);
+        com.example.myapplication.storage.RevenueRollup.Bucket week = billManager.getRevenueSince(weekStart);
+        com.example.myapplication.storage.RevenueRollup.Bucket month = billManager.getRevenueSince(monthStart);
+        com.example.myapplication.storage.RevenueRollup.Bucket year = billManager.getRevenueSince(yearStart);
         
         // Update UI
-        tvTodayOrders.setText(String.valueOf(todayOrders));
-        tvWeekOrders.setText(String.valueOf(weekOrders));
-        tvMonthOrders.setText(String.valueOf(monthOrders));
-        tvYearOrders.setText(String.valueOf(yearOrders));
+        tvTodayRevenue.setText(formatCurrency(today.getRevenue()));
+        tvWeekRevenue.setText(formatCurrency(week.getRevenue()));
+        tvMonthRevenue.setText(formatCurrency(month.getRevenue()));
+        tvYearRevenue.setText(formatCurrency(year.getRevenue()));
+        
+        tvTodayOrders.setText(String.valueOf(today.getOrders()));
+        tvWeekOrders.setText(String.valueOf(week.getOrders()));
+        tvMonthOrders.setText(String.valueOf(month.getOrders()));
+        tvYearOrders.setText(String.valueOf(year.getOrders()));
     }
     
     /**
      * Cập nhật analytics
      */
-    private void updateAnalytics(java.util.List<com.example.myapplication.model.Bill> bills) {
-        if (bills.isEmpty()) {
+    private void updateAnalytics(com.example.myapplication.manager.BillManager billManager) {
+        com.example.myapplication.storage.RevenueRollup.Bucket allTime = billManager.getRevenueAllTime();
+        if (allTime.getOrders() == 0) {
             tvBestSellingItem.setText("Chưa có dữ liệu");
             tvPeakHour.setText("Chưa có dữ liệu");
             tvAverageOrderValue.setText("0 VNĐ");
@@ -209,17 +137,20 @@ public class OwnerRevenueActivity extends AppCompatActivity {
         }
         
         // Calculate average order value
-        double totalRevenue = 0;
-        for (com.example.myapplication.model.Bill bill : bills) {
-            totalRevenue += bill.getTotalAmount();
-        }
-        double averageOrderValue = totalRevenue / bills.size();
+        double averageOrderValue = allTime.getRevenue() / allTime.getOrders();
         tvAverageOrderValue.setText(formatCurrency(averageOrderValue));
         
+        // Giờ cao điểm theo số đơn trong các ngày gần đây
+        int peakHour = billManager.getPeakOrderHour();
+        if (peakHour >= 0) {
+            tvPeakHour.setText(String.format("%02d:00 - %02d:00", peakHour, (peakHour + 1) % 24));
+        } else {
+            tvPeakHour.setText("Chưa có dữ liệu");
+        }
+        
         // TODO: Implement actual best selling item calculation
         // For now, use mock data
         tvBestSellingItem.setText("Ramen Tonkotsu");
-        tvPeakHour.setText("19:00 - 21:00");
     }
     
     /**
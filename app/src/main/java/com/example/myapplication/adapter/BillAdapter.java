@@ -66,6 +66,18 @@ public class BillAdapter extends RecyclerView.Adapter<BillAdapter.BillViewHolder
         notifyDataSetChanged();
     }
     
+    /**
+     * Thêm trang tiếp theo vào cuối danh sách, chỉ bind các dòng mới
+     */
+    public void appendBills(List<Bill> moreBills) {
+        if (moreBills == null || moreBills.isEmpty()) {
+            return;
+        }
+        int start = bills.size();
+        bills.addAll(moreBills);
+        notifyItemRangeInserted(start, moreBills.size());
+    }
+    
     /**
      * ViewHolder cho bill item
      */
@@ -90,7 +102,7 @@ public class BillAdapter extends RecyclerView.Adapter<BillAdapter.BillViewHolder
             tvBillId.setText("#" + bill.getBillId());
             
             // Set status with appropriate color
-            String currentStatus = bill.getCurrentStatus();
+            String currentStatus = bill.getStatus();
             tvBillStatus.setText(bill.getStatusName());
             int statusColor = getStatusColor(currentStatus);
             tvBillStatus.setTextColor(statusColor);
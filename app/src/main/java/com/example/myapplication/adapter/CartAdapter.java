@@ -10,7 +10,9 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.myapplication.R;
 import com.example.myapplication.manager.CartManager;
+import com.example.myapplication.model.CartChange;
 import com.example.myapplication.model.CartItem;
+import com.example.myapplication.storage.IntIntHashMap;
 import java.text.NumberFormat;
 import java.util.List;
 import java.util.Locale;
@@ -18,9 +20,15 @@ import java.util.Locale;
 /**
  * Adapter cho RecyclerView hiển thị danh sách món ăn trong giỏ hàng
  * Quản lý việc hiển thị và tương tác với từng món trong CartActivity
+ * Danh sách được cập nhật theo CartChange từ CartManager: đổi số lượng chỉ bind lại
+ * số lượng/thành tiền của dòng đó, xóa món thì chỉ xóa dòng đó.
  */
-public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder> {
-    private List<CartItem> cartItems;          // Danh sách món trong giỏ hàng
+public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder>
+        implements CartManager.OnCartChangeListener {
+    private static final Object PAYLOAD_QUANTITY = new Object(); // Chỉ bind lại số lượng và thành tiền
+
+    private List<CartItem> cartItems;          // Danh sách món trong giỏ hàng (bản sao từ CartManager)
+    private final IntIntHashMap positionByFoodId = new IntIntHashMap(); // foodId -> vị trí trong cartItems
     private CartManager cartManager;           // Manager quản lý giỏ hàng
     private OnCartUpdateListener onCartUpdateListener; // Listener để thông báo khi giỏ hàng thay đổi
 
@@ -39,6 +47,14 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
     public CartAdapter(List<CartItem> cartItems, CartManager cartManager) {
         this.cartItems = cartItems;
         this.cartManager = cartManager;
+        indexPositions();
+    }
+
+    private void indexPositions() {
+        positionByFoodId.clear();
+        for (int i = 0; i < cartItems.size(); i++) {
+            positionByFoodId.put(cartItems.get(i).getFoodItem().getId(), i);
+        }
     }
 
     /**
@@ -73,6 +89,46 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
         holder.bind(cartItem);
     }
 
+    /**
+     * Bind một phần khi chỉ số lượng thay đổi (payload PAYLOAD_QUANTITY)
+     */
+    @Override
+    public void onBindViewHolder(@NonNull CartViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            holder.bindQuantity(cartItems.get(position));
+        }
+    }
+
+    /**
+     * Áp dụng thay đổi giỏ hàng lên đúng dòng bị ảnh hưởng
+     */
+    @Override
+    public void onCartChanged(CartChange change) {
+        if (change.isAllItems()) {
+            updateCartItems(cartManager.getCartItems());
+            return;
+        }
+        int position = positionByFoodId.get(change.getFoodId());
+        if (position == IntIntHashMap.MISSING) {
+            // Món được thêm từ màn hình khác
+            CartItem added = cartManager.getCartItem(change.getFoodId());
+            if (added != null) {
+                cartItems.add(new CartItem(added.getFoodItem(), added.getQuantity(), added.getPriceAtAdd()));
+                positionByFoodId.put(change.getFoodId(), cartItems.size() - 1);
+                notifyItemInserted(cartItems.size() - 1);
+            }
+        } else if (change.getNewQuantity() == 0) {
+            cartItems.remove(position);
+            indexPositions();
+            notifyItemRemoved(position);
+        } else {
+            cartItems.get(position).setQuantity(change.getNewQuantity());
+            notifyItemChanged(position, PAYLOAD_QUANTITY);
+        }
+    }
+
     /**
      * @return Số lượng item trong danh sách
      */
@@ -87,6 +143,7 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
      */
     public void updateCartItems(List<CartItem> newCartItems) {
         this.cartItems = newCartItems;
+        indexPositions();
         notifyDataSetChanged(); // Thông báo RecyclerView cập nhật giao diện
     }
 
@@ -134,15 +191,13 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
             ivCartFoodImage.setImageResource(cartItem.getFoodItem().getImageResource());
             tvCartFoodName.setText(cartItem.getFoodItem().getName());
             tvCartFoodDescription.setText(cartItem.getFoodItem().getDescription());
-            tvCartFoodPrice.setText(formatter.format(cartItem.getFoodItem().getPrice()).replace("₫", "₫/món"));
-            tvCartQuantity.setText(String.valueOf(cartItem.getQuantity()));
-            tvCartItemTotal.setText(formatter.format(cartItem.getTotalPrice()).replace("₫", "₫"));
+            tvCartFoodPrice.setText(formatter.format(cartItem.getPriceAtAdd()).replace("₫", "₫/món"));
+            bindQuantity(cartItem);
 
             // Sự kiện click nút "+" - tăng số lượng
             btnCartIncrease.setOnClickListener(v -> {
+                // CartChange sẽ cập nhật dòng này
                 cartManager.updateQuantity(cartItem.getFoodItem().getId(), cartItem.getQuantity() + 1);
-                cartItem.setQuantity(cartItem.getQuantity() + 1); // Cập nhật local object
-                notifyItemChanged(getAdapterPosition()); // Cập nhật UI item này
                 if (onCartUpdateListener != null) {
                     onCartUpdateListener.onCartUpdated(); // Thông báo activity cập nhật tổng tiền
                 }
@@ -157,10 +212,8 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
                            .setMessage("Bạn có muốn xóa món này khỏi giỏ hàng?")
                            .setPositiveButton("Xóa", (dialog, which) -> {
                                // User xác nhận xóa
+                               // CartChange sẽ xóa dòng này khỏi danh sách
                                cartManager.removeFromCart(cartItem.getFoodItem().getId());
-                               cartItems.remove(getAdapterPosition()); // Xóa khỏi local list
-                               notifyItemRemoved(getAdapterPosition()); // Animate removal
-                               notifyItemRangeChanged(getAdapterPosition(), cartItems.size()); // Update positions
                                if (onCartUpdateListener != null) {
                                    onCartUpdateListener.onCartUpdated(); // Thông báo activity
                                }
@@ -170,13 +223,20 @@ public class CartAdapter extends RecyclerView.Adapter<CartAdapter.CartViewHolder
                 } else {
                     // Nếu số lượng > 1, chỉ giảm số lượng
                     cartManager.updateQuantity(cartItem.getFoodItem().getId(), cartItem.getQuantity() - 1);
-                    cartItem.setQuantity(cartItem.getQuantity() - 1); // Cập nhật local object
-                    notifyItemChanged(getAdapterPosition()); // Cập nhật UI
                     if (onCartUpdateListener != null) {
                         onCartUpdateListener.onCartUpdated(); // Thông báo activity
                     }
                 }
             });
         }
+
+        /**
+         * Hiển thị số lượng và thành tiền của món
+         */
+        void bindQuantity(CartItem cartItem) {
+            NumberFormat formatter = NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
+            tvCartQuantity.setText(String.valueOf(cartItem.getQuantity()));
+            tvCartItemTotal.setText(formatter.format(cartItem.getTotalPrice()).replace("₫", "₫"));
+        }
     }
 }
\ No newline at end of file
@@ -15,8 +15,9 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.myapplication.R;
 import com.example.myapplication.activity.ProductDetailActivity;
 import com.example.myapplication.manager.CartManager;
-import com.example.myapplication.model.CartItem;
+import com.example.myapplication.model.CartChange;
 import com.example.myapplication.model.FoodItem;
+import com.example.myapplication.storage.IntIntHashMap;
 import com.example.myapplication.utils.ImageUtils;
 import java.text.NumberFormat;
 import java.util.List;
@@ -25,9 +26,15 @@ import java.util.Locale;
 /**
  * Adapter cho RecyclerView hiển thị danh sách món ăn trong MenuActivity
  * Quản lý việc hiển thị và tương tác với từng món ăn
+ * Nhận CartChange từ CartManager (activity đăng ký/hủy đăng ký) và chỉ bind lại phần số lượng
+ * của dòng bị ảnh hưởng, không load lại ảnh.
  */
-public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.FoodViewHolder> {
+public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.FoodViewHolder>
+        implements CartManager.OnCartChangeListener {
+    private static final Object PAYLOAD_CART_QUANTITY = new Object(); // Chỉ bind lại số lượng trong giỏ
+
     private List<FoodItem> foodItems;          // Danh sách món ăn cần hiển thị
+    private final IntIntHashMap positionByFoodId = new IntIntHashMap(); // foodId -> vị trí trong foodItems
     private CartManager cartManager;           // Manager quản lý giỏ hàng
     private OnCartUpdateListener onCartUpdateListener; // Listener để thông báo khi giỏ hàng thay đổi
 
@@ -46,6 +53,14 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.FoodViewHolder
     public FoodAdapter(List<FoodItem> foodItems, CartManager cartManager) {
         this.foodItems = foodItems;
         this.cartManager = cartManager;
+        indexPositions();
+    }
+
+    private void indexPositions() {
+        positionByFoodId.clear();
+        for (int i = 0; i < foodItems.size(); i++) {
+            positionByFoodId.put(foodItems.get(i).getId(), i);
+        }
     }
 
     /**
@@ -80,6 +95,33 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.FoodViewHolder
         holder.bind(foodItem);
     }
 
+    /**
+     * Bind một phần khi chỉ số lượng trong giỏ thay đổi (payload PAYLOAD_CART_QUANTITY)
+     */
+    @Override
+    public void onBindViewHolder(@NonNull FoodViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            holder.bindCartQuantity(foodItems.get(position));
+        }
+    }
+
+    /**
+     * Giỏ hàng thay đổi -> chỉ cập nhật dòng của món đó
+     */
+    @Override
+    public void onCartChanged(CartChange change) {
+        if (change.isAllItems()) {
+            notifyItemRangeChanged(0, foodItems.size(), PAYLOAD_CART_QUANTITY);
+            return;
+        }
+        int position = positionByFoodId.get(change.getFoodId());
+        if (position != IntIntHashMap.MISSING) {
+            notifyItemChanged(position, PAYLOAD_CART_QUANTITY);
+        }
+    }
+
     /**
      * @return Số lượng item trong danh sách
      */
@@ -94,6 +136,7 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.FoodViewHolder
      */
     public void updateFoodItems(List<FoodItem> newFoodItems) {
         this.foodItems = newFoodItems;
+        indexPositions();
         notifyDataSetChanged(); // Thông báo RecyclerView cập nhật giao diện
     }
 
@@ -152,18 +195,7 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.FoodViewHolder
                 tvFoodPrice.setText(String.format("%.0f₫", foodItem.getPrice()));
             }
 
-            // Kiểm tra món ăn đã có trong giỏ hàng chưa để hiển thị UI phù hợp
-            CartItem cartItem = cartManager.getCartItem(foodItem.getId());
-            if (cartItem != null) {
-                // Món đã có trong giỏ -> hiển thị controls điều chỉnh số lượng
-                layoutQuantityControls.setVisibility(View.VISIBLE);
-                btnAdd.setVisibility(View.GONE);
-                tvQuantity.setText(String.valueOf(cartItem.getQuantity()));
-            } else {
-                // Món chưa có trong giỏ -> hiển thị nút "THÊM"
-                layoutQuantityControls.setVisibility(View.GONE);
-                btnAdd.setVisibility(View.VISIBLE);
-            }
+            bindCartQuantity(foodItem);
 
             // Sự kiện click vào item -> mở Product Detail
             itemView.setOnClickListener(v -> {
@@ -174,8 +206,7 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.FoodViewHolder
 
             // Sự kiện click nút "THÊM" - thêm món vào giỏ hàng lần đầu
             btnAdd.setOnClickListener(v -> {
-                cartManager.addToCart(foodItem, 1);
-                notifyItemChanged(getAdapterPosition()); // Cập nhật item này
+                cartManager.addToCart(foodItem, 1); // CartChange sẽ cập nhật item này
                 if (onCartUpdateListener != null) {
                     onCartUpdateListener.onCartUpdated(); // Thông báo giỏ hàng đã thay đổi
                 }
@@ -183,10 +214,9 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.FoodViewHolder
 
             // Sự kiện click nút "+" - tăng số lượng
             btnIncrease.setOnClickListener(v -> {
-                CartItem currentCartItem = cartManager.getCartItem(foodItem.getId());
-                if (currentCartItem != null) {
-                    cartManager.updateQuantity(foodItem.getId(), currentCartItem.getQuantity() + 1);
-                    notifyItemChanged(getAdapterPosition());
+                int currentQuantity = cartManager.getQuantity(foodItem.getId());
+                if (currentQuantity > 0) {
+                    cartManager.updateQuantity(foodItem.getId(), currentQuantity + 1);
                     if (onCartUpdateListener != null) {
                         onCartUpdateListener.onCartUpdated();
                     }
@@ -195,16 +225,15 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.FoodViewHolder
 
             // Sự kiện click nút "-" - giảm số lượng hoặc xóa khỏi giỏ hàng
             btnDecrease.setOnClickListener(v -> {
-                CartItem currentCartItem = cartManager.getCartItem(foodItem.getId());
-                if (currentCartItem != null) {
-                    if (currentCartItem.getQuantity() == 1) {
+                int currentQuantity = cartManager.getQuantity(foodItem.getId());
+                if (currentQuantity > 0) {
+                    if (currentQuantity == 1) {
                         // Nếu số lượng = 1, hỏi xác nhận xóa khỏi giỏ hàng
                         android.app.AlertDialog.Builder builder = new android.app.AlertDialog.Builder(itemView.getContext());
                         builder.setTitle("Xóa món ăn")
                                .setMessage("Bạn có muốn xóa món này khỏi giỏ hàng?")
                                .setPositiveButton("Xóa", (dialog, which) -> {
                                    cartManager.removeFromCart(foodItem.getId());
-                                   notifyItemChanged(getAdapterPosition());
                                    if (onCartUpdateListener != null) {
                                        onCartUpdateListener.onCartUpdated();
                                    }
@@ -213,8 +242,7 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.FoodViewHolder
                                .show();
                     } else {
                         // Nếu số lượng > 1, chỉ giảm số lượng
-                        cartManager.updateQuantity(foodItem.getId(), currentCartItem.getQuantity() - 1);
-                        notifyItemChanged(getAdapterPosition());
+                        cartManager.updateQuantity(foodItem.getId(), currentQuantity - 1);
                         if (onCartUpdateListener != null) {
                             onCartUpdateListener.onCartUpdated();
                         }
@@ -223,6 +251,23 @@ public class FoodAdapter extends RecyclerView.Adapter<FoodAdapter.FoodViewHolder
             });
         }
 
+        /**
+         * Kiểm tra món ăn đã có trong giỏ hàng chưa để hiển thị UI phù hợp
+         */
+        void bindCartQuantity(FoodItem foodItem) {
+            int cartQuantity = cartManager.getQuantity(foodItem.getId());
+            if (cartQuantity > 0) {
+                // Món đã có trong giỏ -> hiển thị controls điều chỉnh số lượng
+                layoutQuantityControls.setVisibility(View.VISIBLE);
+                btnAdd.setVisibility(View.GONE);
+                tvQuantity.setText(String.valueOf(cartQuantity));
+            } else {
+                // Món chưa có trong giỏ -> hiển thị nút "THÊM"
+                layoutQuantityControls.setVisibility(View.GONE);
+                btnAdd.setVisibility(View.VISIBLE);
+            }
+        }
+
         /**
          * Load ảnh món ăn - ưu tiên ảnh custom, fallback về ảnh mặc định
          */
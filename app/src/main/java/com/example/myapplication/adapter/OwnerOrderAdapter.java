@@ -44,6 +44,18 @@ public class OwnerOrderAdapter extends RecyclerView.Adapter<OwnerOrderAdapter.Or
         notifyDataSetChanged();
     }
 
+    /**
+     * Thêm trang đơn hàng tiếp theo vào cuối danh sách
+     */
+    public void appendOrders(List<Bill> moreOrders) {
+        if (moreOrders == null || moreOrders.isEmpty()) {
+            return;
+        }
+        int start = orderList.size();
+        orderList.addAll(moreOrders);
+        notifyItemRangeInserted(start, moreOrders.size());
+    }
+
     @NonNull
     @Override
     public OrderViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -99,7 +111,7 @@ public class OwnerOrderAdapter extends RecyclerView.Adapter<OwnerOrderAdapter.Or
         }
 
         private void updateStatusDisplay(Bill order) {
-            String status = order.getCurrentStatus();
+            String status = order.getStatus();
             tvStatus.setText(order.getStatusName());
             
             // Set status color based on the status color from model
@@ -134,7 +146,7 @@ public class OwnerOrderAdapter extends RecyclerView.Adapter<OwnerOrderAdapter.Or
         }
 
         private void setupButtons(Bill order) {
-            String status = order.getCurrentStatus();
+            String status = order.getStatus();
             
             // Reset visibility
             btnAdvance.setVisibility(View.GONE);
@@ -4,6 +4,7 @@ import com.example.myapplication.activity.CartActivity;
 import com.example.myapplication.contracts.CartContract;
 import com.example.myapplication.model.CartItem;
 import com.example.myapplication.model.FoodItem;
+import com.example.myapplication.model.User;
 import com.example.myapplication.utils.Logger;
 import com.example.myapplication.utils.PriceUtils;
 import com.example.myapplication.utils.ValidationUtils;
@@ -184,11 +185,11 @@ public class CartController {
         try {
             // Update user address
             String cleanAddress = ValidationUtils.cleanInput(newAddress);
-            userManager.getCurrentUser().setAddress(cleanAddress);
+            User currentUser = userManager.getCurrentUser();
             userManager.updateUserInfo(
-                userManager.getCurrentUser().getFullName(),
+                currentUser.getFullName(),
                 cleanAddress,
-                userManager.getCurrentUser().getPhone()
+                currentUser.getPhone()
             );
             
             // Address updated - let activity handle UI update
@@ -248,6 +249,7 @@ public class CartController {
             
             // Clear cart
             cartManager.clearCart();
+            cartManager.flushPendingWrites();
             
             // Navigate back to main - let activity handle navigation
             
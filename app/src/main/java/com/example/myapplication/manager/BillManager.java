@@ -6,41 +6,102 @@ import com.example.myapplication.model.Bill;
 import com.example.myapplication.model.CartItem;
 import com.example.myapplication.model.FoodItem;
 import com.example.myapplication.manager.FoodDataManager;
+import com.example.myapplication.storage.BillIdAllocator;
+import com.example.myapplication.storage.BillJournal;
+import com.example.myapplication.storage.BillPage;
+import com.example.myapplication.storage.BufferedBillStore;
+import com.example.myapplication.storage.DeliveryDeadlineQueue;
+import com.example.myapplication.storage.LegacyBillMigrator;
+import com.example.myapplication.storage.RevenueRollup;
+import com.example.myapplication.storage.SqliteBillStore;
 import com.example.myapplication.utils.Logger;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import java.lang.reflect.Type;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Comparator;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Enhanced BillManager với separate bills per user
  * Mỗi user có lịch sử đơn hàng riêng biệt
+ * Hóa đơn lưu trong BillStore (SQLite), mọi truy vấn đều đi qua index của store.
+ * Đổi trạng thái được gom và ghi theo lô trên một luồng ghi (BufferedBillStore), đọc vẫn
+ * thấy ngay thay đổi đang chờ.
+ * Đơn đã hoàn thành quá getArchiveAfterDays() ngày được chuyển sang tầng lưu trữ,
+ * danh sách chỉ gồm đơn gần đây; màn hình lịch sử đọc theo trang qua getBillPage().
+ * Đơn đang giao được luồng nền chuyển thành DELIVERED khi đến hạn và ghi vào store,
+ * nên trạng thái đọc ra luôn là trạng thái đã lưu.
  */
 public class BillManager {
     private static final String TAG = "BillManager";
     
     private static final String PREFS_NAME = "bill_prefs";
-    private static final String KEY_BILLS_SUFFIX = "_bills";        // Will be: {username}_bills
-    private static final String KEY_GLOBAL_NEXT_ID = "global_next_bill_id";  // Global unique ID
+    private static final String KEY_GLOBAL_NEXT_ID = "global_next_bill_id";  // Legacy, chỉ đọc khi migrate
+    private static final String KEY_BILL_ID_HIGH_WATER = "bill_id_high_water"; // ID đầu tiên chưa được giữ chỗ
+    
+    // Rollup doanh thu trước đây lưu ở file riêng, nay nằm trong bills.db (chỉ còn để xóa file cũ)
+    private static final String LEGACY_ROLLUP_PREFS_NAME = "bill_rollup_prefs";
+    
+    // Đơn DELIVERED/CANCELLED cũ hơn số ngày này được chuyển sang tầng lưu trữ
+    private static final String KEY_ARCHIVE_AFTER_DAYS = "archive_after_days";
+    public static final int DEFAULT_ARCHIVE_AFTER_DAYS = 30;
+    
+    // Các lần đổi trạng thái trong khoảng này được ghi chung một lần
+    private static final long WRITE_COALESCE_WINDOW = 500;
+    
+    // Journal của định dạng cũ, chỉ còn được đọc khi migrate sang BillStore
+    private static final String JOURNAL_DIR = "bill_journal";
     
     private static BillManager instance;
     private SharedPreferences prefs;
     private Gson gson;
     private Context context;
     private String currentUserBills = "";    // Track current user's bills
+    private BufferedBillStore billStore;                    // Gom đổi trạng thái, flushPendingWrites() để ghi ngay
+    private LegacyBillMigrator legacyMigrator;              // {username}_bills + journal -> BillStore
+    private BillIdAllocator billIdAllocator;
     
     // FIXED: Add synchronization lock for thread safety
     private static final Object ID_LOCK = new Object();
     
+    // Lock cho read-modify-write trên một hóa đơn (đọc trạng thái rồi đổi)
+    private final Object storeLock = new Object();
+    
+    // Đơn DELIVERING chờ tự chuyển thành DELIVERED, một luồng nền ghi các đơn đến hạn theo lô
+    private static final long AUTO_DELIVERY_RETRY_DELAY = 60 * 1000;
+    private final DeliveryDeadlineQueue deliveryDeadlines = new DeliveryDeadlineQueue();
+    // Luồng nền của BillManager: quét giao hàng tự động và lần lưu trữ lúc khởi động
+    private final ScheduledExecutorService backgroundExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bill-background");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> deliverySweep;
+    private long deliverySweepAt;
+    
     private BillManager(Context context) {
         this.context = context;
         this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         this.gson = new Gson();
+        this.billStore = new BufferedBillStore(new SqliteBillStore(context, gson), WRITE_COALESCE_WINDOW);
+        this.legacyMigrator = new LegacyBillMigrator(prefs,
+                new BillJournal(new File(context.getFilesDir(), JOURNAL_DIR), gson), gson);
+        this.billIdAllocator = new BillIdAllocator(new PrefsHighWaterMarkStore());
+        SharedPreferences legacyRollup = context.getSharedPreferences(LEGACY_ROLLUP_PREFS_NAME, Context.MODE_PRIVATE);
+        if (!legacyRollup.getAll().isEmpty()) {
+            legacyRollup.edit().clear().apply();
+        }
+        migrateLegacyBills();
+        scheduleAutoDeliveries();
+        // Lưu trữ ghi segment và xóa dòng trong một transaction, không chạy trên luồng gọi getInstance (thường là UI)
+        backgroundExecutor.execute(this::archiveOldBills);
         loadBillsForCurrentUser();
+        // Cập nhật user khi phiên đăng nhập thay đổi thay vì đọc lại ở mỗi lần gọi
+        UserManager.getInstance(context).addOnSessionChangeListener((previous, current) -> loadBillsForCurrentUser());
     }
     
     public static synchronized BillManager getInstance(Context context) {
@@ -51,19 +112,17 @@ public class BillManager {
     }
     
     /**
-     * Load bills cho user hiện tại
+     * Load bills cho user hiện tại (gọi khi tạo manager và khi phiên đăng nhập thay đổi)
      */
     public void loadBillsForCurrentUser() {
         try {
-            UserManager userManager = UserManager.getInstance(context);
-            if (!userManager.isLoggedIn()) {
+            String username = UserManager.getInstance(context).getCurrentUsername();
+            if (username == null) {
                 Logger.d(TAG, "No user logged in, cannot load bills");
                 currentUserBills = "";
                 return;
             }
 
-            String username = userManager.getCurrentUser().getUsername();
-            
             // Nếu user đã thay đổi, cập nhật reference
             if (!username.equals(currentUserBills)) {
                 Logger.d(TAG, "User changed from '" + currentUserBills + "' to '" + username + "', updating bills reference");
@@ -82,8 +141,6 @@ public class BillManager {
     public Bill createBill(String customerName, List<CartItem> cartItems, double totalAmount,
                           String deliveryAddress, String phone, String fullName) {
         try {
-            loadBillsForCurrentUser();
-            
             if (currentUserBills.isEmpty()) {
                 Logger.w(TAG, "No user logged in, cannot create bill");
                 return null;
@@ -99,21 +156,21 @@ public class BillManager {
                 Bill.BillItem billItem = new Bill.BillItem(
                     food.getId(),
                     food.getName(),
-                    food.getPrice(),
+                    cartItem.getPriceAtAdd(),
                     cartItem.getQuantity()
                 );
                 billItems.add(billItem);
             }
             
-            // Create new bill - FIX: Pass cartItems để giữ backward compatibility
-            Bill bill = new Bill(billId, customerName, cartItems, totalAmount,
+            // Create new bill - chỉ giữ billItems, không chép CartItem (kèm cả FoodItem) vào items
+            Bill bill = new Bill(billId, customerName, null, totalAmount,
                                deliveryAddress, phone, fullName, new Date(), Bill.STATUS_PENDING);
             
             // Set bill items (primary data)
             bill.setBillItems(billItems);
             
             // Save bill
-            saveBill(bill);
+            billStore.put(currentUserBills, bill); // Rollup doanh thu được ghi cùng transaction
             
             Logger.d(TAG, "Created bill #" + billId + " for user: " + currentUserBills + 
                      " with " + billItems.size() + " items, total: " + totalAmount);
@@ -127,26 +184,166 @@ public class BillManager {
     }
     
     /**
-     * Lưu hóa đơn cho user hiện tại
+     * Chuyển dữ liệu cũ trong bill_prefs (JSON + journal) sang BillStore, chỉ chạy khi còn dữ liệu cũ
      */
-    private void saveBill(Bill bill) {
-        try {
-            if (currentUserBills.isEmpty()) {
-                Logger.w(TAG, "No current user, cannot save bill");
-                return;
+    private void migrateLegacyBills() {
+        synchronized (ID_LOCK) {
+            try {
+                if (!legacyMigrator.hasLegacyData()) {
+                    return;
+                }
+                
+                Logger.d(TAG, "Migrating bills from " + PREFS_NAME + " to bill store...");
+                int migrated = legacyMigrator.migrate(billStore, this::getNextGlobalBillId);
+                Logger.d(TAG, "Migrated " + migrated + " bills to bill store");
+                
+                if (legacyMigrator.hasLegacyData()) {
+                    Logger.w(TAG, "Could not migrate bills of users: " + legacyMigrator.getUsernames());
+                }
+                
+            } catch (Exception e) {
+                Logger.e(TAG, "Error migrating bills to bill store", e);
+            }
+        }
+    }
+    
+    /**
+     * Chuyển đơn đã hoàn thành quá hạn sang tầng lưu trữ (doanh thu không đổi nên rollup giữ nguyên)
+     */
+    private void archiveOldBills() {
+        synchronized (storeLock) {
+            try {
+                long cutoff = System.currentTimeMillis() - getArchiveAfterDays() * 24L * 60 * 60 * 1000;
+                int archived = billStore.archiveCompletedBefore(cutoff);
+                if (archived > 0) {
+                    Logger.d(TAG, "Archived " + archived + " completed bills older than " + new Date(cutoff));
+                }
+            } catch (Exception e) {
+                Logger.e(TAG, "Error archiving old bills", e);
+            }
+        }
+    }
+    
+    public int getArchiveAfterDays() {
+        return prefs.getInt(KEY_ARCHIVE_AFTER_DAYS, DEFAULT_ARCHIVE_AFTER_DAYS);
+    }
+    
+    /**
+     * Đổi số ngày trước khi đơn đã hoàn thành được lưu trữ, áp dụng ngay
+     */
+    public void setArchiveAfterDays(int days) {
+        prefs.edit().putInt(KEY_ARCHIVE_AFTER_DAYS, Math.max(1, days)).apply();
+        archiveOldBills();
+    }
+    
+    /**
+     * Đổi trạng thái một hóa đơn: chỉ cập nhật dòng của hóa đơn đó trong store
+     * @param requiredOwner nếu khác null, chỉ cập nhật khi hóa đơn thuộc user này
+     * @return hóa đơn sau khi cập nhật, null nếu không tìm thấy
+     */
+    private Bill patchBillStatus(int billId, String newStatus, String requiredOwner) {
+        synchronized (storeLock) {
+            if (requiredOwner != null && !requiredOwner.equals(billStore.getOwner(billId))) {
+                return null;
+            }
+            Bill bill = billStore.get(billId);
+            if (bill == null) {
+                return null;
             }
             
-            List<Bill> bills = getBillsForCurrentUser();
-            bills.add(bill);
-            
-            String billsKey = currentUserBills + KEY_BILLS_SUFFIX;
-            String json = gson.toJson(bills);
-            prefs.edit().putString(billsKey, json).apply();
-            
-            Logger.d(TAG, "Saved bill #" + bill.getId() + " for user: " + currentUserBills);
+            Logger.d(TAG, "Updating bill #" + billId + " from " + bill.getStatus() + " to " + newStatus);
+            Date now = new Date();
+            if (!billStore.updateStatus(billId, newStatus, now.getTime())) {
+                return null;
+            }
+            bill.setStatus(newStatus);
+            bill.setLastUpdated(now);
             
+            if (Bill.STATUS_DELIVERING.equals(newStatus)) {
+                deliveryDeadlines.schedule(billId, bill.getAutoDeliveryDeadline());
+                scheduleDeliverySweep();
+            } else {
+                deliveryDeadlines.cancel(billId);
+            }
+            return bill;
+        }
+    }
+    
+    /**
+     * Đưa mọi đơn đang giao vào hàng đợi hạn và chuyển ngay các đơn đã quá hạn
+     * (kể cả khi app không chạy), sau đó người đọc chỉ cần tin trạng thái đã lưu
+     */
+    private void scheduleAutoDeliveries() {
+        try {
+            for (Bill bill : billStore.getByStatus(Bill.STATUS_DELIVERING)) {
+                deliveryDeadlines.schedule(bill.getId(), bill.getAutoDeliveryDeadline());
+            }
+            sweepAutoDeliveries();
+        } catch (Exception e) {
+            Logger.e(TAG, "Error scheduling auto deliveries", e);
+        }
+    }
+    
+    /**
+     * Chuyển các đơn đang giao đã quá Bill.AUTO_DELIVERY_TIME thành DELIVERED trong một lần ghi
+     * Đơn đã đổi trạng thái khác trong lúc chờ sẽ được store bỏ qua.
+     * @return số đơn đã chuyển
+     */
+    public int sweepAutoDeliveries() {
+        int delivered = 0;
+        synchronized (storeLock) {
+            long now = System.currentTimeMillis();
+            if (deliverySweepAt <= now) {
+                // Lần quét đã hẹn là lần này (hoặc sắp chạy và không còn việc), cho phép hẹn lần mới
+                deliverySweep = null;
+            }
+            List<Integer> due = deliveryDeadlines.pollDue(now);
+            if (!due.isEmpty()) {
+                try {
+                    // DELIVERING -> DELIVERED không đổi doanh thu nên rollup giữ nguyên
+                    delivered = billStore.updateStatus(due, Bill.STATUS_DELIVERING, Bill.STATUS_DELIVERED, now);
+                    Logger.d(TAG, "Auto-delivered " + delivered + " of " + due.size() + " due bills");
+                } catch (Exception e) {
+                    Logger.e(TAG, "Error applying auto deliveries, retrying later", e);
+                    for (int billId : due) {
+                        deliveryDeadlines.schedule(billId, now + AUTO_DELIVERY_RETRY_DELAY);
+                    }
+                }
+            }
+            scheduleDeliverySweep();
+        }
+        return delivered;
+    }
+    
+    /**
+     * Hẹn lần quét tiếp theo đúng hạn sớm nhất trong hàng đợi
+     */
+    private void scheduleDeliverySweep() {
+        synchronized (storeLock) {
+            long next = deliveryDeadlines.nextDeadline();
+            if (next == Long.MAX_VALUE) {
+                return;
+            }
+            if (deliverySweep != null && !deliverySweep.isDone() && deliverySweepAt <= next) {
+                return;
+            }
+            if (deliverySweep != null) {
+                deliverySweep.cancel(false);
+            }
+            deliverySweepAt = next;
+            long delay = Math.max(0, next - System.currentTimeMillis());
+            deliverySweep = backgroundExecutor.schedule(this::sweepAutoDeliveries, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Ghi ngay các thay đổi đang chờ (gọi khi màn hình vào onPause, khi xác nhận đặt hàng)
+     */
+    public void flushPendingWrites() {
+        try {
+            billStore.flush();
         } catch (Exception e) {
-            Logger.e(TAG, "Error saving bill", e);
+            Logger.e(TAG, "Error flushing pending bill writes", e);
         }
     }
     
@@ -155,25 +352,14 @@ public class BillManager {
      */
     public List<Bill> getBillsForCurrentUser() {
         try {
-            loadBillsForCurrentUser();
-            
             if (currentUserBills.isEmpty()) {
                 Logger.d(TAG, "No user logged in, returning empty bill list");
                 return new ArrayList<>();
             }
             
-            String billsKey = currentUserBills + KEY_BILLS_SUFFIX;
-            String json = prefs.getString(billsKey, "");
-            
-            if (!json.isEmpty()) {
-                Type type = new TypeToken<List<Bill>>(){}.getType();
-                List<Bill> bills = gson.fromJson(json, type);
-                Logger.d(TAG, "Loaded " + (bills != null ? bills.size() : 0) + " bills for user: " + currentUserBills);
-                return bills != null ? bills : new ArrayList<>();
-            } else {
-                Logger.d(TAG, "No saved bills found for user: " + currentUserBills);
-                return new ArrayList<>();
-            }
+            List<Bill> bills = billStore.getByUsername(currentUserBills);
+            Logger.d(TAG, "Loaded " + bills.size() + " bills for user: " + currentUserBills);
+            return bills;
             
         } catch (Exception e) {
             Logger.e(TAG, "Error getting bills for current user", e);
@@ -186,11 +372,8 @@ public class BillManager {
      */
     public Bill getBillById(int billId) {
         try {
-            List<Bill> bills = getBillsForCurrentUser();
-            for (Bill bill : bills) {
-                if (bill.getId() == billId) {
-                    return bill;
-                }
+            if (!currentUserBills.isEmpty() && currentUserBills.equals(billStore.getOwner(billId))) {
+                return billStore.get(billId);
             }
             Logger.d(TAG, "Bill #" + billId + " not found for user: " + currentUserBills);
             return null;
@@ -202,60 +385,55 @@ public class BillManager {
     }
     
     /**
-     * FIXED: Thread-safe và đơn giản hóa logic tạo ID để tránh trùng lặp
+     * Lấy ID hóa đơn tiếp theo từ allocator hi/lo (không quét dữ liệu hóa đơn)
      */
     private int getNextGlobalBillId() {
-        synchronized (ID_LOCK) {
-            try {
-                // Step 1: Get current max ID from SharedPreferences
-                int nextId = prefs.getInt(KEY_GLOBAL_NEXT_ID, 1);
-                
-                // Step 2: Find actual max ID from all existing bills (safety check)
-                int actualMaxId = findActualMaxBillId();
-                
-                // Step 3: Use the higher value to ensure no collision
-                int safeId = Math.max(nextId, actualMaxId + 1);
-                
-                // Step 4: Update the stored next ID for future use
-                prefs.edit().putInt(KEY_GLOBAL_NEXT_ID, safeId + 1).apply();
-                
-                Logger.d(TAG, "Generated safe bill ID: " + safeId + 
-                         " (stored next: " + nextId + ", actual max: " + actualMaxId + ")");
-                
-                return safeId;
-                
-            } catch (Exception e) {
-                Logger.e(TAG, "Error in getNextGlobalBillId", e);
-                // Fallback: Use timestamp-based unique ID
-                int fallbackId = (int) (System.currentTimeMillis() % 1000000);
-                Logger.w(TAG, "Using fallback ID: " + fallbackId);
-                return fallbackId;
+        try {
+            return billIdAllocator.nextId();
+        } catch (Exception e) {
+            Logger.e(TAG, "Error in getNextGlobalBillId", e);
+            // Fallback: Use timestamp-based unique ID
+            int fallbackId = (int) (System.currentTimeMillis() % 1000000);
+            Logger.w(TAG, "Using fallback ID: " + fallbackId);
+            return fallbackId;
+        }
+    }
+    
+    /**
+     * High-water mark của allocator lưu trong bill_prefs
+     * Lần đầu chạy sẽ migrate từ global_next_bill_id cũ + ID lớn nhất đang có (chỉ một lần)
+     */
+    private class PrefsHighWaterMarkStore implements BillIdAllocator.HighWaterMarkStore {
+        @Override
+        public int read() {
+            // Chỉ được gọi bên trong lock của allocator
+            if (prefs.contains(KEY_BILL_ID_HIGH_WATER)) {
+                return prefs.getInt(KEY_BILL_ID_HIGH_WATER, 1);
+            }
+            int legacyNextId = prefs.getInt(KEY_GLOBAL_NEXT_ID, 1);
+            int highWater = Math.max(legacyNextId, findActualMaxBillId() + 1);
+            write(highWater);
+            Logger.d(TAG, "Migrated bill ID high-water mark to: " + highWater);
+            return highWater;
+        }
+        
+        @Override
+        public void write(int highWaterMark) {
+            // commit() đồng bộ: block phải được ghi trước khi phát ID
+            if (!prefs.edit().putInt(KEY_BILL_ID_HIGH_WATER, highWaterMark).commit()) {
+                throw new IllegalStateException("Cannot persist bill ID high-water mark");
             }
         }
     }
     
     /**
-     * FIXED: Tìm ID lớn nhất thực tế từ tất cả bills
+     * FIXED: Tìm ID lớn nhất thực tế từ tất cả bills (store + dữ liệu cũ chưa migrate)
      */
     private int findActualMaxBillId() {
         int maxId = 0;
         
         try {
-            // Scan through all users' bills
-            for (String key : prefs.getAll().keySet()) {
-                if (key.endsWith(KEY_BILLS_SUFFIX)) {
-                    String json = prefs.getString(key, "");
-                    if (!json.isEmpty()) {
-                        Type type = new TypeToken<List<Bill>>(){}.getType();
-                        List<Bill> userBills = gson.fromJson(json, type);
-                        if (userBills != null) {
-                            for (Bill bill : userBills) {
-                                maxId = Math.max(maxId, bill.getId());
-                            }
-                        }
-                    }
-                }
-            }
+            maxId = Math.max(billStore.getMaxBillId(), legacyMigrator.findMaxBillId());
         } catch (Exception e) {
             Logger.e(TAG, "Error finding actual max bill ID", e);
         }
@@ -268,7 +446,10 @@ public class BillManager {
      */
     public int getTotalOrderCount() {
         try {
-            return getBillsForCurrentUser().size();
+            if (currentUserBills.isEmpty()) {
+                return 0;
+            }
+            return billStore.count(currentUserBills, null);
         } catch (Exception e) {
             Logger.e(TAG, "Error getting total order count", e);
             return 0;
@@ -280,12 +461,10 @@ public class BillManager {
      */
     public double getTotalSpending() {
         try {
-            List<Bill> bills = getBillsForCurrentUser();
-            double total = 0;
-            for (Bill bill : bills) {
-                total += bill.getTotalAmount();
+            if (currentUserBills.isEmpty()) {
+                return 0;
             }
-            return total;
+            return billStore.sumAmount(currentUserBills);
             
         } catch (Exception e) {
             Logger.e(TAG, "Error getting total spending", e);
@@ -298,10 +477,10 @@ public class BillManager {
      */
     public List<Bill> getBillsByStatus(String status) {
         try {
-            List<Bill> bills = getBillsForCurrentUser();
-            return bills.stream()
-                       .filter(bill -> status.equals(bill.getStatus()))
-                       .collect(Collectors.toList());
+            if (currentUserBills.isEmpty()) {
+                return new ArrayList<>();
+            }
+            return billStore.getByUsernameAndStatus(currentUserBills, status);
                        
         } catch (Exception e) {
             Logger.e(TAG, "Error getting bills by status", e);
@@ -352,7 +531,6 @@ public class BillManager {
      */
     public String getBillsSummary() {
         try {
-            loadBillsForCurrentUser();
             int orderCount = getTotalOrderCount();
             double totalSpending = getTotalSpending();
             
@@ -373,18 +551,14 @@ public class BillManager {
      */
     public void clearBillsForCurrentUser() {
         try {
-            loadBillsForCurrentUser();
-            
             if (currentUserBills.isEmpty()) {
                 Logger.w(TAG, "No user logged in, cannot clear bills");
                 return;
             }
             
-            String billsKey = currentUserBills + KEY_BILLS_SUFFIX;
-            
-            prefs.edit()
-                 .remove(billsKey)
-                 .apply();
+            synchronized (storeLock) {
+                billStore.deleteByUsername(currentUserBills);
+            }
                  
             Logger.d(TAG, "Cleared all bills for user: " + currentUserBills);
             
@@ -401,44 +575,12 @@ public class BillManager {
             try {
                 Logger.d(TAG, "Attempting to update bill #" + billId + " to status: " + newStatus);
                 
-                // Search through all users' bills
-                int totalBillsSearched = 0;
-                for (String key : prefs.getAll().keySet()) {
-                    if (key.endsWith(KEY_BILLS_SUFFIX)) {
-                        Logger.d(TAG, "Searching in bills key: " + key);
-                        String json = prefs.getString(key, "");
-                        if (!json.isEmpty()) {
-                            Type type = new TypeToken<List<Bill>>(){}.getType();
-                            List<Bill> userBills = gson.fromJson(json, type);
-                            
-                            if (userBills != null) {
-                                totalBillsSearched += userBills.size();
-                                boolean updated = false;
-                                for (Bill bill : userBills) {
-                                    Logger.d(TAG, "Checking bill #" + bill.getId() + " (status: " + bill.getStatus() + ")");
-                                    if (bill.getId() == billId) {
-                                        Logger.d(TAG, "Found matching bill #" + billId + ", updating status from " + bill.getStatus() + " to " + newStatus);
-                                        bill.setStatus(newStatus);
-                                        bill.setLastUpdated(new Date());
-                                        updated = true;
-                                        break;
-                                    }
-                                }
-                                
-                                if (updated) {
-                                    // Save updated bills back to that user's data
-                                    String updatedJson = gson.toJson(userBills);
-                                    prefs.edit().putString(key, updatedJson).apply();
-                                    
-                                    Logger.d(TAG, "Successfully updated bill #" + billId + " status to: " + newStatus + " in key: " + key);
-                                    return true;
-                                }
-                            }
-                        }
-                    }
+                if (patchBillStatus(billId, newStatus, null) != null) {
+                    Logger.d(TAG, "Successfully updated bill #" + billId + " status to: " + newStatus);
+                    return true;
                 }
                 
-                Logger.w(TAG, "Bill #" + billId + " not found for status update (searched " + totalBillsSearched + " bills total)");
+                Logger.w(TAG, "Bill #" + billId + " not found for status update");
                 return false;
                 
             } catch (Exception e) {
@@ -453,24 +595,12 @@ public class BillManager {
      */
     public void updateBillStatus(int billId, String newStatus) {
         try {
-            List<Bill> bills = getBillsForCurrentUser();
-            boolean updated = false;
-            
-            for (Bill bill : bills) {
-                if (bill.getId() == billId) {
-                    bill.setStatus(newStatus);
-                    bill.setLastUpdated(new Date());
-                    updated = true;
-                    break;
-                }
+            if (currentUserBills.isEmpty()) {
+                Logger.w(TAG, "No user logged in, cannot update bill status");
+                return;
             }
             
-            if (updated) {
-                // Save updated bills
-                String billsKey = currentUserBills + KEY_BILLS_SUFFIX;
-                String json = gson.toJson(bills);
-                prefs.edit().putString(billsKey, json).apply();
-                
+            if (patchBillStatus(billId, newStatus, currentUserBills) != null) {
                 Logger.d(TAG, "Updated bill #" + billId + " status to: " + newStatus);
             } else {
                 Logger.w(TAG, "Bill #" + billId + " not found for status update");
@@ -482,20 +612,11 @@ public class BillManager {
     }
     
     /**
-     * Get bills by username
+     * Get bills by username (newest first)
      */
     public List<Bill> getBillsByUsername(String username) {
         try {
-            String billsKey = username + KEY_BILLS_SUFFIX;
-            String json = prefs.getString(billsKey, "");
-            
-            if (!json.isEmpty()) {
-                Type type = new TypeToken<List<Bill>>(){}.getType();
-                List<Bill> bills = gson.fromJson(json, type);
-                return bills != null ? bills : new ArrayList<>();
-            }
-            
-            return new ArrayList<>();
+            return billStore.getByUsername(username);
             
         } catch (Exception e) {
             Logger.e(TAG, "Error getting bills by username", e);
@@ -508,10 +629,7 @@ public class BillManager {
      */
     public List<Bill> getBillsByUsernameAndStatus(String username, String status) {
         try {
-            List<Bill> allBills = getBillsByUsername(username);
-            return allBills.stream()
-                          .filter(bill -> status.equals(bill.getStatus()))
-                          .collect(Collectors.toList());
+            return billStore.getByUsernameAndStatus(username, status);
                           
         } catch (Exception e) {
             Logger.e(TAG, "Error getting bills by username and status", e);
@@ -524,24 +642,96 @@ public class BillManager {
      */
     public int getBillCountByUsername(String username) {
         try {
-            return getBillsByUsername(username).size();
+            return billStore.count(username, null);
         } catch (Exception e) {
             Logger.e(TAG, "Error getting bill count by username", e);
             return 0;
         }
     }
     
+    /**
+     * Số đơn của user theo trạng thái (cả đơn đã lưu trữ)
+     */
+    public int getBillCountByUsernameAndStatus(String username, String status) {
+        try {
+            return billStore.count(username, status);
+        } catch (Exception e) {
+            Logger.e(TAG, "Error getting bill count by username and status", e);
+            return 0;
+        }
+    }
+    
+    /**
+     * Thời điểm đặt đơn gần nhất của user (cả đơn đã lưu trữ), null nếu chưa có đơn
+     */
+    public Date getLastOrderDateByUsername(String username) {
+        try {
+            long latest = billStore.getLatestOrderDate(username);
+            return latest > 0 ? new Date(latest) : null;
+        } catch (Exception e) {
+            Logger.e(TAG, "Error getting last order date by username", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Một trang lịch sử đơn hàng, mới nhất trước (gồm cả đơn đã lưu trữ)
+     * Trang đầu truyền cursor null, các trang sau truyền getNextCursor() của trang trước.
+     * @param username null = tất cả user (Owner)
+     * @param status null = mọi trạng thái
+     * @return trang rỗng (không còn trang sau) nếu có lỗi
+     */
+    public BillPage getBillPage(String username, String status, String cursor, int pageSize) {
+        try {
+            return billStore.getPage(username, status, cursor, pageSize);
+        } catch (Exception e) {
+            Logger.e(TAG, "Error loading bill page", e);
+            return new BillPage(new ArrayList<>(), null);
+        }
+    }
+    
+    /**
+     * Đơn đã lưu trữ của tất cả user trong khoảng [fromTime, toTime) (Owner)
+     */
+    public List<Bill> getArchivedOrders(long fromTime, long toTime) {
+        try {
+            return billStore.getArchived(null, null, fromTime, toTime);
+        } catch (Exception e) {
+            Logger.e(TAG, "Error loading archived orders", e);
+            return new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Tổng số đơn của tất cả user (cả đơn đã lưu trữ)
+     */
+    public int getOrderCountAllUsers() {
+        try {
+            return billStore.count(null, null);
+        } catch (Exception e) {
+            Logger.e(TAG, "Error getting order count of all users", e);
+            return 0;
+        }
+    }
+    
+    /**
+     * Tổng tiền mọi đơn của tất cả user (kể cả đơn hủy, cả đơn đã lưu trữ)
+     */
+    public double getTotalAmountAllUsers() {
+        try {
+            return billStore.sumAmount(null);
+        } catch (Exception e) {
+            Logger.e(TAG, "Error getting total amount of all users", e);
+            return 0;
+        }
+    }
+    
     /**
      * Get total spending by username
      */
     public double getTotalSpentByUsername(String username) {
         try {
-            List<Bill> bills = getBillsByUsername(username);
-            double total = 0;
-            for (Bill bill : bills) {
-                total += bill.getTotalAmount();
-            }
-            return total;
+            return billStore.sumAmount(username);
             
         } catch (Exception e) {
             Logger.e(TAG, "Error getting total spent by username", e);
@@ -554,24 +744,8 @@ public class BillManager {
      */
     public List<Bill> getAllBillsFromAllUsers() {
         try {
-            List<Bill> allBills = new ArrayList<>();
-            
-            // Get all keys from SharedPreferences
-            for (String key : prefs.getAll().keySet()) {
-                if (key.endsWith(KEY_BILLS_SUFFIX)) {
-                    String json = prefs.getString(key, "");
-                    if (!json.isEmpty()) {
-                        Type type = new TypeToken<List<Bill>>(){}.getType();
-                        List<Bill> userBills = gson.fromJson(json, type);
-                        if (userBills != null) {
-                            allBills.addAll(userBills);
-                        }
-                    }
-                }
-            }
-            
-            // Sort by order date (newest first)
-            allBills.sort((bill1, bill2) -> bill2.getOrderDate().compareTo(bill1.getOrderDate()));
+            // Store trả về theo ngày đặt (newest first)
+            List<Bill> allBills = billStore.getAll();
             
             Logger.d(TAG, "Loaded " + allBills.size() + " bills from all users");
             return allBills;
@@ -587,10 +761,7 @@ public class BillManager {
      */
     public List<Bill> getAllOrdersByStatus(String status) {
         try {
-            List<Bill> allBills = getAllBillsFromAllUsers();
-            return allBills.stream()
-                          .filter(bill -> status.equals(bill.getStatus()))
-                          .collect(Collectors.toList());
+            return billStore.getByStatus(status);
                           
         } catch (Exception e) {
             Logger.e(TAG, "Error getting all orders by status", e);
@@ -603,7 +774,7 @@ public class BillManager {
      */
     public int getOrderCountByStatus(String status) {
         try {
-            return getAllOrdersByStatus(status).size();
+            return billStore.count(null, status);
         } catch (Exception e) {
             Logger.e(TAG, "Error getting order count by status", e);
             return 0;
@@ -615,14 +786,7 @@ public class BillManager {
      */
     public double getTotalRevenue() {
         try {
-            List<Bill> allBills = getAllBillsFromAllUsers();
-            double total = 0;
-            for (Bill bill : allBills) {
-                if (!Bill.STATUS_CANCELLED.equals(bill.getStatus())) {
-                    total += bill.getTotalAmount();
-                }
-            }
-            return total;
+            return billStore.sumRevenue(0, Integer.MAX_VALUE).getRevenue();
             
         } catch (Exception e) {
             Logger.e(TAG, "Error getting total revenue", e);
@@ -635,24 +799,8 @@ public class BillManager {
      */
     public double getDailyRevenue() {
         try {
-            List<Bill> allBills = getAllBillsFromAllUsers();
-            double total = 0;
-            
-            // Get today's date
-            Date today = new Date();
-            java.text.SimpleDateFormat dateFormat = new java.text.SimpleDateFormat("yyyy-MM-dd");
-            String todayStr = dateFormat.format(today);
-            
-            for (Bill bill : allBills) {
-                if (!Bill.STATUS_CANCELLED.equals(bill.getStatus())) {
-                    String billDateStr = dateFormat.format(bill.getOrderDate());
-                    if (todayStr.equals(billDateStr)) {
-                        total += bill.getTotalAmount();
-                    }
-                }
-            }
-            
-            return total;
+            int today = RevenueRollup.dayKey(System.currentTimeMillis());
+            return billStore.sumRevenue(today, today).getRevenue();
             
         } catch (Exception e) {
             Logger.e(TAG, "Error getting daily revenue", e);
@@ -661,102 +809,56 @@ public class BillManager {
     }
     
     /**
-     * FIXED: Phương thức kiểm tra và sửa chữa ID trùng lặp
+     * Doanh thu và số đơn (không tính đơn hủy) từ ngày chứa fromTime đến hôm nay
      */
-    public void validateAndFixDuplicateIds() {
-        synchronized (ID_LOCK) {
-            try {
-                Logger.d(TAG, "Starting duplicate ID validation...");
-                
-                List<Integer> allIds = new ArrayList<>();
-                List<String> allKeys = new ArrayList<>();
-                
-                // Collect all bill IDs
-                for (String key : prefs.getAll().keySet()) {
-                    if (key.endsWith(KEY_BILLS_SUFFIX)) {
-                        String json = prefs.getString(key, "");
-                        if (!json.isEmpty()) {
-                            Type type = new TypeToken<List<Bill>>(){}.getType();
-                            List<Bill> userBills = gson.fromJson(json, type);
-                            if (userBills != null) {
-                                for (Bill bill : userBills) {
-                                    allIds.add(bill.getId());
-                                }
-                                allKeys.add(key);
-                            }
-                        }
-                    }
-                }
-                
-                // Check for duplicates
-                List<Integer> duplicates = new ArrayList<>();
-                for (int i = 0; i < allIds.size(); i++) {
-                    for (int j = i + 1; j < allIds.size(); j++) {
-                        if (allIds.get(i).equals(allIds.get(j))) {
-                            if (!duplicates.contains(allIds.get(i))) {
-                                duplicates.add(allIds.get(i));
-                            }
-                        }
-                    }
-                }
-                
-                if (duplicates.isEmpty()) {
-                    Logger.d(TAG, "No duplicate IDs found. Total bills: " + allIds.size());
-                } else {
-                    Logger.w(TAG, "Found " + duplicates.size() + " duplicate IDs: " + duplicates);
-                    fixDuplicateIdsInternal(duplicates, allKeys);
-                }
-                
-            } catch (Exception e) {
-                Logger.e(TAG, "Error in duplicate ID validation", e);
-            }
+    public RevenueRollup.Bucket getRevenueSince(long fromTime) {
+        try {
+            return billStore.sumRevenue(RevenueRollup.dayKey(fromTime), RevenueRollup.dayKey(System.currentTimeMillis()));
+        } catch (Exception e) {
+            Logger.e(TAG, "Error getting revenue since " + fromTime, e);
+            return new RevenueRollup.Bucket();
         }
     }
     
     /**
-     * FIXED: Sửa chữa ID trùng lặp bằng cách gán lại ID mới duy nhất
+     * Doanh thu và số đơn (không tính đơn hủy) của toàn bộ lịch sử
      */
-    private void fixDuplicateIdsInternal(List<Integer> duplicateIds, List<String> allKeys) {
+    public RevenueRollup.Bucket getRevenueAllTime() {
         try {
-            int maxId = findActualMaxBillId();
-            int nextAvailableId = maxId + 1;
-            
-            Logger.d(TAG, "Starting to fix duplicate IDs. Next available ID: " + nextAvailableId);
-            
-            for (String key : allKeys) {
-                String json = prefs.getString(key, "");
-                if (!json.isEmpty()) {
-                    Type type = new TypeToken<List<Bill>>(){}.getType();
-                    List<Bill> userBills = gson.fromJson(json, type);
-                    
-                    if (userBills != null) {
-                        boolean hasChanges = false;
-                        for (Bill bill : userBills) {
-                            if (duplicateIds.contains(bill.getId())) {
-                                int oldId = bill.getId();
-                                bill.setId(nextAvailableId);
-                                Logger.d(TAG, "Fixed duplicate: Changed bill ID from " + oldId + " to " + nextAvailableId + " in " + key);
-                                nextAvailableId++;
-                                hasChanges = true;
-                            }
-                        }
-                        
-                        if (hasChanges) {
-                            // Save the updated bills
-                            String updatedJson = gson.toJson(userBills);
-                            prefs.edit().putString(key, updatedJson).apply();
-                            Logger.d(TAG, "Saved fixed bills for " + key);
-                        }
-                    }
-                }
-            }
-            
-            // Update the global next ID
-            prefs.edit().putInt(KEY_GLOBAL_NEXT_ID, nextAvailableId).apply();
-            Logger.d(TAG, "Updated global next ID to: " + nextAvailableId);
-            
+            return billStore.sumRevenue(0, Integer.MAX_VALUE);
         } catch (Exception e) {
-            Logger.e(TAG, "Error fixing duplicate IDs", e);
+            Logger.e(TAG, "Error getting all-time revenue", e);
+            return new RevenueRollup.Bucket();
+        }
+    }
+    
+    /**
+     * Giờ cao điểm (0-23) theo số đơn gần đây, -1 nếu chưa có dữ liệu
+     */
+    public int getPeakOrderHour() {
+        try {
+            return billStore.getPeakHour(RevenueRollup.hourlyRetentionStart(System.currentTimeMillis()));
+        } catch (Exception e) {
+            Logger.e(TAG, "Error getting peak order hour", e);
+            return -1;
+        }
+    }
+    
+    /**
+     * Kiểm tra và sửa chữa dữ liệu hóa đơn: ID trùng lặp, hóa đơn mồ côi, bản ghi hỏng
+     * Trong BillStore billId là khóa chính nên không thể trùng, chỉ dữ liệu cũ
+     * chưa migrate mới cần kiểm tra (việc migrate đã bao gồm kiểm tra và sửa chữa)
+     */
+    public void validateAndFixDuplicateIds() {
+        synchronized (ID_LOCK) {
+            try {
+                Logger.d(TAG, "Starting bill integrity check...");
+                migrateLegacyBills();
+                Logger.d(TAG, "Bill integrity check completed. Total bills: " + billStore.count(null, null));
+                
+            } catch (Exception e) {
+                Logger.e(TAG, "Error in bill integrity check", e);
+            }
         }
     }
 }
@@ -2,32 +2,79 @@ package com.example.myapplication.manager;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import com.example.myapplication.model.Bill;
+import com.example.myapplication.model.CartChange;
 import com.example.myapplication.model.CartItem;
+import com.example.myapplication.model.FoodCatalogSnapshot;
 import com.example.myapplication.model.FoodItem;
+import com.example.myapplication.model.User;
+import com.example.myapplication.storage.CartRecord;
+import com.example.myapplication.storage.CartWriteBehindStore;
+import com.example.myapplication.storage.IntIntHashMap;
+import com.example.myapplication.storage.WorkingSetCache;
 import com.example.myapplication.utils.Logger;
+import com.example.myapplication.utils.PriceUtils;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Enhanced CartManager với separate cart per user
  * Mỗi user có giỏ hàng riêng biệt
+ * Giỏ hàng là danh sách theo thứ tự thêm + map foodId -> vị trí, tổng số lượng và
+ * tạm tính được cập nhật ở mỗi lần sửa nên các hàm đọc là O(1) và không cấp phát.
+ * Việc lưu là write-behind qua CartWriteBehindStore, gọi flushPendingWrites() khi cần chắc đã ghi.
+ * Chỉ lưu (foodId, số lượng, giá lúc thêm); FoodItem lấy lại từ FoodDataManager khi load,
+ * checkAgainstCatalog() đối chiếu giá và tình trạng món trước khi đặt hàng.
+ * Mỗi lần sửa giỏ phát một CartChange cho các OnCartChangeListener để UI chỉ bind lại dòng bị ảnh hưởng.
+ * An toàn đa luồng: các hàm sửa giữ cartLock và thay cả bản chụp CartState (copy-on-write),
+ * các hàm đọc chỉ đọc bản chụp hiện tại nên không cần khóa. checkout() tạo hóa đơn từ một bản chụp
+ * ngoài khóa rồi bỏ đúng phần đã đặt khỏi giỏ, kèm token để bấm lại không tạo đơn trùng.
  */
 public class CartManager {
     private static final String TAG = "CartManager";
+
+    /**
+     * Nhận thay đổi giỏ hàng, được gọi trên luồng sửa giỏ (thường là luồng UI) sau khi sửa xong
+     */
+    public interface OnCartChangeListener {
+        void onCartChanged(CartChange change);
+    }
     
     // Constants
     private static final String PREFS_NAME = "cart_prefs";
     private static final String KEY_CART_ITEMS_SUFFIX = "_cart_items"; // Will be: {username}_cart_items
+    private static final long SAVE_DEBOUNCE_MILLIS = 1000; // Ghi sau khi ngừng sửa giỏ 1 giây
+    private static final int MAX_CHECKOUT_TOKENS = 32;     // Số lượt đặt hàng gần nhất giữ lại để chặn đặt trùng
+    private static final int MAX_CACHED_CART_LINES = 200;  // Tổng số dòng giỏ của các user vừa dùng máy giữ trong bộ nhớ
 
-    private SharedPreferences prefs;        // SharedPreferences instance
+    private CartWriteBehindStore cartStore; // Lưu giỏ hàng write-behind vào SharedPreferences
     private static CartManager instance;    // Singleton instance
-    private List<CartItem> cartItems;       // Danh sách món trong giỏ hàng
+    private final Object cartLock = new Object(); // Mỗi lần chỉ một luồng sửa giỏ
+    private volatile CartState state = CartState.empty(""); // Bản chụp bất biến, đọc không cần khóa
+    private WorkingSetCache<CartState> recentCarts; // Giỏ của các user vừa đăng xuất/đổi user (máy dùng chung)
     private Gson gson;                      // Gson để serialize/deserialize
     private Context context;                // Context để access UserManager
-    private String currentUserCart = "";    // Track current user's cart
+    private int missingOnLoad;              // Số món đã bị xóa khỏi thực đơn, bỏ khi load giỏ
+    // foodId -> vị trí trong bản chụp thực đơn, dựng lại khi version đổi (giữ cartLock khi truy cập)
+    private long indexedCatalogVersion = -1;
+    private IntIntHashMap catalogPositions;
+    private final List<OnCartChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    // Token đặt hàng đã xử lý -> hóa đơn đã tạo (giữ cartLock khi truy cập)
+    private final LinkedHashMap<String, Bill> completedCheckouts = new LinkedHashMap<String, Bill>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bill> eldest) {
+            return size() > MAX_CHECKOUT_TOKENS;
+        }
+    };
+    private final Set<String> inFlightCheckouts = new HashSet<>(); // Token đang tạo hóa đơn (giữ cartLock khi truy cập)
 
     /**
      * Private constructor để đảm bảo Singleton pattern
@@ -35,10 +82,21 @@ public class CartManager {
      */
     private CartManager(Context context) {
         this.context = context;
-        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         this.gson = new Gson();
-        this.cartItems = new ArrayList<>();
+        this.cartStore = new CartWriteBehindStore(prefs, gson, KEY_CART_ITEMS_SUFFIX, SAVE_DEBOUNCE_MILLIS);
+        // Giỏ bị đẩy khỏi bộ nhớ không cần ghi ngay: cartStore.load() đọc bản đang chờ ghi trước prefs
+        this.recentCarts = new WorkingSetCache<>(MAX_CACHED_CART_LINES, cart -> cart.items.size(), (username, cart) -> { });
+        FoodDataManager.initialize(context); // Giỏ hàng lấy thông tin món từ thực đơn
         loadCartForCurrentUser(); // Load cart cho user hiện tại
+        // Đổi giỏ khi đổi user thay vì kiểm tra lại user ở mỗi lần gọi
+        UserManager.getInstance(context).addOnSessionChangeListener((previous, current) -> {
+            String username = current != null ? current.getUsername() : "";
+            if (!username.equals(state.username)) {
+                loadCartForCurrentUser();
+                publish(CartChange.allItems(state.subtotal));
+            }
+        });
     }
 
     /**
@@ -54,81 +112,124 @@ public class CartManager {
     }
 
     /**
-     * Load cart cho user hiện tại
+     * Load cart cho user hiện tại (gọi khi tạo manager và khi phiên đăng nhập thay đổi)
+     * Giỏ của user trước được giữ trong recentCarts; user vừa dùng máy quay lại thì lấy
+     * từ bộ nhớ thay vì đọc và parse lại prefs.
      */
     public void loadCartForCurrentUser() {
-        try {
-            UserManager userManager = UserManager.getInstance(context);
-            if (!userManager.isLoggedIn()) {
-                Logger.d(TAG, "No user logged in, clearing cart");
-                cartItems.clear();
-                currentUserCart = "";
-                return;
-            }
+        synchronized (cartLock) {
+            try {
+                String username = UserManager.getInstance(context).getCurrentUsername();
+                if (username == null) {
+                    if (!state.username.isEmpty()) {
+                        Logger.d(TAG, "No user logged in, clearing cart");
+                        recentCarts.put(state.username, state);
+                    }
+                    state = CartState.empty("");
+                    return;
+                }
 
-            String username = userManager.getCurrentUser().getUsername();
-            
-            // Nếu user đã thay đổi, load cart mới
-            if (!username.equals(currentUserCart)) {
-                Logger.d(TAG, "User changed from '" + currentUserCart + "' to '" + username + "', loading new cart");
-                currentUserCart = username;
-                loadCartFromPrefs();
+                // Nếu user đã thay đổi, load cart mới
+                if (!username.equals(state.username)) {
+                    Logger.d(TAG, "User changed from '" + state.username + "' to '" + username + "', loading new cart");
+                    if (!state.username.isEmpty()) {
+                        recentCarts.put(state.username, state);
+                    }
+                    CartState cached = recentCarts.take(username);
+                    if (cached != null) {
+                        state = cached;
+                        missingOnLoad = 0;
+                    } else {
+                        loadCartFromPrefs(username);
+                    }
+                }
+
+            } catch (Exception e) {
+                Logger.e(TAG, "Error loading cart for current user", e);
+                state = CartState.empty("");
             }
-            
-        } catch (Exception e) {
-            Logger.e(TAG, "Error loading cart for current user", e);
-            cartItems.clear();
-            currentUserCart = "";
         }
     }
 
     /**
-     * Load danh sách giỏ hàng từ SharedPreferences cho user hiện tại
+     * Load danh sách giỏ hàng từ SharedPreferences cho user (giữ cartLock khi gọi)
      */
-    private void loadCartFromPrefs() {
+    private void loadCartFromPrefs(String username) {
+        List<CartItem> items = new ArrayList<>();
+        missingOnLoad = 0;
         try {
-            if (currentUserCart.isEmpty()) {
-                cartItems.clear();
-                return;
+            List<CartRecord> records = cartStore.load(username);
+            FoodCatalogSnapshot snapshot = FoodDataManager.getCatalogSnapshot();
+            List<FoodItem> catalog = snapshot.getItems();
+            IntIntHashMap catalogIndex = indexCatalog(snapshot);
+            for (CartRecord record : records) {
+                int index = catalogIndex.get(record.getFoodId());
+                if (index == IntIntHashMap.MISSING) {
+                    Logger.w(TAG, "Food item " + record.getFoodId() + " no longer in catalog, dropping from cart");
+                    missingOnLoad++;
+                    continue;
+                }
+                items.add(new CartItem(catalog.get(index), record.getQuantity(), record.getPriceAtAdd()));
             }
+            Logger.d(TAG, "Loaded " + items.size() + " items for user: " + username);
 
-            String cartKey = currentUserCart + KEY_CART_ITEMS_SUFFIX;
-            String json = prefs.getString(cartKey, "");
-            
-            if (!json.isEmpty()) {
-                Type type = new TypeToken<List<CartItem>>(){}.getType();
-                List<CartItem> loadedItems = gson.fromJson(json, type);
-                cartItems = loadedItems != null ? loadedItems : new ArrayList<>();
-                Logger.d(TAG, "Loaded " + cartItems.size() + " items for user: " + currentUserCart);
-            } else {
-                cartItems = new ArrayList<>();
-                Logger.d(TAG, "No saved cart found for user: " + currentUserCart);
-            }
-            
         } catch (Exception e) {
-            Logger.e(TAG, "Error loading cart from prefs for user: " + currentUserCart, e);
-            cartItems = new ArrayList<>();
+            Logger.e(TAG, "Error loading cart from prefs for user: " + username, e);
+            items.clear();
+        }
+        state = CartState.of(username, items);
+        if (missingOnLoad > 0) {
+            saveCartToPrefs(state);
+        }
+    }
+
+    /**
+     * Map foodId -> vị trí trong bản chụp thực đơn, để tra mỗi món trong giỏ một lần
+     * Thực đơn chưa đổi (cùng version) thì dùng lại map đã dựng (giữ cartLock khi gọi).
+     */
+    private IntIntHashMap indexCatalog(FoodCatalogSnapshot snapshot) {
+        if (catalogPositions == null || indexedCatalogVersion != snapshot.getVersion()) {
+            List<FoodItem> catalog = snapshot.getItems();
+            IntIntHashMap index = new IntIntHashMap(catalog.size());
+            for (int i = 0; i < catalog.size(); i++) {
+                index.put(catalog.get(i).getId(), i);
+            }
+            catalogPositions = index;
+            indexedCatalogVersion = snapshot.getVersion();
         }
+        return catalogPositions;
     }
 
     /**
-     * Lưu danh sách giỏ hàng vào SharedPreferences cho user hiện tại
+     * Xếp bản chụp giỏ hàng để ghi nền (serialize không chạy trên luồng gọi)
+     * Gọi khi giữ cartLock để bản chụp cuối cùng được xếp cũng là bản mới nhất.
      */
-    private void saveCartToPrefs() {
+    private void saveCartToPrefs(CartState cart) {
         try {
-            if (currentUserCart.isEmpty()) {
+            if (cart.username.isEmpty()) {
                 Logger.w(TAG, "No current user, cannot save cart");
                 return;
             }
 
-            String cartKey = currentUserCart + KEY_CART_ITEMS_SUFFIX;
-            String json = gson.toJson(cartItems);
-            prefs.edit().putString(cartKey, json).apply();
-            
-            Logger.d(TAG, "Saved " + cartItems.size() + " items for user: " + currentUserCart);
-            
+            List<CartRecord> snapshot = new ArrayList<>(cart.items.size());
+            for (CartItem item : cart.items) {
+                snapshot.add(new CartRecord(item.getFoodItem().getId(), item.getQuantity(), item.getPriceAtAdd()));
+            }
+            cartStore.save(cart.username, snapshot);
+
+        } catch (Exception e) {
+            Logger.e(TAG, "Error saving cart to prefs for user: " + cart.username, e);
+        }
+    }
+
+    /**
+     * Ghi ngay các thay đổi giỏ hàng đang chờ (onPause, đăng xuất, đặt hàng)
+     */
+    public void flushPendingWrites() {
+        try {
+            cartStore.flush();
         } catch (Exception e) {
-            Logger.e(TAG, "Error saving cart to prefs for user: " + currentUserCart, e);
+            Logger.e(TAG, "Error flushing pending cart writes", e);
         }
     }
 
@@ -136,174 +237,286 @@ public class CartManager {
      * Thêm món ăn vào giỏ hàng
      */
     public void addToCart(FoodItem foodItem, int quantity) {
+        CartChange change;
         try {
-            loadCartForCurrentUser(); // Ensure we have current user's cart
-            
-            if (currentUserCart.isEmpty()) {
-                Logger.w(TAG, "No user logged in, cannot add to cart");
-                return;
-            }
+            synchronized (cartLock) {
+                CartState cart = state;
+                if (cart.username.isEmpty()) {
+                    Logger.w(TAG, "No user logged in, cannot add to cart");
+                    return;
+                }
 
-            // Kiểm tra món đã có trong giỏ chưa
-            for (CartItem cartItem : cartItems) {
-                if (cartItem.getFoodItem().getId() == foodItem.getId()) {
+                // Kiểm tra món đã có trong giỏ chưa
+                int index = cart.index.get(foodItem.getId());
+                if (index != IntIntHashMap.MISSING) {
                     // Món đã có - tăng số lượng
-                    cartItem.setQuantity(cartItem.getQuantity() + quantity);
-                    saveCartToPrefs();
-                    Logger.d(TAG, "Updated quantity for item: " + foodItem.getName() + " for user: " + currentUserCart);
-                    return;
+                    int oldQuantity = cart.items.get(index).getQuantity();
+                    state = cart.withQuantity(index, oldQuantity + quantity);
+                    change = new CartChange(foodItem.getId(), oldQuantity, oldQuantity + quantity, state.subtotal);
+                    Logger.d(TAG, "Updated quantity for item: " + foodItem.getName() + " for user: " + cart.username);
+                } else {
+                    // Món chưa có - thêm mới
+                    state = cart.withItem(new CartItem(foodItem, quantity));
+                    change = new CartChange(foodItem.getId(), 0, quantity, state.subtotal);
+                    Logger.d(TAG, "Added new item: " + foodItem.getName() + " for user: " + cart.username);
                 }
+                saveCartToPrefs(state);
             }
-            
-            // Món chưa có - thêm mới
-            cartItems.add(new CartItem(foodItem, quantity));
-            saveCartToPrefs();
-            Logger.d(TAG, "Added new item: " + foodItem.getName() + " for user: " + currentUserCart);
-            
         } catch (Exception e) {
             Logger.e(TAG, "Error adding to cart", e);
+            return;
         }
+        publish(change);
     }
 
     /**
      * Xóa món ăn khỏi giỏ hàng
      */
     public void removeFromCart(int foodItemId) {
+        CartChange change;
         try {
-            loadCartForCurrentUser();
-            
-            if (currentUserCart.isEmpty()) {
-                Logger.w(TAG, "No user logged in, cannot remove from cart");
-                return;
-            }
+            synchronized (cartLock) {
+                CartState cart = state;
+                if (cart.username.isEmpty()) {
+                    Logger.w(TAG, "No user logged in, cannot remove from cart");
+                    return;
+                }
 
-            cartItems.removeIf(cartItem -> cartItem.getFoodItem().getId() == foodItemId);
-            saveCartToPrefs();
-            Logger.d(TAG, "Removed item with ID: " + foodItemId + " for user: " + currentUserCart);
-            
+                int index = cart.index.get(foodItemId);
+                if (index == IntIntHashMap.MISSING) {
+                    return;
+                }
+                state = cart.withoutItem(index);
+                saveCartToPrefs(state);
+                change = new CartChange(foodItemId, cart.items.get(index).getQuantity(), 0, state.subtotal);
+                Logger.d(TAG, "Removed item with ID: " + foodItemId + " for user: " + cart.username);
+            }
         } catch (Exception e) {
             Logger.e(TAG, "Error removing from cart", e);
+            return;
         }
+        publish(change);
     }
 
     /**
      * Cập nhật số lượng món ăn trong giỏ hàng
      */
     public void updateQuantity(int foodItemId, int newQuantity) {
+        if (newQuantity <= 0) {
+            removeFromCart(foodItemId);
+            return;
+        }
+
+        CartChange change;
         try {
-            if (newQuantity <= 0) {
-                removeFromCart(foodItemId);
-                return;
-            }
-            
-            loadCartForCurrentUser();
-            
-            if (currentUserCart.isEmpty()) {
-                Logger.w(TAG, "No user logged in, cannot update quantity");
-                return;
-            }
-            
-            for (CartItem cartItem : cartItems) {
-                if (cartItem.getFoodItem().getId() == foodItemId) {
-                    cartItem.setQuantity(newQuantity);
-                    saveCartToPrefs();
-                    Logger.d(TAG, "Updated quantity to " + newQuantity + " for item ID: " + foodItemId + " for user: " + currentUserCart);
+            synchronized (cartLock) {
+                CartState cart = state;
+                if (cart.username.isEmpty()) {
+                    Logger.w(TAG, "No user logged in, cannot update quantity");
+                    return;
+                }
+
+                int index = cart.index.get(foodItemId);
+                if (index == IntIntHashMap.MISSING || cart.items.get(index).getQuantity() == newQuantity) {
                     return;
                 }
+                int oldQuantity = cart.items.get(index).getQuantity();
+                state = cart.withQuantity(index, newQuantity);
+                saveCartToPrefs(state);
+                change = new CartChange(foodItemId, oldQuantity, newQuantity, state.subtotal);
+                Logger.d(TAG, "Updated quantity to " + newQuantity + " for item ID: " + foodItemId + " for user: " + cart.username);
             }
-            
         } catch (Exception e) {
             Logger.e(TAG, "Error updating quantity", e);
+            return;
         }
+        publish(change);
     }
 
     /**
      * Lấy danh sách tất cả món trong giỏ hàng
+     * Trả về bản sao của từng CartItem: sửa trên danh sách này không ảnh hưởng giỏ hàng
      */
     public List<CartItem> getCartItems() {
         try {
-            loadCartForCurrentUser(); // Always ensure we have current user's cart
-            return new ArrayList<>(cartItems);
+            return copyItems(state);
         } catch (Exception e) {
             Logger.e(TAG, "Error getting cart items", e);
             return new ArrayList<>();
         }
     }
 
+    private static List<CartItem> copyItems(CartState cart) {
+        List<CartItem> items = new ArrayList<>(cart.items.size());
+        for (CartItem item : cart.items) {
+            items.add(new CartItem(item.getFoodItem(), item.getQuantity(), item.getPriceAtAdd()));
+        }
+        return items;
+    }
+
     /**
      * Đếm tổng số lượng tất cả món trong giỏ hàng
      */
     public int getCartItemCount() {
-        try {
-            loadCartForCurrentUser();
-            int count = 0;
-            for (CartItem item : cartItems) {
-                count += item.getQuantity();
-            }
-            Logger.d(TAG, "Cart count: " + count + " for user: " + currentUserCart);
-            return count;
-        } catch (Exception e) {
-            Logger.e(TAG, "Error getting cart item count", e);
-            return 0;
-        }
+        return state.totalQuantity;
     }
 
     /**
      * Tính tổng tiền của tất cả món trong giỏ hàng
      */
     public double getTotalPrice() {
-        try {
-            loadCartForCurrentUser();
-            double total = 0;
-            for (CartItem item : cartItems) {
-                total += item.getTotalPrice();
-            }
-            return total;
-        } catch (Exception e) {
-            Logger.e(TAG, "Error getting total price", e);
-            return 0;
-        }
+        return state.subtotal;
     }
 
     /**
-     * Xóa toàn bộ giỏ hàng (sau khi thanh toán thành công)
+     * Xóa toàn bộ giỏ hàng
+     * Khi đặt hàng dùng checkout() để tạo hóa đơn và xóa giỏ trong cùng một bước.
      */
     public void clearCart() {
         try {
-            loadCartForCurrentUser();
-            
-            if (currentUserCart.isEmpty()) {
-                Logger.w(TAG, "No user logged in, cannot clear cart");
-                return;
-            }
+            synchronized (cartLock) {
+                CartState cart = state;
+                if (cart.username.isEmpty()) {
+                    Logger.w(TAG, "No user logged in, cannot clear cart");
+                    return;
+                }
 
-            cartItems.clear();
-            saveCartToPrefs();
-            Logger.d(TAG, "Cleared cart for user: " + currentUserCart);
-            
+                state = CartState.empty(cart.username);
+                saveCartToPrefs(state);
+                Logger.d(TAG, "Cleared cart for user: " + cart.username);
+            }
         } catch (Exception e) {
             Logger.e(TAG, "Error clearing cart", e);
+            return;
         }
+        publish(CartChange.allItems(0));
     }
 
     /**
-     * Tìm CartItem theo ID món ăn
+     * Token cho một lần đặt hàng; giữ nguyên token khi người dùng bấm lại hoặc thử lại
      */
-    public CartItem getCartItem(int foodItemId) {
+    public static String newCheckoutToken() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Đặt hàng: chụp giỏ, tạo hóa đơn từ bản chụp rồi xóa giỏ.
+     * Chỉ giữ cartLock khi chụp và khi xóa, không giữ trong lúc ghi hóa đơn (có thể phải đợi luồng ghi
+     * của BillManager). Giỏ bị sửa trong lúc đó thì chỉ bỏ số lượng đã đặt, các món vừa thêm vẫn còn.
+     * Gọi lại với token đã đặt thành công trả về hóa đơn cũ (isDuplicate) thay vì tạo đơn mới,
+     * token đang được xử lý thì trả về lỗi.
+     * @param checkoutToken token từ newCheckoutToken()
+     * @param confirmedSubtotal tạm tính người dùng đã xác nhận; giỏ đã đổi thì không đặt
+     * @param deliveryFee phí giao hàng cộng vào tổng tiền hóa đơn
+     */
+    public CheckoutResult checkout(String checkoutToken, double confirmedSubtotal, double deliveryFee, User customer) {
+        CartState cart;
+        try {
+            synchronized (cartLock) {
+                Bill completed = completedCheckouts.get(checkoutToken);
+                if (completed != null) {
+                    Logger.d(TAG, "Checkout " + checkoutToken + " already placed as bill #" + completed.getId());
+                    return new CheckoutResult(true, "Đơn hàng đã được đặt", completed, true);
+                }
+                if (inFlightCheckouts.contains(checkoutToken)) {
+                    return new CheckoutResult(false, "Đơn hàng đang được xử lý, vui lòng đợi", null, false);
+                }
+
+                cart = state;
+                if (cart.username.isEmpty() || customer == null || !cart.username.equals(customer.getUsername())) {
+                    return new CheckoutResult(false, "Vui lòng đăng nhập để đặt hàng", null, false);
+                }
+                if (cart.items.isEmpty()) {
+                    return new CheckoutResult(false, "Giỏ hàng trống", null, false);
+                }
+                if (!PriceUtils.isPriceEqual(cart.subtotal, confirmedSubtotal)) {
+                    return new CheckoutResult(false, "Giỏ hàng đã thay đổi, vui lòng kiểm tra lại", null, false);
+                }
+                inFlightCheckouts.add(checkoutToken);
+            }
+        } catch (Exception e) {
+            Logger.e(TAG, "Error during checkout", e);
+            return new CheckoutResult(false, "Đặt hàng thất bại. Vui lòng thử lại.", null, false);
+        }
+
+        Bill bill = null;
+        try {
+            bill = BillManager.getInstance(context).createBill(customer.getUsername(), copyItems(cart),
+                    cart.subtotal + deliveryFee, customer.getAddress(), customer.getPhone(), customer.getFullName());
+        } catch (Exception e) {
+            Logger.e(TAG, "Error creating bill during checkout", e);
+        }
+
+        CartState remaining = null;
         try {
-            loadCartForCurrentUser();
-            for (CartItem cartItem : cartItems) {
-                if (cartItem.getFoodItem().getId() == foodItemId) {
-                    return cartItem;
+            synchronized (cartLock) {
+                inFlightCheckouts.remove(checkoutToken);
+                if (bill == null) {
+                    return new CheckoutResult(false, "Đặt hàng thất bại. Vui lòng thử lại.", null, false);
                 }
+                completedCheckouts.put(checkoutToken, bill);
+
+                if (state == cart) {
+                    remaining = CartState.empty(cart.username);
+                } else if (state.username.equals(cart.username)) {
+                    // Giỏ bị sửa trong lúc tạo hóa đơn: chỉ bỏ phần đã đặt, giữ các món vừa thêm
+                    remaining = state.minus(cart);
+                    Logger.d(TAG, "Cart changed during checkout " + checkoutToken + ", keeping " + remaining.totalQuantity + " items");
+                }
+                if (remaining != null) {
+                    state = remaining;
+                    saveCartToPrefs(state);
+                }
+                Logger.d(TAG, "Checkout " + checkoutToken + " placed bill #" + bill.getId() + " for user: " + cart.username);
             }
-            return null;
         } catch (Exception e) {
-            Logger.e(TAG, "Error getting cart item", e);
-            return null;
+            // Hóa đơn đã tạo: vẫn báo thành công, chỉ giỏ chưa được xóa
+            Logger.e(TAG, "Error clearing cart after checkout", e);
+        }
+        if (remaining != null) {
+            publish(CartChange.allItems(remaining.subtotal));
+        }
+        return new CheckoutResult(true, "Đặt hàng thành công", bill, false);
+    }
+
+    public void addOnCartChangeListener(OnCartChangeListener listener) {
+        if (!changeListeners.contains(listener)) {
+            changeListeners.add(listener);
         }
     }
 
+    public void removeOnCartChangeListener(OnCartChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    private void publish(CartChange change) {
+        for (OnCartChangeListener listener : changeListeners) {
+            try {
+                listener.onCartChanged(change);
+            } catch (Exception e) {
+                Logger.e(TAG, "Error notifying cart change listener", e);
+            }
+        }
+    }
+
+    /**
+     * Tìm CartItem theo ID món ăn
+     * Trả về đối tượng trong bản chụp giỏ, chỉ dùng để đọc; sửa số lượng qua updateQuantity()
+     */
+    public CartItem getCartItem(int foodItemId) {
+        CartState cart = state;
+        int index = cart.index.get(foodItemId);
+        return index != IntIntHashMap.MISSING ? cart.items.get(index) : null;
+    }
+
+    /**
+     * Số lượng món trong giỏ, 0 nếu chưa có
+     */
+    public int getQuantity(int foodItemId) {
+        CartItem cartItem = getCartItem(foodItemId);
+        return cartItem != null ? cartItem.getQuantity() : 0;
+    }
+
     /**
      * Kiểm tra món ăn có trong giỏ hàng hay không
      */
@@ -315,7 +528,82 @@ public class CartManager {
      * Get current user's cart identifier
      */
     public String getCurrentUserCart() {
-        return currentUserCart;
+        return state.username;
+    }
+
+    /**
+     * Đối chiếu giỏ hàng với thực đơn hiện tại trong một lượt trước khi đặt hàng
+     * Món đã ngừng bán bị bỏ khỏi giỏ, món đổi giá được cập nhật sang giá mới;
+     * nếu có thay đổi thì người dùng cần xem lại giỏ trước khi đặt.
+     */
+    public CatalogCheck checkAgainstCatalog() {
+        CatalogCheck check;
+        CartState checked;
+        try {
+            synchronized (cartLock) {
+                CartState cart = state;
+                FoodCatalogSnapshot snapshot = FoodDataManager.getCatalogSnapshot();
+                List<FoodItem> catalog = snapshot.getItems();
+                IntIntHashMap catalogIndex = indexCatalog(snapshot);
+                List<String> unavailableItems = new ArrayList<>();
+                List<String> repricedItems = new ArrayList<>();
+                List<CartItem> kept = new ArrayList<>(cart.items.size());
+                boolean refreshed = false;
+                for (CartItem item : cart.items) {
+                    int index = catalogIndex.get(item.getFoodItem().getId());
+                    FoodItem current = index != IntIntHashMap.MISSING ? catalog.get(index) : null;
+                    if (current == null || !current.isAvailable()) {
+                        unavailableItems.add(item.getFoodItem().getName());
+                        continue;
+                    }
+                    double price = item.getPriceAtAdd();
+                    if (!PriceUtils.isPriceEqual(price, current.getPrice())) {
+                        repricedItems.add(current.getName() + " (" + PriceUtils.formatPrice(price)
+                                + " → " + PriceUtils.formatPrice(current.getPrice()) + ")");
+                        price = current.getPrice();
+                    }
+                    // Món trong bản chụp không được sửa tại chỗ, đổi FoodItem/giá thì tạo dòng mới
+                    if (current != item.getFoodItem() || price != item.getPriceAtAdd()) {
+                        item = new CartItem(current, item.getQuantity(), price);
+                        refreshed = true;
+                    }
+                    kept.add(item);
+                }
+
+                check = new CatalogCheck(unavailableItems, repricedItems, missingOnLoad);
+                missingOnLoad = 0;
+                if (!unavailableItems.isEmpty() || refreshed) {
+                    state = CartState.of(cart.username, kept);
+                }
+                if (!unavailableItems.isEmpty() || !repricedItems.isEmpty()) {
+                    saveCartToPrefs(state);
+                    Logger.d(TAG, "Cart changed against catalog for user: " + cart.username);
+                }
+                checked = state;
+            }
+        } catch (Exception e) {
+            Logger.e(TAG, "Error checking cart against catalog", e);
+            return new CatalogCheck(new ArrayList<>(), new ArrayList<>(), 0);
+        }
+        if (!check.getUnavailableItems().isEmpty() || !check.getRepricedItems().isEmpty()) {
+            publish(CartChange.allItems(checked.subtotal));
+        }
+        return check;
+    }
+
+    /** @return số lần đổi user lấy được giỏ từ bộ nhớ */
+    public int getCachedCartHitCount() {
+        return recentCarts.getHitCount();
+    }
+
+    /** @return số lần đổi user phải đọc giỏ từ prefs */
+    public int getCachedCartMissCount() {
+        return recentCarts.getMissCount();
+    }
+
+    /** @return số giỏ bị đẩy khỏi bộ nhớ vì vượt MAX_CACHED_CART_LINES */
+    public int getCachedCartEvictionCount() {
+        return recentCarts.getEvictionCount();
     }
 
     /**
@@ -331,18 +619,22 @@ public class CartManager {
      */
     public void debugCartStatus() {
         try {
+            CartState cart = state;
             Logger.d(TAG, "=== CART DEBUG ===");
-            Logger.d(TAG, "Current user cart: " + currentUserCart);
-            Logger.d(TAG, "Cart items count: " + cartItems.size());
-            Logger.d(TAG, "Total items: " + getCartItemCount());
-            Logger.d(TAG, "Total price: " + getTotalPrice());
-            
-            for (int i = 0; i < cartItems.size(); i++) {
-                CartItem item = cartItems.get(i);
+            Logger.d(TAG, "Current user cart: " + cart.username);
+            Logger.d(TAG, "Cart items count: " + cart.items.size());
+            Logger.d(TAG, "Total items: " + cart.totalQuantity);
+            Logger.d(TAG, "Total price: " + cart.subtotal);
+            Logger.d(TAG, "Cached carts: " + recentCarts.size() + " (" + recentCarts.getWeight() + " lines), hits "
+                    + recentCarts.getHitCount() + ", misses " + recentCarts.getMissCount()
+                    + ", evictions " + recentCarts.getEvictionCount());
+
+            for (int i = 0; i < cart.items.size(); i++) {
+                CartItem item = cart.items.get(i);
                 Logger.d(TAG, "Item " + i + ": " + item.getFoodItem().getName() + " x" + item.getQuantity());
             }
             Logger.d(TAG, "==================");
-            
+
         } catch (Exception e) {
             Logger.e(TAG, "Error in cart debug", e);
         }
@@ -353,19 +645,179 @@ public class CartManager {
      */
     public String getCartSummary() {
         try {
-            loadCartForCurrentUser();
-            int itemCount = getCartItemCount();
-            double totalPrice = getTotalPrice();
-            
+            CartState cart = state;
+            int itemCount = cart.totalQuantity;
+            double totalPrice = cart.subtotal;
+
             if (itemCount == 0) {
                 return "Giỏ hàng trống";
             }
-            
+
             return String.format("Giỏ hàng: %d món - %.0f₫", itemCount, totalPrice);
-            
+
         } catch (Exception e) {
             Logger.e(TAG, "Error getting cart summary", e);
             return "Lỗi giỏ hàng";
         }
     }
+
+    /**
+     * Bản chụp bất biến của giỏ hàng: danh sách theo thứ tự thêm, map foodId -> vị trí và các tổng.
+     * Mỗi lần sửa tạo bản chụp mới (copy-on-write); CartItem trong bản chụp không bao giờ bị sửa tại chỗ.
+     */
+    private static final class CartState {
+        final String username;
+        final List<CartItem> items;
+        final IntIntHashMap index;
+        final int totalQuantity;
+        final double subtotal;
+
+        private CartState(String username, List<CartItem> items, IntIntHashMap index, int totalQuantity, double subtotal) {
+            this.username = username;
+            this.items = Collections.unmodifiableList(items);
+            this.index = index;
+            this.totalQuantity = totalQuantity;
+            this.subtotal = subtotal;
+        }
+
+        static CartState empty(String username) {
+            return new CartState(username, new ArrayList<>(), new IntIntHashMap(), 0, 0);
+        }
+
+        /**
+         * Dựng bản chụp từ danh sách món; món trùng foodId trong dữ liệu cũ được gộp vào dòng đầu tiên
+         */
+        static CartState of(String username, List<CartItem> source) {
+            IntIntHashMap index = new IntIntHashMap(source.size());
+            List<CartItem> items = new ArrayList<>(source.size());
+            int totalQuantity = 0;
+            double subtotal = 0;
+            for (CartItem item : source) {
+                if (item == null || item.getFoodItem() == null) {
+                    continue;
+                }
+                int position = index.get(item.getFoodItem().getId());
+                if (position != IntIntHashMap.MISSING) {
+                    CartItem first = items.get(position);
+                    items.set(position, new CartItem(first.getFoodItem(), first.getQuantity() + item.getQuantity(),
+                            first.getPriceAtAdd()));
+                    totalQuantity += item.getQuantity();
+                    subtotal += first.getPriceAtAdd() * item.getQuantity();
+                } else {
+                    index.put(item.getFoodItem().getId(), items.size());
+                    items.add(item);
+                    totalQuantity += item.getQuantity();
+                    subtotal += item.getTotalPrice();
+                }
+            }
+            return new CartState(username, items, index, totalQuantity, subtotal);
+        }
+
+        /**
+         * Đổi số lượng một dòng; vị trí không đổi nên dùng lại map
+         */
+        CartState withQuantity(int position, int newQuantity) {
+            CartItem item = items.get(position);
+            int delta = newQuantity - item.getQuantity();
+            List<CartItem> next = new ArrayList<>(items);
+            next.set(position, new CartItem(item.getFoodItem(), newQuantity, item.getPriceAtAdd()));
+            return new CartState(username, next, index, totalQuantity + delta, subtotal + item.getPriceAtAdd() * delta);
+        }
+
+        CartState withItem(CartItem item) {
+            List<CartItem> next = new ArrayList<>(items.size() + 1);
+            next.addAll(items);
+            next.add(item);
+            return of(username, next);
+        }
+
+        /**
+         * Bỏ một dòng, các dòng phía sau lùi một vị trí nên dựng lại map và tổng
+         */
+        CartState withoutItem(int position) {
+            List<CartItem> next = new ArrayList<>(items);
+            next.remove(position);
+            return of(username, next);
+        }
+
+        /**
+         * Bỏ số lượng của từng món trong bản chụp ordered (đã đặt), món còn lại hoặc thêm sau vẫn giữ
+         */
+        CartState minus(CartState ordered) {
+            List<CartItem> next = new ArrayList<>(items.size());
+            for (CartItem item : items) {
+                int position = ordered.index.get(item.getFoodItem().getId());
+                int quantity = item.getQuantity()
+                        - (position != IntIntHashMap.MISSING ? ordered.items.get(position).getQuantity() : 0);
+                if (quantity > 0) {
+                    next.add(new CartItem(item.getFoodItem(), quantity, item.getPriceAtAdd()));
+                }
+            }
+            return of(username, next);
+        }
+    }
+
+    /**
+     * Kết quả đặt hàng
+     */
+    public static class CheckoutResult {
+        private final boolean success;
+        private final String message;
+        private final Bill bill;
+        private final boolean duplicate;
+
+        public CheckoutResult(boolean success, String message, Bill bill, boolean duplicate) {
+            this.success = success;
+            this.message = message;
+            this.bill = bill;
+            this.duplicate = duplicate;
+        }
+
+        public boolean isSuccess() { return success; }
+        public String getMessage() { return message; }
+        public Bill getBill() { return bill; }
+        /** @return true nếu token đã được đặt trước đó, không tạo hóa đơn mới */
+        public boolean isDuplicate() { return duplicate; }
+    }
+
+    /**
+     * Kết quả đối chiếu giỏ hàng với thực đơn
+     */
+    public static class CatalogCheck {
+        private final List<String> unavailableItems;
+        private final List<String> repricedItems;
+        private final int missingItems;
+
+        public CatalogCheck(List<String> unavailableItems, List<String> repricedItems, int missingItems) {
+            this.unavailableItems = unavailableItems;
+            this.repricedItems = repricedItems;
+            this.missingItems = missingItems;
+        }
+
+        public List<String> getUnavailableItems() { return unavailableItems; }
+        public List<String> getRepricedItems() { return repricedItems; }
+        public int getMissingItems() { return missingItems; }
+
+        public boolean hasChanges() {
+            return !unavailableItems.isEmpty() || !repricedItems.isEmpty() || missingItems > 0;
+        }
+
+        /**
+         * Thông báo cho người dùng, mỗi loại thay đổi một dòng
+         */
+        public String getMessage() {
+            StringBuilder message = new StringBuilder();
+            if (!unavailableItems.isEmpty()) {
+                message.append("Món đã ngừng bán, đã bỏ khỏi giỏ: ")
+                       .append(String.join(", ", unavailableItems)).append("\n");
+            }
+            if (missingItems > 0) {
+                message.append(missingItems).append(" món không còn trong thực đơn đã bị bỏ khỏi giỏ\n");
+            }
+            if (!repricedItems.isEmpty()) {
+                message.append("Giá đã thay đổi: ").append(String.join(", ", repricedItems)).append("\n");
+            }
+            return message.toString().trim();
+        }
+    }
 }
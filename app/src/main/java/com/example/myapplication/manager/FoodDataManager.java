@@ -4,98 +4,159 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import com.example.myapplication.R;
+import com.example.myapplication.model.FoodCatalogSnapshot;
 import com.example.myapplication.model.FoodItem;
-import java.lang.reflect.Type;
+import com.example.myapplication.storage.FoodCatalogIndex;
+import com.example.myapplication.storage.FoodCatalogStore;
+import com.example.myapplication.storage.FoodPriceIndex;
+import com.example.myapplication.storage.FoodSearchIndex;
+import com.example.myapplication.storage.FoodSlotTable;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Manager để quản lý dữ liệu món ăn với persistent storage
- * Sử dụng SharedPreferences với JSON để lưu trữ
+ * Lưu trữ bằng FoodCatalogStore: mỗi món một record JSON trong SharedPreferences kèm change log,
+ * sửa một món chỉ ghi record của món đó (danh sách JSON cũ được chuyển sang khi load)
+ * Tra theo id dùng FoodSlotTable; tìm kiếm dùng FoodSearchIndex (bỏ dấu, tìm theo tiền tố), danh mục
+ * và món còn bán dùng FoodCatalogIndex, hai chỉ mục này đánh trên slot của FoodSlotTable;
+ * sắp xếp và lọc theo giá dùng FoodPriceIndex.
+ * Thực đơn được công bố dưới dạng FoodCatalogSnapshot bất biến: đọc danh sách không cần khóa.
+ * Các chỉ mục trên không thread-safe, nên mọi lần sửa và mọi lần đọc chỉ mục đều giữ khóa của lớp;
+ * lần sửa dựng bản chụp mới rồi cập nhật chỉ mục.
  */
 public class FoodDataManager {
     private static final String PREF_NAME = "food_data";
-    private static final String KEY_FOOD_ITEMS = "food_items";
+    private static final String CHANGE_LOG_FILE = "food_changes.log";
     private static final String KEY_LAST_ID = "last_id";
     private static final String TAG = "FoodDataManager";
     
-    private static List<FoodItem> foodItems;
+    private static final AtomicReference<FoodCatalogSnapshot> catalog = new AtomicReference<>();
     private static SharedPreferences sharedPreferences;
+    private static FoodCatalogStore store;
     private static Gson gson = new Gson();
+    private static final FoodSlotTable slots = new FoodSlotTable();
+    private static final FoodSearchIndex searchIndex = new FoodSearchIndex(slots);
+    private static final FoodCatalogIndex catalogIndex = new FoodCatalogIndex(slots);
+    private static final FoodPriceIndex priceIndex = new FoodPriceIndex();
 
     /**
      * Khởi tạo manager với context
      */
-    public static void initialize(Context context) {
+    public static synchronized void initialize(Context context) {
         if (sharedPreferences == null) {
             sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+            store = new FoodCatalogStore(sharedPreferences, new File(context.getFilesDir(), CHANGE_LOG_FILE), gson);
             loadFoodItems();
         }
     }
 
     /**
      * Lấy danh sách tất cả món ăn
+     * Danh sách chỉ đọc, dùng chung giữa các lần gọi (không chép); sửa món qua các hàm của manager.
      */
     public static List<FoodItem> getAllFoodItems() {
-        if (foodItems == null) {
+        return getCatalogSnapshot().getItems();
+    }
+
+    /**
+     * Lấy bản chụp thực đơn hiện tại (danh sách + version) để đọc nhất quán hoặc làm khóa cache
+     */
+    public static FoodCatalogSnapshot getCatalogSnapshot() {
+        FoodCatalogSnapshot snapshot = catalog.get();
+        return snapshot != null ? snapshot : ensureLoaded();
+    }
+
+    /**
+     * @return version của thực đơn, tăng lên mỗi lần thêm/sửa/xóa món
+     */
+    public static long getCatalogVersion() {
+        return getCatalogSnapshot().getVersion();
+    }
+
+    /**
+     * Load thực đơn nếu chưa có
+     */
+    private static synchronized FoodCatalogSnapshot ensureLoaded() {
+        FoodCatalogSnapshot snapshot = catalog.get();
+        if (snapshot == null) {
             loadFoodItems();
+            snapshot = catalog.get();
         }
-        return new ArrayList<>(foodItems);
+        return snapshot;
     }
 
     /**
-     * Load dữ liệu món ăn từ SharedPreferences
+     * Load dữ liệu món ăn từ các record (kèm replay change log)
      * Nếu chưa có dữ liệu, khởi tạo data mặc định
      */
-    private static void loadFoodItems() {
+    private static synchronized void loadFoodItems() {
         try {
-            if (sharedPreferences == null) {
-                foodItems = new ArrayList<>();
+            if (store == null) {
+                publish(new ArrayList<>());
                 return;
             }
 
-            String jsonString = sharedPreferences.getString(KEY_FOOD_ITEMS, null);
-            if (jsonString != null) {
-                Type listType = new TypeToken<List<FoodItem>>(){}.getType();
-                foodItems = gson.fromJson(jsonString, listType);
-                if (foodItems == null) {
-                    foodItems = new ArrayList<>();
-                }
+            List<FoodItem> items = store.load();
+            if (items != null) {
+                publish(items);
             } else {
                 // Nếu chưa có dữ liệu, khởi tạo data mặc định
-                initializeDefaultFoodItems();
-                saveFoodItems();
+                publish(createDefaultFoodItems());
+                store.replaceAll(catalog.get().getItems());
             }
         } catch (Exception e) {
             Log.e(TAG, "Error loading food items: " + e.getMessage(), e);
-            initializeDefaultFoodItems();
+            publish(createDefaultFoodItems());
         }
     }
 
     /**
-     * Lưu danh sách món ăn vào SharedPreferences
+     * Công bố cả thực đơn mới (load/reset) và dựng lại chỉ mục
      */
-    private static void saveFoodItems() {
-        try {
-            if (sharedPreferences != null && foodItems != null) {
-                String jsonString = gson.toJson(foodItems);
-                sharedPreferences.edit()
-                    .putString(KEY_FOOD_ITEMS, jsonString)
-                    .apply();
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error saving food items: " + e.getMessage(), e);
+    private static void publish(List<FoodItem> items) {
+        FoodCatalogSnapshot previous = catalog.get();
+        FoodCatalogSnapshot next = new FoodCatalogSnapshot(previous != null ? previous.getVersion() + 1 : 1, items);
+        slots.rebuild(next.getItems());
+        priceIndex.rebuild(next.getItems());
+        catalog.set(next);
+    }
+
+    /**
+     * Công bố bản chụp mới sau khi thêm/sửa/xóa một món (gọi trong khóa của lớp)
+     */
+    private static void swap(FoodCatalogSnapshot current, List<FoodItem> items) {
+        catalog.set(new FoodCatalogSnapshot(current.getVersion() + 1, items));
+    }
+
+    /**
+     * Lưu record của một món (thêm/sửa), gọi trước khi công bố bản chụp mới
+     * để ghi lỗi thì thực đơn trong bộ nhớ vẫn khớp với dữ liệu đã lưu
+     */
+    private static void saveFoodItem(FoodItem item) throws IOException {
+        if (store != null) {
+            store.put(item);
+        }
+    }
+
+    /**
+     * Xóa record của một món, gọi trước khi công bố bản chụp mới
+     */
+    private static void deleteFoodRecord(int id) throws IOException {
+        if (store != null) {
+            store.delete(id);
         }
     }
 
     /**
      * Khởi tạo dữ liệu món ăn mặc định
      */
-    private static void initializeDefaultFoodItems() {
-        foodItems = new ArrayList<>();
+    private static List<FoodItem> createDefaultFoodItems() {
+        List<FoodItem> foodItems = new ArrayList<>();
         
         foodItems.add(new FoodItem(1, "Ramen Tonkotsu", 
             "Mì ramen truyền thống với nước dùng xương heo đậm đà, thịt xá xíu và trứng lòng đào", 
@@ -124,24 +185,28 @@ public class FoodDataManager {
         foodItems.add(new FoodItem(7, "Mandu Gyoza", 
             "Bánh xếp Nhật chiên giòn với nhân thịt heo và rau củ", 
             45000, R.drawable.mandu, "Appetizer", true, null));
+        return foodItems;
     }
 
     /**
      * Thêm món ăn mới
      */
-    public static boolean addFoodItem(String name, String description, double price, 
+    public static synchronized boolean addFoodItem(String name, String description, double price, 
                                     String category, boolean available, String imageUrl) {
         try {
-            if (foodItems == null) {
-                loadFoodItems();
-            }
+            FoodCatalogSnapshot current = getCatalogSnapshot();
 
-            int newId = getNextId();
+            int newId = getNextId(current);
             FoodItem newItem = new FoodItem(newId, name, description, price, 
                                           R.drawable.ramen, category, available, imageUrl);
             
-            foodItems.add(newItem);
-            saveFoodItems();
+            saveFoodItem(newItem);
+            List<FoodItem> items = new ArrayList<>(current.size() + 1);
+            items.addAll(current.getItems());
+            items.add(newItem);
+            swap(current, items);
+            slots.put(newItem);
+            priceIndex.add(newItem);
             
             // Cập nhật last ID
             sharedPreferences.edit().putInt(KEY_LAST_ID, newId).apply();
@@ -157,32 +222,23 @@ public class FoodDataManager {
     /**
      * Cập nhật món ăn
      */
-    public static boolean updateFoodItem(int id, String name, String description, double price, 
+    public static synchronized boolean updateFoodItem(int id, String name, String description, double price, 
                                        String category, boolean available, String imageUrl) {
         try {
-            if (foodItems == null) {
-                loadFoodItems();
+            FoodCatalogSnapshot current = getCatalogSnapshot();
+            FoodItem old = slots.getById(id);
+            if (old == null) {
+                Log.w(TAG, "Food item not found for update: " + id);
+                return false;
             }
 
-            for (FoodItem item : foodItems) {
-                if (item.getId() == id) {
-                    item.setName(name);
-                    item.setDescription(description);
-                    item.setPrice(price);
-                    item.setCategory(category);
-                    item.setAvailable(available);
-                    if (imageUrl != null) {
-                        item.setImageUrl(imageUrl);
-                    }
-                    
-                    saveFoodItems();
-                    Log.d(TAG, "Updated food item: " + name);
-                    return true;
-                }
-            }
-            
-            Log.w(TAG, "Food item not found for update: " + id);
-            return false;
+            // Thay bằng bản sao mới, món trong bản chụp cũ giữ nguyên cho ai đang đọc
+            FoodItem item = new FoodItem(id, name, description, price, old.getImageResource(),
+                    category, available, imageUrl != null ? imageUrl : old.getImageUrl());
+            saveFoodItem(item);
+            replace(current, old, item);
+            Log.d(TAG, "Updated food item: " + name);
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "Error updating food item: " + e.getMessage(), e);
             return false;
@@ -192,25 +248,23 @@ public class FoodDataManager {
     /**
      * Xóa món ăn
      */
-    public static boolean deleteFoodItem(int id) {
+    public static synchronized boolean deleteFoodItem(int id) {
         try {
-            if (foodItems == null) {
-                loadFoodItems();
+            FoodCatalogSnapshot current = getCatalogSnapshot();
+            FoodItem old = slots.getById(id);
+            if (old == null) {
+                Log.w(TAG, "Food item not found for deletion: " + id);
+                return false;
             }
 
-            Iterator<FoodItem> iterator = foodItems.iterator();
-            while (iterator.hasNext()) {
-                FoodItem item = iterator.next();
-                if (item.getId() == id) {
-                    iterator.remove();
-                    saveFoodItems();
-                    Log.d(TAG, "Deleted food item: " + id);
-                    return true;
-                }
-            }
-            
-            Log.w(TAG, "Food item not found for deletion: " + id);
-            return false;
+            deleteFoodRecord(id);
+            List<FoodItem> items = new ArrayList<>(current.getItems());
+            items.remove(old);
+            swap(current, items);
+            slots.remove(id);
+            priceIndex.remove(id);
+            Log.d(TAG, "Deleted food item: " + id);
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "Error deleting food item: " + e.getMessage(), e);
             return false;
@@ -220,86 +274,122 @@ public class FoodDataManager {
     /**
      * Toggle trạng thái available của món ăn
      */
-    public static boolean toggleFoodAvailability(int id) {
+    public static synchronized boolean toggleFoodAvailability(int id) {
         try {
-            if (foodItems == null) {
-                loadFoodItems();
+            FoodCatalogSnapshot current = getCatalogSnapshot();
+            FoodItem old = slots.getById(id);
+            if (old == null) {
+                Log.w(TAG, "Food item not found for toggle: " + id);
+                return false;
             }
 
-            for (FoodItem item : foodItems) {
-                if (item.getId() == id) {
-                    item.setAvailable(!item.isAvailable());
-                    saveFoodItems();
-                    Log.d(TAG, "Toggled availability for: " + item.getName() + " to " + item.isAvailable());
-                    return true;
-                }
-            }
-            
-            Log.w(TAG, "Food item not found for toggle: " + id);
-            return false;
+            FoodItem item = new FoodItem(id, old.getName(), old.getDescription(), old.getPrice(),
+                    old.getImageResource(), old.getCategory(), !old.isAvailable(), old.getImageUrl());
+            saveFoodItem(item);
+            replace(current, old, item);
+            Log.d(TAG, "Toggled availability for: " + item.getName() + " to " + item.isAvailable());
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "Error toggling food availability: " + e.getMessage(), e);
             return false;
         }
     }
 
+    /**
+     * Đổi một món bằng bản sao mới: công bố bản chụp mới rồi cập nhật chỉ mục
+     * Món cũ lấy từ FoodSlotTable là đúng đối tượng trong bản chụp, nên chỉ cần một lần indexOf.
+     */
+    private static void replace(FoodCatalogSnapshot current, FoodItem old, FoodItem item) {
+        List<FoodItem> items = new ArrayList<>(current.getItems());
+        items.set(items.indexOf(old), item);
+        swap(current, items);
+        slots.put(item);
+        priceIndex.update(item);
+    }
+
     /**
      * Tìm món ăn theo ID
      */
-    public static FoodItem getFoodItemById(int id) {
-        if (foodItems == null) {
-            loadFoodItems();
-        }
-        
-        for (FoodItem item : foodItems) {
-            if (item.getId() == id) {
-                return item;
-            }
-        }
-        return null;
+    public static synchronized FoodItem getFoodItemById(int id) {
+        ensureLoaded();
+        return slots.getById(id);
+    }
+
+    /**
+     * Tìm món theo tên, mô tả, danh mục; không phân biệt dấu ("com ga" ra "Cơm Gà")
+     * Mỗi từ được so như tiền tố nên dùng được khi đang gõ. Câu tìm rỗng trả về mọi món.
+     */
+    public static synchronized List<FoodItem> searchFoodItems(String query) {
+        ensureLoaded();
+        return searchIndex.search(query);
     }
 
     /**
      * Lấy danh sách món ăn theo danh mục
      */
-    public static List<FoodItem> getFoodItemsByCategory(String category) {
-        List<FoodItem> allItems = getAllFoodItems();
-        List<FoodItem> filteredItems = new ArrayList<>();
-        
-        for (FoodItem item : allItems) {
-            if (item.getCategory().equals(category)) {
-                filteredItems.add(item);
-            }
-        }
-        return filteredItems;
+    public static synchronized List<FoodItem> getFoodItemsByCategory(String category) {
+        ensureLoaded();
+        return catalogIndex.getByCategory(category);
     }
 
     /**
      * Lấy danh sách món ăn available (cho customer)
      */
-    public static List<FoodItem> getAvailableFoodItems() {
-        List<FoodItem> allItems = getAllFoodItems();
-        List<FoodItem> availableItems = new ArrayList<>();
-        
-        for (FoodItem item : allItems) {
-            if (item.isAvailable()) {
-                availableItems.add(item);
-            }
-        }
-        return availableItems;
+    public static synchronized List<FoodItem> getAvailableFoodItems() {
+        ensureLoaded();
+        return catalogIndex.getAvailable();
+    }
+
+    /**
+     * Lấy món còn bán trong một danh mục (lọc theo chip danh mục ở màn hình menu)
+     */
+    public static synchronized List<FoodItem> getAvailableFoodItemsByCategory(String category) {
+        ensureLoaded();
+        return catalogIndex.getAvailableByCategory(category);
+    }
+
+    /**
+     * Lấy danh sách món sắp theo giá (chỉ chép kết quả, không sắp lại)
+     */
+    public static synchronized List<FoodItem> getFoodItemsSortedByPrice(boolean ascending) {
+        ensureLoaded();
+        return priceIndex.getSorted(ascending);
+    }
+
+    /**
+     * Lấy món có giá trong khoảng [minPrice, maxPrice], theo giá tăng dần
+     */
+    public static synchronized List<FoodItem> getFoodItemsInPriceRange(double minPrice, double maxPrice) {
+        ensureLoaded();
+        return priceIndex.getInRange(minPrice, maxPrice);
+    }
+
+    /**
+     * @return món rẻ nhất, null nếu thực đơn trống
+     */
+    public static synchronized FoodItem getCheapestFoodItem() {
+        ensureLoaded();
+        return priceIndex.getCheapest();
+    }
+
+    /**
+     * @return món đắt nhất, null nếu thực đơn trống
+     */
+    public static synchronized FoodItem getMostExpensiveFoodItem() {
+        ensureLoaded();
+        return priceIndex.getMostExpensive();
     }
 
     /**
      * Lấy danh sách tất cả danh mục
+     * "All" rồi đến các danh mục đang có món, theo thứ tự xuất hiện trong thực đơn
      */
-    public static List<String> getAllCategories() {
+    public static synchronized List<String> getAllCategories() {
         try {
+            ensureLoaded();
             List<String> categories = new ArrayList<>();
             categories.add("All");
-            categories.add("Noodles");
-            categories.add("Sushi");
-            categories.add("Rice");
-            categories.add("Appetizer");
+            categories.addAll(catalogIndex.getCategories());
             return categories;
         } catch (Exception e) {
             Log.e(TAG, "Error in getAllCategories: " + e.getMessage(), e);
@@ -312,7 +402,7 @@ public class FoodDataManager {
     /**
      * Lấy ID tiếp theo cho món ăn mới
      */
-    private static int getNextId() {
+    private static int getNextId(FoodCatalogSnapshot current) {
         if (sharedPreferences == null) {
             return 1;
         }
@@ -320,11 +410,9 @@ public class FoodDataManager {
         int lastId = sharedPreferences.getInt(KEY_LAST_ID, 0);
         
         // Kiểm tra xem có ID nào bị trùng không
-        if (foodItems != null) {
-            for (FoodItem item : foodItems) {
-                if (item.getId() > lastId) {
-                    lastId = item.getId();
-                }
+        for (FoodItem item : current.getItems()) {
+            if (item.getId() > lastId) {
+                lastId = item.getId();
             }
         }
         
@@ -334,14 +422,14 @@ public class FoodDataManager {
     /**
      * Reset dữ liệu về mặc định (cho debug)
      */
-    public static void resetToDefault(Context context) {
+    public static synchronized void resetToDefault(Context context) {
         if (sharedPreferences == null) {
             initialize(context);
         }
         
         sharedPreferences.edit().clear().apply();
-        initializeDefaultFoodItems();
-        saveFoodItems();
+        publish(createDefaultFoodItems());
+        store.replaceAll(catalog.get().getItems());
         Log.d(TAG, "Reset food data to default");
     }
 }
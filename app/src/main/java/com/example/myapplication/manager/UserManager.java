@@ -3,15 +3,29 @@ package com.example.myapplication.manager;
 import android.content.Context;
 import android.content.SharedPreferences;
 import com.example.myapplication.model.User;
+import com.example.myapplication.model.UserSession;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Enhanced UserManager với support cho Sign Up/Login với email và password
+ * Phiên đăng nhập được đọc từ prefs một lần và giữ dạng UserSession bất biến; đăng nhập,
+ * đăng xuất và updateUserInfo đọc lại phiên rồi báo cho các OnSessionChangeListener.
  */
 public class UserManager {
+
+    /**
+     * Nhận thông báo khi phiên đăng nhập thay đổi (gọi trên luồng thực hiện thay đổi)
+     * @param previous phiên trước, null nếu chưa đăng nhập
+     * @param current phiên mới, null nếu đã đăng xuất
+     */
+    public interface OnSessionChangeListener {
+        void onSessionChanged(UserSession previous, UserSession current);
+    }
+
     private static final String PREFS_NAME = "user_prefs";
     private static final String KEY_IS_LOGGED_IN = "is_logged_in";
     private static final String KEY_CURRENT_USERNAME = "current_username";
@@ -34,6 +48,9 @@ public class UserManager {
     private static UserManager instance;
     private SharedPreferences prefs;
     private Context context;
+    private UserSession session;            // Phiên hiện tại, null nếu chưa đăng nhập
+    private boolean sessionLoaded;          // Đã đọc phiên từ prefs chưa
+    private final List<OnSessionChangeListener> sessionListeners = new CopyOnWriteArrayList<>();
 
     private UserManager(Context context) {
         this.context = context;
@@ -151,19 +168,71 @@ public class UserManager {
      * Kiểm tra trạng thái đăng nhập
      */
     public boolean isLoggedIn() {
-        return prefs.getBoolean(KEY_IS_LOGGED_IN, false);
+        return getSession() != null;
+    }
+
+    /**
+     * Phiên đăng nhập hiện tại (đã cache), null nếu chưa đăng nhập
+     */
+    public synchronized UserSession getSession() {
+        if (!sessionLoaded) {
+            session = readSession();
+            sessionLoaded = true;
+        }
+        return session;
+    }
+
+    /**
+     * @return username đang đăng nhập, null nếu chưa đăng nhập
+     */
+    public String getCurrentUsername() {
+        UserSession current = getSession();
+        return current != null ? current.getUsername() : null;
     }
 
     /**
      * Lấy thông tin user hiện tại
+     * Trả về bản sao từ phiên đã cache; sửa user này không được lưu, dùng updateUserInfo()
      */
     public User getCurrentUser() {
-        if (!isLoggedIn()) {
+        UserSession current = getSession();
+        return current != null ? current.toUser() : null;
+    }
+
+    public void addOnSessionChangeListener(OnSessionChangeListener listener) {
+        if (!sessionListeners.contains(listener)) {
+            sessionListeners.add(listener);
+        }
+    }
+
+    public void removeOnSessionChangeListener(OnSessionChangeListener listener) {
+        sessionListeners.remove(listener);
+    }
+
+    private UserSession readSession() {
+        if (!prefs.getBoolean(KEY_IS_LOGGED_IN, false)) {
             return null;
         }
-        
-        String currentUsername = prefs.getString(KEY_CURRENT_USERNAME, "");
-        return loadUserByUsername(currentUsername);
+        User user = loadUserByUsername(prefs.getString(KEY_CURRENT_USERNAME, ""));
+        return user != null ? new UserSession(user) : null;
+    }
+
+    /**
+     * Bỏ phiên đã cache sau khi prefs thay đổi, đọc lại và báo cho listener
+     */
+    private void invalidateSession(UserSession previous) {
+        UserSession current;
+        synchronized (this) {
+            sessionLoaded = false;
+            current = getSession();
+        }
+        for (OnSessionChangeListener listener : sessionListeners) {
+            try {
+                listener.onSessionChanged(previous, current);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     /**
@@ -189,17 +258,24 @@ public class UserManager {
         currentUser.setAddress(address);
         currentUser.setPhone(phone);
 
-        return saveUser(currentUser);
+        UserSession previous = getSession();
+        boolean saved = saveUser(currentUser);
+        if (saved) {
+            invalidateSession(previous);
+        }
+        return saved;
     }
 
     /**
      * Đăng xuất
      */
     public void logout() {
+        UserSession previous = getSession();
         prefs.edit()
              .putBoolean(KEY_IS_LOGGED_IN, false)
              .putString(KEY_CURRENT_USERNAME, "")
              .apply();
+        invalidateSession(previous);
     }
 
     /**
@@ -343,10 +419,12 @@ public class UserManager {
      * Set user hiện tại
      */
     private void setCurrentUser(String username) {
+        UserSession previous = getSession();
         prefs.edit()
              .putBoolean(KEY_IS_LOGGED_IN, true)
              .putString(KEY_CURRENT_USERNAME, username)
              .apply();
+        invalidateSession(previous);
     }
     
     /**
@@ -370,8 +448,8 @@ public class UserManager {
      * Kiểm tra user hiện tại có phải Owner không
      */
     public boolean isCurrentUserOwner() {
-        User currentUser = getCurrentUser();
-        return currentUser != null && ROLE_OWNER.equals(currentUser.getRole());
+        UserSession current = getSession();
+        return current != null && ROLE_OWNER.equals(current.getRole());
     }
 
     /**
@@ -172,27 +172,11 @@ public class Bill {
     }
     
     /**
-     * Kiểm tra và cập nhật trạng thái tự động
-     * Nếu đơn hàng đã quá 45 phút thì chuyển thành DELIVERED
+     * Thời điểm đơn đang giao được tự động chuyển thành DELIVERED (BillManager xử lý),
+     * Long.MAX_VALUE nếu không có ngày đặt
      */
-    public void checkAndUpdateStatus() {
-        if (status.equals(STATUS_DELIVERING)) {
-            long currentTime = System.currentTimeMillis();
-            long orderTime = orderDate.getTime();
-            
-            if (currentTime - orderTime >= AUTO_DELIVERY_TIME) {
-                status = STATUS_DELIVERED;
-                lastUpdated = new Date();
-            }
-        }
-    }
-    
-    /**
-     * Lấy trạng thái hiện tại (sau khi check auto-update)
-     */
-    public String getCurrentStatus() {
-        checkAndUpdateStatus();
-        return status;
+    public long getAutoDeliveryDeadline() {
+        return orderDate != null ? orderDate.getTime() + AUTO_DELIVERY_TIME : Long.MAX_VALUE;
     }
     
     /**
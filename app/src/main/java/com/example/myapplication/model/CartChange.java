@@ -0,0 +1,40 @@
+package com.example.myapplication.model;
+
+/**
+ * Model class mô tả một thay đổi của giỏ hàng (delta cho từng món)
+ * foodId = ALL_ITEMS nghĩa là cả giỏ đã thay đổi (xóa hết, đối chiếu lại thực đơn).
+ */
+public class CartChange {
+    public static final int ALL_ITEMS = -1;
+
+    private final int foodId;         // ID món thay đổi, ALL_ITEMS nếu cả giỏ
+    private final int oldQuantity;    // Số lượng trước khi đổi (0 nếu mới thêm)
+    private final int newQuantity;    // Số lượng sau khi đổi (0 nếu đã xóa)
+    private final double newSubtotal; // Tạm tính của cả giỏ sau khi đổi
+
+    public CartChange(int foodId, int oldQuantity, int newQuantity, double newSubtotal) {
+        this.foodId = foodId;
+        this.oldQuantity = oldQuantity;
+        this.newQuantity = newQuantity;
+        this.newSubtotal = newSubtotal;
+    }
+
+    /**
+     * Thay đổi toàn bộ giỏ hàng
+     */
+    public static CartChange allItems(double newSubtotal) {
+        return new CartChange(ALL_ITEMS, 0, 0, newSubtotal);
+    }
+
+    /** @return ID món thay đổi */
+    public int getFoodId() { return foodId; }
+    /** @return Số lượng trước khi đổi */
+    public int getOldQuantity() { return oldQuantity; }
+    /** @return Số lượng sau khi đổi */
+    public int getNewQuantity() { return newQuantity; }
+    /** @return Tạm tính của cả giỏ sau khi đổi */
+    public double getNewSubtotal() { return newSubtotal; }
+
+    /** @return true nếu cả giỏ đã thay đổi, cần bind lại toàn bộ */
+    public boolean isAllItems() { return foodId == ALL_ITEMS; }
+}
@@ -9,15 +9,24 @@ import java.io.Serializable;
 public class CartItem implements Serializable {
     private FoodItem foodItem;  // Thông tin món ăn
     private int quantity;       // Số lượng món ăn trong giỏ hàng
+    private double priceAtAdd;  // Đơn giá lúc thêm vào giỏ (được đối chiếu lại trước khi đặt hàng)
 
     /**
-     * Constructor khởi tạo CartItem
+     * Constructor khởi tạo CartItem, đơn giá lấy theo giá hiện tại của món
      * @param foodItem Thông tin món ăn
      * @param quantity Số lượng món ăn
      */
     public CartItem(FoodItem foodItem, int quantity) {
+        this(foodItem, quantity, foodItem.getPrice());
+    }
+
+    /**
+     * @param priceAtAdd Đơn giá lúc thêm vào giỏ
+     */
+    public CartItem(FoodItem foodItem, int quantity, double priceAtAdd) {
         this.foodItem = foodItem;
         this.quantity = quantity;
+        this.priceAtAdd = priceAtAdd;
     }
 
     /** @return Thông tin món ăn */
@@ -30,11 +39,16 @@ public class CartItem implements Serializable {
     /** @param quantity Số lượng mới */
     public void setQuantity(int quantity) { this.quantity = quantity; }
 
+    /** @return Đơn giá lúc thêm vào giỏ */
+    public double getPriceAtAdd() { return priceAtAdd; }
+    /** @param priceAtAdd Đơn giá mới */
+    public void setPriceAtAdd(double priceAtAdd) { this.priceAtAdd = priceAtAdd; }
+
     /**
      * Tính tổng tiền cho món ăn này trong giỏ hàng
-     * @return Tổng tiền = giá món ăn * số lượng
+     * @return Tổng tiền = đơn giá lúc thêm * số lượng
      */
     public double getTotalPrice() {
-        return foodItem.getPrice() * quantity;
+        return priceAtAdd * quantity;
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.example.myapplication.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bản chụp thực đơn (bất biến) kèm số phiên bản, được FoodDataManager công bố qua AtomicReference
+ * Mọi nơi đọc dùng chung một danh sách chỉ đọc, không phải chép; thêm/sửa/xóa món tạo bản chụp mới
+ * với version tăng lên, nên cache dựng từ thực đơn chỉ cần so version để biết còn dùng được không.
+ * FoodItem trong bản chụp không được sửa tại chỗ: sửa món thì thay bằng bản sao mới.
+ */
+public final class FoodCatalogSnapshot {
+    private final long version;
+    private final List<FoodItem> items;
+
+    /**
+     * @param items danh sách mới dựng cho bản chụp này; sau khi truyền vào không được sửa nữa
+     */
+    public FoodCatalogSnapshot(long version, List<FoodItem> items) {
+        this.version = version;
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    public long getVersion() { return version; }
+
+    /** @return danh sách chỉ đọc theo thứ tự thực đơn */
+    public List<FoodItem> getItems() { return items; }
+
+    public int size() { return items.size(); }
+}
@@ -0,0 +1,47 @@
+package com.example.myapplication.model;
+
+/**
+ * Phiên đăng nhập hiện tại (bất biến), được UserManager đọc từ prefs một lần và giữ lại
+ * Đăng nhập, đăng xuất, cập nhật thông tin tạo phiên mới thay vì sửa phiên cũ.
+ */
+public final class UserSession {
+    private final String username;
+    private final String email;
+    private final String passwordHash;
+    private final String fullName;
+    private final String address;
+    private final String phone;
+    private final long createdDate;
+    private final boolean verified;
+    private final String role;
+
+    public UserSession(User user) {
+        this.username = user.getUsername();
+        this.email = user.getEmail();
+        this.passwordHash = user.getPasswordHash();
+        this.fullName = user.getFullName();
+        this.address = user.getAddress();
+        this.phone = user.getPhone();
+        this.createdDate = user.getCreatedDate();
+        this.verified = user.isVerified();
+        this.role = user.getRole();
+    }
+
+    public String getUsername() { return username; }
+    public String getEmail() { return email; }
+    public String getFullName() { return fullName; }
+    public String getAddress() { return address; }
+    public String getPhone() { return phone; }
+    public long getCreatedDate() { return createdDate; }
+    public boolean isVerified() { return verified; }
+    public String getRole() { return role; }
+
+    /**
+     * @return User mới mang thông tin của phiên (sửa User này không ảnh hưởng phiên)
+     */
+    public User toUser() {
+        User user = new User(username, email, passwordHash, fullName, address, phone, createdDate, verified);
+        user.setRole(role);
+        return user;
+    }
+}
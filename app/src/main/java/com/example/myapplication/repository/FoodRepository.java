@@ -55,15 +55,7 @@ public class FoodRepository implements FoodContract.FoodRepository {
                 return loadFoodItems();
             }
             
-            List<FoodItem> allItems = loadFoodItems();
-            List<FoodItem> results = new java.util.ArrayList<>();
-            String query = searchQuery.toLowerCase().trim();
-            
-            for (FoodItem item : allItems) {
-                if (matchesSearchQuery(item, query)) {
-                    results.add(item);
-                }
-            }
+            List<FoodItem> results = FoodDataManager.searchFoodItems(searchQuery);
             
             Logger.i("FoodRepository", "Found " + results.size() + " items matching query: " + searchQuery);
             return results;
@@ -79,15 +71,7 @@ public class FoodRepository implements FoodContract.FoodRepository {
         try {
             Logger.d("FoodRepository", "Getting food items sorted by price (ascending: " + ascending + ")");
             
-            List<FoodItem> items = new java.util.ArrayList<>(loadFoodItems());
-            
-            java.util.Collections.sort(items, new java.util.Comparator<FoodItem>() {
-                @Override
-                public int compare(FoodItem item1, FoodItem item2) {
-                    int result = Double.compare(item1.getPrice(), item2.getPrice());
-                    return ascending ? result : -result;
-                }
-            });
+            List<FoodItem> items = FoodDataManager.getFoodItemsSortedByPrice(ascending);
             
             Logger.i("FoodRepository", "Sorted " + items.size() + " items by price");
             return items;
@@ -170,20 +154,13 @@ public class FoodRepository implements FoodContract.FoodRepository {
      * Get food items in price range
      * @param minPrice Minimum price
      * @param maxPrice Maximum price
-     * @return List of food items in range
+     * @return List of food items in range, cheapest first
      */
     public List<FoodItem> findByPriceRange(double minPrice, double maxPrice) {
         try {
             Logger.d("FoodRepository", "Finding food items in price range: " + minPrice + " - " + maxPrice);
             
-            List<FoodItem> allItems = loadFoodItems();
-            List<FoodItem> filteredItems = new java.util.ArrayList<>();
-            
-            for (FoodItem item : allItems) {
-                if (item.getPrice() >= minPrice && item.getPrice() <= maxPrice) {
-                    filteredItems.add(item);
-                }
-            }
+            List<FoodItem> filteredItems = FoodDataManager.getFoodItemsInPriceRange(minPrice, maxPrice);
             
             Logger.i("FoodRepository", "Found " + filteredItems.size() + " items in price range");
             return filteredItems;
@@ -194,18 +171,6 @@ public class FoodRepository implements FoodContract.FoodRepository {
         }
     }
     
-    /**
-     * Check if search query matches food item
-     * @param item Food item to check
-     * @param query Search query (lowercase)
-     * @return True if matches
-     */
-    private boolean matchesSearchQuery(FoodItem item, String query) {
-        return item.getName().toLowerCase().contains(query) ||
-               item.getDescription().toLowerCase().contains(query) ||
-               item.getCategory().toLowerCase().contains(query);
-    }
-    
     /**
      * Get repository statistics
      * @return Statistics string
@@ -0,0 +1,139 @@
+package com.example.myapplication.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Kho lưu trữ hóa đơn cũ: file segment nén GZIP, phân vùng theo tháng của orderDate
+ * Mỗi lần lưu trữ ghi file mới cho từng tháng (tên yyyyMM-{runId}) và không sửa file cũ,
+ * nên nếu bị dừng giữa chừng chỉ còn lại file chưa được tham chiếu. Bản ghi gồm billId,
+ * username và payload của BillCodec; bản ghi còn hiệu lực hay không do bảng
+ * archived_bills quyết định.
+ */
+public class BillArchive {
+
+    private static final String SEGMENT_PREFIX = "bills-";
+    private static final String SEGMENT_SUFFIX = ".seg.gz";
+
+    /**
+     * Một bản ghi trong segment
+     */
+    public static class Entry {
+        public final int billId;
+        public final String username;
+        public final byte[] payload;
+
+        public Entry(int billId, String username, byte[] payload) {
+            this.billId = billId;
+            this.username = username;
+            this.payload = payload;
+        }
+    }
+
+    public interface Visitor {
+        void accept(Entry entry);
+    }
+
+    private final File directory;
+
+    public BillArchive(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Tên segment cho hóa đơn đặt lúc time trong lần lưu trữ runId, dạng yyyyMM-runId
+     */
+    public static String segmentOf(long time, long runId) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        return String.format(Locale.US, "%04d%02d-%d",
+                calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, runId);
+    }
+
+    /**
+     * Ghi segment mới (fsync trước khi trả về)
+     */
+    public synchronized void write(String segment, List<Entry> entries) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create archive directory " + directory);
+        }
+        try (FileOutputStream file = new FileOutputStream(segmentFile(segment))) {
+            GZIPOutputStream gzip = new GZIPOutputStream(file);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip));
+            for (Entry entry : entries) {
+                out.writeInt(entry.billId);
+                out.writeUTF(entry.username);
+                out.writeInt(entry.payload.length);
+                out.write(entry.payload);
+            }
+            out.flush();
+            gzip.finish();
+            file.getFD().sync();
+            out.close();
+        }
+    }
+
+    /**
+     * Đọc tuần tự toàn bộ segment
+     */
+    public synchronized void read(String segment, Visitor visitor) throws IOException {
+        File file = segmentFile(segment);
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+            while (true) {
+                int billId;
+                try {
+                    billId = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                String username = in.readUTF();
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                visitor.accept(new Entry(billId, username, payload));
+            }
+        }
+    }
+
+    public synchronized boolean delete(String segment) {
+        File file = segmentFile(segment);
+        return !file.exists() || file.delete();
+    }
+
+    /**
+     * Tên các segment đang có trên đĩa
+     */
+    public synchronized Set<String> listSegments() {
+        Set<String> segments = new HashSet<>();
+        String[] names = directory.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                }
+            }
+        }
+        return segments;
+    }
+
+    private File segmentFile(String segment) {
+        return new File(directory, SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+    }
+}
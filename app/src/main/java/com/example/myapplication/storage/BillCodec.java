@@ -0,0 +1,320 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.Bill;
+import com.example.myapplication.model.CartItem;
+import com.example.myapplication.model.FoodItem;
+import com.google.gson.Gson;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Mã hóa nhị phân gọn cho Bill (payload trong BillStore)
+ * Định dạng v1: byte phiên bản, số nguyên dạng varint, ngày là epoch millis
+ * (lastUpdated lưu độ lệch so với orderDate), trạng thái theo bảng cố định,
+ * tên món qua StringDictionary. Danh sách items cũ (CartItem kèm cả FoodItem) không
+ * được lưu, chỉ chuyển thành billItems khi hóa đơn chưa có billItems.
+ * decode() vẫn đọc được payload JSON (Gson) cũ.
+ */
+public class BillCodec {
+
+    public static final int VERSION = 1;
+
+    /**
+     * Bảng chuỗi dùng chung giữa các hóa đơn, ID phải ổn định sau khi đã ghi
+     */
+    public interface StringDictionary {
+        /**
+         * @return ID (>= 1) của chuỗi, thêm mới nếu chưa có
+         */
+        int idOf(String value);
+
+        /**
+         * @return chuỗi của ID, null nếu không có
+         */
+        String valueOf(int id);
+    }
+
+    // Thứ tự là một phần của định dạng, chỉ được thêm vào cuối
+    private static final String[] STATUSES = {
+            Bill.STATUS_PENDING, Bill.STATUS_CONFIRMED, Bill.STATUS_PREPARING, Bill.STATUS_READY,
+            Bill.STATUS_DELIVERING, Bill.STATUS_DELIVERED, Bill.STATUS_CANCELLED
+    };
+
+    private static final int FLAG_ORDER_DATE = 1;
+    private static final int FLAG_LAST_UPDATED = 1 << 1;
+
+    private final Gson gson;
+    private final StringDictionary dictionary;
+
+    public BillCodec(Gson gson, StringDictionary dictionary) {
+        this.gson = gson;
+        this.dictionary = dictionary;
+    }
+
+    public byte[] encode(Bill bill) {
+        Output out = new Output(128);
+        out.writeByte(VERSION);
+        out.writeVarLong(bill.getId());
+        out.writeString(bill.getUsername());
+
+        Date orderDate = bill.getOrderDate();
+        Date lastUpdated = bill.getLastUpdated();
+        int flags = (orderDate != null ? FLAG_ORDER_DATE : 0) | (lastUpdated != null ? FLAG_LAST_UPDATED : 0);
+        out.writeByte(flags);
+        long base = orderDate != null ? orderDate.getTime() : 0;
+        if (orderDate != null) {
+            out.writeVarLong(orderDate.getTime());
+        }
+        if (lastUpdated != null) {
+            out.writeVarLong(zigZag(lastUpdated.getTime() - base));
+        }
+
+        int statusCode = statusCode(bill.getStatus());
+        out.writeVarLong(statusCode);
+        if (statusCode == 0) {
+            out.writeString(bill.getStatus());
+        }
+
+        out.writeAmount(bill.getTotalAmount());
+        out.writeString(bill.getDeliveryAddress());
+        out.writeString(bill.getPhone());
+        out.writeString(bill.getFullName());
+        out.writeString(bill.getNotes());
+
+        List<Bill.BillItem> items = billItemsOf(bill);
+        out.writeVarLong(items.size());
+        for (Bill.BillItem item : items) {
+            out.writeVarLong(item.getFoodId());
+            out.writeVarLong(item.getFoodName() != null ? dictionary.idOf(item.getFoodName()) : 0);
+            out.writeAmount(item.getPrice());
+            out.writeVarLong(item.getQuantity());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Đọc payload nhị phân hoặc JSON cũ
+     * @throws IllegalArgumentException nếu payload hỏng hoặc phiên bản không hỗ trợ
+     */
+    public Bill decode(byte[] payload) {
+        if (payload.length == 0) {
+            throw new IllegalArgumentException("Empty bill payload");
+        }
+        if (isJson(payload)) {
+            return gson.fromJson(new String(payload, StandardCharsets.UTF_8), Bill.class);
+        }
+        if (payload[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported bill payload version " + payload[0]);
+        }
+
+        try {
+            Input in = new Input(payload, 1);
+            int billId = (int) in.readVarLong();
+            String username = in.readString();
+
+            int flags = in.readByte();
+            Date orderDate = null;
+            Date lastUpdated = null;
+            long base = 0;
+            if ((flags & FLAG_ORDER_DATE) != 0) {
+                base = in.readVarLong();
+                orderDate = new Date(base);
+            }
+            if ((flags & FLAG_LAST_UPDATED) != 0) {
+                lastUpdated = new Date(base + unZigZag(in.readVarLong()));
+            }
+
+            int statusCode = (int) in.readVarLong();
+            String status = statusCode == 0 ? in.readString() : STATUSES[statusCode - 1];
+
+            double totalAmount = in.readAmount();
+            String deliveryAddress = in.readString();
+            String phone = in.readString();
+            String fullName = in.readString();
+            String notes = in.readString();
+
+            Bill bill = new Bill(billId, username, null, totalAmount, deliveryAddress, phone, fullName,
+                    orderDate, status);
+            bill.setLastUpdated(lastUpdated);
+            bill.setNotes(notes);
+
+            int itemCount = (int) in.readVarLong();
+            List<Bill.BillItem> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                int foodId = (int) in.readVarLong();
+                int nameId = (int) in.readVarLong();
+                double price = in.readAmount();
+                int quantity = (int) in.readVarLong();
+                items.add(new Bill.BillItem(foodId, nameId != 0 ? dictionary.valueOf(nameId) : null,
+                        price, quantity));
+            }
+            bill.setBillItems(items);
+            return bill;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated bill payload", e);
+        }
+    }
+
+    public static boolean isJson(byte[] payload) {
+        for (byte b : payload) {
+            if (b == '{') {
+                return true;
+            }
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * billItems nếu có, ngược lại chuyển từ items cũ (giống thứ tự ưu tiên khi hiển thị)
+     */
+    private static List<Bill.BillItem> billItemsOf(Bill bill) {
+        if (bill.getBillItems() != null && !bill.getBillItems().isEmpty()) {
+            return bill.getBillItems();
+        }
+        List<Bill.BillItem> converted = new ArrayList<>();
+        if (bill.getItems() != null) {
+            for (CartItem cartItem : bill.getItems()) {
+                FoodItem food = cartItem != null ? cartItem.getFoodItem() : null;
+                if (food != null) {
+                    converted.add(new Bill.BillItem(food.getId(), food.getName(), food.getPrice(),
+                            cartItem.getQuantity()));
+                }
+            }
+        }
+        return converted;
+    }
+
+    private static int statusCode(String status) {
+        int index = Arrays.asList(STATUSES).indexOf(status);
+        return index + 1;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Output {
+        private byte[] buffer;
+        private int size;
+
+        Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        /**
+         * Số tiền VNĐ hầu như là số nguyên: varint(giá trị << 1), còn lại là 1 + 8 byte double
+         */
+        void writeAmount(double value) {
+            if (value >= 0 && value < (1L << 52) && value == Math.rint(value)) {
+                writeVarLong((long) value << 1);
+            } else {
+                writeVarLong(1);
+                long bits = Double.doubleToRawLongBits(value);
+                ensure(8);
+                for (int i = 0; i < 8; i++) {
+                    buffer[size++] = (byte) (bits >>> (8 * i));
+                }
+            }
+        }
+
+        /**
+         * varint(độ dài + 1) rồi UTF-8, 0 nghĩa là null
+         */
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static final class Input {
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int readByte() {
+            return buffer[position++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        double readAmount() {
+            long tag = readVarLong();
+            if (tag != 1) {
+                return tag >>> 1;
+            }
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits |= (long) (buffer[position++] & 0xFF) << (8 * i);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        String readString() {
+            int length = (int) readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (position + length > buffer.length) {
+                throw new ArrayIndexOutOfBoundsException(position + length);
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.myapplication.storage;
+
+/**
+ * Cấp phát ID hóa đơn theo kiểu hi/lo (giữ chỗ theo block)
+ * Chỉ lưu một high-water mark: ID đầu tiên chưa được giữ chỗ.
+ * Mỗi lần hết block, allocator ghi high-water mark mới (đồng bộ) rồi mới
+ * phát ID trong block đó từ bộ nhớ. Nếu app bị kill giữa chừng, phần còn lại
+ * của block bị bỏ qua (có khoảng trống) nhưng không bao giờ bị cấp trùng.
+ */
+public class BillIdAllocator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 20;
+
+    /**
+     * Nơi lưu high-water mark, write() phải bền vững trước khi trả về
+     */
+    public interface HighWaterMarkStore {
+        int read();
+        void write(int highWaterMark);
+    }
+
+    private final HighWaterMarkStore store;
+    private final int blockSize;
+    private int next;   // ID tiếp theo trong block hiện tại
+    private int limit;  // Giới hạn (không bao gồm) của block hiện tại
+
+    public BillIdAllocator(HighWaterMarkStore store) {
+        this(store, DEFAULT_BLOCK_SIZE);
+    }
+
+    public BillIdAllocator(HighWaterMarkStore store, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        this.store = store;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Lấy ID tiếp theo, chỉ chạm vào store khi cần giữ chỗ block mới
+     */
+    public synchronized int nextId() {
+        if (next >= limit) {
+            reserveBlock();
+        }
+        return next++;
+    }
+
+    private void reserveBlock() {
+        int start = Math.max(store.read(), limit);
+        if (start < 1) {
+            start = 1;
+        }
+        int end = start + blockSize;
+        store.write(end);
+        next = start;
+        limit = end;
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.Bill;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+/**
+ * Kiểm tra tính toàn vẹn dữ liệu hóa đơn trong thời gian tuyến tính
+ * Lượt 1 (check) stream từng key {username}_bills một lần, ghi nhận:
+ * - ID trùng lặp (giữa các user hoặc trong cùng user)
+ * - Hóa đơn mồ côi: field username khác với user sở hữu key lưu trữ
+ * - Bản ghi hỏng: phần tử không phải object, ID <= 0, thiếu status/orderDate
+ * Lượt 2 (repair) chỉ chạy trên các user bị ảnh hưởng.
+ */
+public class BillIntegrityChecker {
+
+    private static final int FIELDS = BillStreamAggregator.FIELD_ID
+            | BillStreamAggregator.FIELD_USERNAME
+            | BillStreamAggregator.FIELD_STATUS
+            | BillStreamAggregator.FIELD_DATE;
+
+    /**
+     * Kết quả kiểm tra, dùng lại cho lượt sửa chữa
+     */
+    public static class Report {
+        private final List<String> usernames = new ArrayList<>();
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final IntIntHashMap firstOwnerById = new IntIntHashMap(1024);
+        private final IntIntHashMap duplicateIds = new IntIntHashMap();
+        private final Set<String> affectedUsernames = new LinkedHashSet<>();
+        private final Set<String> unreadableUsernames = new LinkedHashSet<>();
+        private int scanned;
+        private int duplicates;
+        private int orphaned;
+        private int malformed;
+
+        public int getScannedCount() { return scanned; }
+        public int getDuplicateCount() { return duplicates; }
+        public int getOrphanedCount() { return orphaned; }
+        public int getMalformedCount() { return malformed; }
+
+        public int[] getDuplicateIds() {
+            return duplicateIds.keys();
+        }
+
+        /**
+         * Các user cần ghi lại ở lượt sửa chữa
+         */
+        public Set<String> getAffectedUsernames() {
+            return affectedUsernames;
+        }
+
+        /**
+         * Các user có JSON không đọc được đến cuối (sửa chữa sẽ bỏ các phần tử hỏng)
+         */
+        public Set<String> getUnreadableUsernames() {
+            return unreadableUsernames;
+        }
+
+        public boolean isClean() {
+            return affectedUsernames.isEmpty();
+        }
+
+        boolean isDuplicate(int billId) {
+            return duplicateIds.containsKey(billId);
+        }
+
+        /**
+         * User giữ lại ID trùng (nơi ID xuất hiện lần đầu)
+         */
+        String getKeeper(int billId) {
+            int ordinal = firstOwnerById.get(billId);
+            return ordinal != IntIntHashMap.MISSING ? usernames.get(ordinal) : null;
+        }
+
+        private int addUser(String username) {
+            Integer ordinal = ordinals.get(username);
+            if (ordinal == null) {
+                ordinal = usernames.size();
+                usernames.add(username);
+                ordinals.put(username, ordinal);
+            }
+            return ordinal;
+        }
+
+        @Override
+        public String toString() {
+            return "scanned=" + scanned
+                    + ", duplicates=" + duplicates + " (ids=" + duplicateIds.size() + ")"
+                    + ", orphaned=" + orphaned
+                    + ", malformed=" + malformed
+                    + ", affectedUsers=" + affectedUsernames;
+        }
+    }
+
+    private final Gson gson;
+    private final BillStreamAggregator aggregator;
+    private final BillStreamAggregator.Record record = new BillStreamAggregator.Record();
+
+    public BillIntegrityChecker(Gson gson, BillStreamAggregator aggregator) {
+        this.gson = gson;
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * Lượt 1: kiểm tra hóa đơn của một user
+     * @param snapshotJson JSON array lưu trong key {username}_bills
+     * @param journalBills hóa đơn trong journal (ghi đè snapshot theo ID)
+     */
+    public synchronized void check(String username, String snapshotJson, List<Bill> journalBills, Report report) {
+        int ordinal = report.addUser(username);
+
+        Set<Integer> journalIds = new HashSet<>();
+        for (Bill bill : journalBills) {
+            journalIds.add(bill.getId());
+        }
+
+        try {
+            scanSnapshot(username, ordinal, snapshotJson, journalIds, report);
+        } catch (IOException | RuntimeException e) {
+            // Không đọc tiếp được phần còn lại của JSON
+            report.malformed++;
+            report.unreadableUsernames.add(username);
+            report.affectedUsernames.add(username);
+        }
+
+        for (Bill bill : journalBills) {
+            record.from(bill);
+            inspect(username, ordinal, report);
+        }
+    }
+
+    /**
+     * Đọc snapshot theo từng phần tử, bỏ các phần tử không đọc được thành Bill
+     */
+    public List<Bill> parseLenient(String snapshotJson) {
+        List<Bill> bills = new ArrayList<>();
+        if (snapshotJson == null || snapshotJson.isEmpty()) {
+            return bills;
+        }
+
+        JsonElement root = JsonParser.parseString(snapshotJson);
+        if (!root.isJsonArray()) {
+            return bills;
+        }
+        JsonArray array = root.getAsJsonArray();
+        for (JsonElement element : array) {
+            if (!element.isJsonObject()) {
+                continue;
+            }
+            try {
+                Bill bill = gson.fromJson(element, Bill.class);
+                if (bill != null) {
+                    bills.add(bill);
+                }
+            } catch (RuntimeException e) {
+                // Bỏ bản ghi hỏng
+            }
+        }
+        return bills;
+    }
+
+    /**
+     * Lượt 2: sửa danh sách hóa đơn của một user bị ảnh hưởng (sửa trực tiếp trên list)
+     * ID trùng được giữ ở lần xuất hiện đầu tiên, các bản còn lại nhận ID mới.
+     * @param newIds nguồn cấp ID mới
+     * @return số hóa đơn bị thay đổi
+     */
+    public int repair(String username, List<Bill> bills, Report report, IntSupplier newIds) {
+        int changed = 0;
+        Set<Integer> keptIds = new HashSet<>();
+
+        for (Bill bill : bills) {
+            boolean billChanged = false;
+
+            if (!username.equals(bill.getUsername())) {
+                bill.setUsername(username);
+                billChanged = true;
+            }
+            if (bill.getStatus() == null) {
+                bill.setStatus(Bill.STATUS_PENDING);
+                billChanged = true;
+            }
+            if (bill.getOrderDate() == null) {
+                bill.setOrderDate(bill.getLastUpdated() != null ? bill.getLastUpdated() : new Date());
+                billChanged = true;
+            }
+
+            int billId = bill.getId();
+            boolean reassign = billId <= 0;
+            if (!reassign && report.isDuplicate(billId)) {
+                reassign = !username.equals(report.getKeeper(billId)) || !keptIds.add(billId);
+            }
+            if (reassign) {
+                bill.setId(newIds.getAsInt());
+                billChanged = true;
+            }
+
+            if (billChanged) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private void scanSnapshot(String username, int ordinal, String json, Set<Integer> journalIds,
+                              Report report) throws IOException {
+        if (json == null || json.isEmpty()) {
+            return;
+        }
+
+        JsonReader reader = new JsonReader(new StringReader(json));
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            throw new IOException("Bills of " + username + " are not a JSON array");
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                report.scanned++;
+                report.malformed++;
+                report.affectedUsernames.add(username);
+                continue;
+            }
+            aggregator.readRecord(reader, FIELDS, record);
+            if (journalIds.contains(record.billId)) {
+                continue;
+            }
+            inspect(username, ordinal, report);
+        }
+        reader.endArray();
+    }
+
+    private void inspect(String username, int ordinal, Report report) {
+        report.scanned++;
+
+        if (record.billId <= 0 || record.status == null || record.orderDate == 0) {
+            report.malformed++;
+            report.affectedUsernames.add(username);
+        }
+        if (!username.equals(record.username)) {
+            report.orphaned++;
+            report.affectedUsernames.add(username);
+        }
+        if (record.billId <= 0) {
+            return;
+        }
+
+        int firstOwner = report.firstOwnerById.putIfAbsent(record.billId, ordinal);
+        if (firstOwner != IntIntHashMap.MISSING) {
+            report.duplicates++;
+            report.duplicateIds.putIfAbsent(record.billId, firstOwner);
+            // User giữ ID gốc không cần ghi lại
+            report.affectedUsernames.add(username);
+        }
+    }
+}
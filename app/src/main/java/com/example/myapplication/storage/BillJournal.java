@@ -0,0 +1,196 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.Bill;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Append-only journal cho hóa đơn, mỗi user một file {username}.log
+ * Mỗi dòng là một Entry JSON, ghi thêm vào cuối file nên chi phí mỗi đơn
+ * không phụ thuộc vào số đơn đã có. Khi replay, các entry được áp dụng
+ * lần lượt lên danh sách gốc (snapshot đã compact trong SharedPreferences).
+ */
+public class BillJournal {
+
+    public static final String OP_PUT = "put";
+
+    private static final String FILE_SUFFIX = ".log";
+
+    /**
+     * Một bản ghi trong journal
+     */
+    public static class Entry {
+        private String op;
+        private Bill bill;
+
+        public Entry(String op, Bill bill) {
+            this.op = op;
+            this.bill = bill;
+        }
+
+        public String getOp() { return op; }
+        public Bill getBill() { return bill; }
+    }
+
+    private final File directory;
+    private final Gson gson;
+    private final Map<String, Integer> entryCounts = new HashMap<>();
+
+    public BillJournal(File directory, Gson gson) {
+        this.directory = directory;
+        this.gson = gson;
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+    }
+
+    /**
+     * Ghi thêm một hóa đơn vào cuối journal của user
+     * @return số entry hiện có trong journal của user
+     */
+    public synchronized int append(String username, Bill bill) throws IOException {
+        String line = gson.toJson(new Entry(OP_PUT, bill)) + "\n";
+        try (FileOutputStream out = new FileOutputStream(fileFor(username), true)) {
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        int count = size(username) + 1;
+        entryCounts.put(username, count);
+        return count;
+    }
+
+    /**
+     * Đọc toàn bộ entry hợp lệ của user theo thứ tự ghi
+     * Dòng cuối bị ghi dở (crash giữa chừng) sẽ bị bỏ qua
+     */
+    public synchronized List<Entry> read(String username) {
+        List<Entry> entries = new ArrayList<>();
+        File file = fileFor(username);
+        if (!file.exists()) {
+            return entries;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    Entry entry = gson.fromJson(line, Entry.class);
+                    if (entry != null && entry.getBill() != null) {
+                        entries.add(entry);
+                    }
+                } catch (JsonParseException e) {
+                    // Bản ghi hỏng (ghi dở), bỏ qua
+                }
+            }
+        } catch (IOException e) {
+            return entries;
+        }
+
+        entryCounts.put(username, entries.size());
+        return entries;
+    }
+
+    /**
+     * Replay journal của user lên danh sách gốc
+     * Entry sau ghi đè hóa đơn cùng ID đã có
+     */
+    public List<Bill> replayInto(List<Bill> base, String username) {
+        List<Bill> bills = base != null ? base : new ArrayList<>();
+        for (Entry entry : read(username)) {
+            if (OP_PUT.equals(entry.getOp())) {
+                putBill(bills, entry.getBill());
+            }
+        }
+        return bills;
+    }
+
+    /**
+     * Số entry chưa compact của user
+     */
+    public synchronized int size(String username) {
+        Integer cached = entryCounts.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        return read(username).size();
+    }
+
+    /**
+     * Xóa journal của user sau khi đã compact vào snapshot
+     */
+    public synchronized void truncate(String username) {
+        File file = fileFor(username);
+        if (file.exists()) {
+            file.delete();
+        }
+        entryCounts.put(username, 0);
+    }
+
+    /**
+     * Danh sách user đang có journal chưa compact
+     */
+    public synchronized Set<String> usernames() {
+        Set<String> usernames = new HashSet<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return usernames;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(FILE_SUFFIX) && file.length() > 0) {
+                usernames.add(decode(name.substring(0, name.length() - FILE_SUFFIX.length())));
+            }
+        }
+        return usernames;
+    }
+
+    private static void putBill(List<Bill> bills, Bill bill) {
+        for (int i = 0; i < bills.size(); i++) {
+            if (bills.get(i).getId() == bill.getId()) {
+                bills.set(i, bill);
+                return;
+            }
+        }
+        bills.add(bill);
+    }
+
+    private File fileFor(String username) {
+        return new File(directory, encode(username) + FILE_SUFFIX);
+    }
+
+    private static String encode(String username) {
+        try {
+            return URLEncoder.encode(username, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(String fileName) {
+        try {
+            return URLDecoder.decode(fileName, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
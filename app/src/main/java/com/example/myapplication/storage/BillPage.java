@@ -0,0 +1,60 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.Bill;
+import java.util.List;
+
+/**
+ * Một trang lịch sử hóa đơn (mới nhất trước) và cursor để lấy trang tiếp theo
+ * Cursor là chuỗi mờ, chỉ dùng để truyền lại cho BillStore.getPage.
+ */
+public class BillPage {
+
+    private final List<Bill> bills;
+    private final String nextCursor;
+
+    public BillPage(List<Bill> bills, String nextCursor) {
+        this.bills = bills;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Bill> getBills() {
+        return bills;
+    }
+
+    /**
+     * @return cursor của trang tiếp theo, null nếu đã hết
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Vị trí (orderDate, billId) của hóa đơn cuối trang, trang sau bắt đầu ngay sau vị trí này
+     */
+    static String encodeCursor(long orderDate, int billId) {
+        return Long.toString(orderDate, 36) + "." + Integer.toString(billId, 36);
+    }
+
+    /**
+     * @return {orderDate, billId}
+     * @throws IllegalArgumentException nếu cursor không hợp lệ
+     */
+    static long[] decodeCursor(String cursor) {
+        int dot = cursor.indexOf('.');
+        if (dot < 0) {
+            throw new IllegalArgumentException("Invalid bill page cursor: " + cursor);
+        }
+        try {
+            return new long[]{
+                    Long.parseLong(cursor.substring(0, dot), 36),
+                    Integer.parseInt(cursor.substring(dot + 1), 36)
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid bill page cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.Bill;
+import java.util.List;
+
+/**
+ * Nơi lưu trữ hóa đơn của tất cả user
+ * Mọi truy vấn danh sách đều trả về mới nhất trước (orderDate, rồi billId giảm dần).
+ * username là user sở hữu hóa đơn (người đặt), không phụ thuộc field trong payload.
+ * Hóa đơn gồm hai tầng: hóa đơn gần đây và hóa đơn đã lưu trữ (đã hoàn thành, cũ).
+ * Các truy vấn danh sách getAll/getBy... chỉ trả về tầng gần đây, tầng lưu trữ đọc
+ * riêng qua getArchived; getPage, get, đếm, tổng và đổi trạng thái áp dụng cho cả hai tầng.
+ * Store giữ luôn rollup doanh thu (RevenueRollup) của cả hai tầng, ghi cùng lần ghi hóa đơn.
+ */
+public interface BillStore {
+
+    /**
+     * Thêm hoặc thay thế hóa đơn (theo billId)
+     */
+    void put(String username, Bill bill);
+
+    /**
+     * Thêm hoặc thay thế nhiều hóa đơn của một user trong một lần ghi
+     */
+    void putAll(String username, List<Bill> bills);
+
+    /**
+     * Chỉ cập nhật trạng thái của một hóa đơn (hóa đơn đã lưu trữ được đưa về tầng gần đây)
+     * @return false nếu không có hóa đơn này
+     */
+    boolean updateStatus(int billId, String status, long updatedAt);
+
+    /**
+     * Đổi trạng thái nhiều hóa đơn trong một lần ghi, chỉ những hóa đơn đang ở expectedStatus
+     * (chỉ tầng gần đây, hóa đơn lưu trữ luôn đã hoàn thành)
+     * @return số hóa đơn đã đổi
+     */
+    int updateStatus(List<Integer> billIds, String expectedStatus, String status, long updatedAt);
+
+    /**
+     * Chạy các lần ghi trong một transaction (ghi hết hoặc không ghi gì)
+     */
+    void runInTransaction(Runnable work);
+
+    Bill get(int billId);
+
+    /**
+     * @return user sở hữu hóa đơn, null nếu không có
+     */
+    String getOwner(int billId);
+
+    List<Bill> getAll();
+
+    List<Bill> getByUsername(String username);
+
+    List<Bill> getByUsernameAndStatus(String username, String status);
+
+    List<Bill> getByStatus(String status);
+
+    /**
+     * Đếm hóa đơn, tham số null nghĩa là không lọc theo field đó
+     */
+    int count(String username, String status);
+
+    /**
+     * Tổng tiền các hóa đơn của user (tham số null = tất cả user)
+     */
+    double sumAmount(String username);
+
+    /**
+     * ID lớn nhất đang có, 0 nếu chưa có hóa đơn
+     */
+    int getMaxBillId();
+
+    /**
+     * orderDate mới nhất của user, 0 nếu chưa có hóa đơn
+     */
+    long getLatestOrderDate(String username);
+
+    /**
+     * @return số hóa đơn đã xóa
+     */
+    int deleteByUsername(String username);
+
+    /**
+     * Doanh thu và số đơn (không tính đơn hủy) của các ngày từ fromDay đến toDay, bao gồm cả hai
+     * @param fromDay khóa ngày yyyyMMdd (RevenueRollup.dayKey)
+     */
+    RevenueRollup.Bucket sumRevenue(int fromDay, int toDay);
+
+    /**
+     * Giờ trong ngày (0-23) có nhiều đơn nhất từ khóa giờ fromHour (yyyyMMddHH), -1 nếu chưa có dữ liệu
+     */
+    int getPeakHour(int fromHour);
+
+    /**
+     * Chuyển hóa đơn đã hoàn thành (DELIVERED/CANCELLED) đặt trước cutoff sang tầng lưu trữ
+     * @return số hóa đơn đã chuyển
+     */
+    int archiveCompletedBefore(long cutoff);
+
+    /**
+     * Hóa đơn đã lưu trữ có orderDate trong [fromTime, toTime)
+     * @param username null = tất cả user
+     * @param status null = mọi trạng thái
+     */
+    List<Bill> getArchived(String username, String status, long fromTime, long toTime);
+
+    /**
+     * Một trang lịch sử (mới nhất trước) trên cả hai tầng, phân trang theo vị trí
+     * (orderDate, billId) nên không phụ thuộc tổng số hóa đơn
+     * @param username null = tất cả user
+     * @param status null = mọi trạng thái
+     * @param cursor null để lấy trang đầu, ngược lại là BillPage.getNextCursor() của trang trước
+     */
+    BillPage getPage(String username, String status, String cursor, int limit);
+}
@@ -0,0 +1,232 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.Bill;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * Tổng hợp doanh thu/số đơn bằng cách đọc stream JSON của danh sách hóa đơn
+ * Chỉ đọc các field cần cho truy vấn (totalAmount, status, orderDate, username),
+ * bỏ qua items/billItems và các field khác nên không dựng object graph Bill.
+ */
+public class BillStreamAggregator {
+
+    public static final int FIELD_ID = 1;
+    public static final int FIELD_USERNAME = 1 << 1;
+    public static final int FIELD_STATUS = 1 << 2;
+    public static final int FIELD_AMOUNT = 1 << 3;
+    public static final int FIELD_DATE = 1 << 4;
+
+    /**
+     * Các field đọc được của một hóa đơn - được tái sử dụng cho mọi phần tử
+     */
+    public static class Record {
+        public int billId;
+        public String username;
+        public String status;
+        public double totalAmount;
+        public long orderDate;
+
+        void reset() {
+            billId = 0;
+            username = null;
+            status = null;
+            totalAmount = 0;
+            orderDate = 0;
+        }
+
+        void from(Bill bill) {
+            billId = bill.getId();
+            username = bill.getUsername();
+            status = bill.getStatus();
+            totalAmount = bill.getTotalAmount();
+            orderDate = bill.getOrderDate() != null ? bill.getOrderDate().getTime() : 0;
+        }
+    }
+
+    /**
+     * Nhận từng record đọc được (record được tái sử dụng, không giữ lại tham chiếu)
+     */
+    public interface Visitor {
+        void accept(Record record);
+    }
+
+    /**
+     * Bộ đếm: tổng tiền và số đơn thỏa điều kiện lọc
+     */
+    public static class Totals implements Visitor {
+        private String status;
+        private String excludedStatus;
+        private long fromTime = Long.MIN_VALUE;
+        private long toTime = Long.MAX_VALUE;
+        private double amount;
+        private int count;
+
+        public Totals withStatus(String status) {
+            this.status = status;
+            return this;
+        }
+
+        public Totals excludingStatus(String status) {
+            this.excludedStatus = status;
+            return this;
+        }
+
+        /**
+         * Lọc theo ngày đặt trong khoảng [fromTime, toTime)
+         */
+        public Totals between(long fromTime, long toTime) {
+            this.fromTime = fromTime;
+            this.toTime = toTime;
+            return this;
+        }
+
+        public double getAmount() { return amount; }
+        public int getCount() { return count; }
+
+        /**
+         * Các field cần đọc cho điều kiện lọc hiện tại
+         */
+        public int fields() {
+            int fields = FIELD_AMOUNT;
+            if (status != null || excludedStatus != null) {
+                fields |= FIELD_STATUS;
+            }
+            if (fromTime != Long.MIN_VALUE || toTime != Long.MAX_VALUE) {
+                fields |= FIELD_DATE;
+            }
+            return fields;
+        }
+
+        @Override
+        public void accept(Record record) {
+            if (status != null && !status.equals(record.status)) {
+                return;
+            }
+            if (excludedStatus != null && excludedStatus.equals(record.status)) {
+                return;
+            }
+            if (record.orderDate < fromTime || record.orderDate >= toTime) {
+                return;
+            }
+            amount += record.totalAmount;
+            count++;
+        }
+    }
+
+    private final TypeAdapter<Date> dateAdapter;
+    private final Record scratch = new Record();
+
+    public BillStreamAggregator(Gson gson) {
+        this.dateAdapter = gson.getAdapter(Date.class);
+    }
+
+    /**
+     * Đưa một hóa đơn đã có sẵn trong bộ nhớ (từ index hoặc journal) qua visitor
+     */
+    public synchronized void add(Bill bill, Visitor visitor) {
+        scratch.from(bill);
+        visitor.accept(scratch);
+    }
+
+    /**
+     * Stream một JSON array hóa đơn và cộng vào totals
+     * @param skipIds các billId bị bỏ qua (đã được journal ghi đè), có thể null
+     */
+    public void add(String json, Set<Integer> skipIds, Totals totals) throws IOException {
+        scan(json, totals.fields(), skipIds, totals);
+    }
+
+    /**
+     * Stream một JSON array hóa đơn, chỉ đọc các field trong mask rồi gọi visitor
+     * @param fields tổ hợp các FIELD_* cần đọc
+     * @param skipIds các billId bị bỏ qua (đã được journal ghi đè), có thể null
+     */
+    public synchronized void scan(String json, int fields, Set<Integer> skipIds, Visitor visitor) throws IOException {
+        if (json == null || json.isEmpty()) {
+            return;
+        }
+        if (skipIds != null && !skipIds.isEmpty()) {
+            fields |= FIELD_ID;
+        }
+
+        JsonReader reader = new JsonReader(new StringReader(json));
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            readRecord(reader, fields, scratch);
+            if (skipIds != null && skipIds.contains(scratch.billId)) {
+                continue;
+            }
+            visitor.accept(scratch);
+        }
+        reader.endArray();
+    }
+
+    void readRecord(JsonReader reader, int fields, Record record) throws IOException {
+        record.reset();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "billId":
+                    if ((fields & FIELD_ID) != 0) {
+                        record.billId = reader.nextInt();
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "username":
+                    if ((fields & FIELD_USERNAME) != 0) {
+                        record.username = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "status":
+                    if ((fields & FIELD_STATUS) != 0) {
+                        record.status = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "totalAmount":
+                    if ((fields & FIELD_AMOUNT) != 0) {
+                        record.totalAmount = reader.nextDouble();
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "orderDate":
+                    if ((fields & FIELD_DATE) != 0) {
+                        Date orderDate = dateAdapter.read(reader);
+                        record.orderDate = orderDate != null ? orderDate.getTime() : 0;
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                default:
+                    // items, billItems, địa chỉ... không cần cho tổng hợp
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.utils.Logger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hàng đợi ghi một luồng, gom các lần ghi theo key
+ * Lần ghi mới cho cùng key thay lần ghi đang chờ, nên các thay đổi đến trong
+ * windowMillis chỉ thành một lần ghi cho mỗi key. Luồng nền tự ghi sau cửa sổ gom,
+ * flush() ghi ngay trên luồng gọi; hai đường này không bao giờ ghi song song.
+ */
+public class BillWriteQueue {
+
+    private static final String TAG = "BillWriteQueue";
+
+    /**
+     * Ghi một lô (ví dụ trong một transaction); ném exception thì cả lô được xếp lại
+     */
+    public interface BatchWriter {
+        void write(List<Runnable> writes);
+    }
+
+    private final long windowMillis;
+    private final BatchWriter batchWriter;
+    private final Object writerLock = new Object();
+    private final LinkedHashMap<String, Runnable> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bill-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BillWriteQueue(long windowMillis, BatchWriter batchWriter) {
+        this.windowMillis = windowMillis;
+        this.batchWriter = batchWriter;
+    }
+
+    /**
+     * Xếp lần ghi cho key, thay lần ghi đang chờ của cùng key
+     */
+    public void enqueue(String key, Runnable write) {
+        synchronized (pending) {
+            pending.remove(key);
+            pending.put(key, write);
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        executor.schedule(this::flushInBackground, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean hasPending() {
+        synchronized (pending) {
+            return !pending.isEmpty();
+        }
+    }
+
+    /**
+     * Ghi ngay mọi thay đổi đang chờ (và đợi lô đang ghi dở), trả về khi đã ghi xong
+     */
+    public void flush() {
+        synchronized (writerLock) {
+            Map<String, Runnable> writes;
+            synchronized (pending) {
+                writes = new LinkedHashMap<>(pending);
+                pending.clear();
+                flushScheduled = false;
+            }
+            if (writes.isEmpty()) {
+                return;
+            }
+            try {
+                batchWriter.write(new ArrayList<>(writes.values()));
+            } catch (RuntimeException e) {
+                requeue(writes);
+                throw e;
+            }
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            Logger.e(TAG, "Error writing pending bill changes, retrying", e);
+            synchronized (pending) {
+                if (flushScheduled) {
+                    return;
+                }
+                flushScheduled = true;
+            }
+            executor.schedule(this::flushInBackground, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Đưa lô ghi lỗi về đầu hàng đợi, trừ các key đã có lần ghi mới hơn
+     */
+    private void requeue(Map<String, Runnable> writes) {
+        synchronized (pending) {
+            LinkedHashMap<String, Runnable> merged = new LinkedHashMap<>(writes);
+            for (Map.Entry<String, Runnable> newer : pending.entrySet()) {
+                merged.remove(newer.getKey());
+                merged.put(newer.getKey(), newer.getValue());
+            }
+            pending.clear();
+            pending.putAll(merged);
+        }
+    }
+}
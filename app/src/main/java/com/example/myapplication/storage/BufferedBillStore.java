@@ -0,0 +1,223 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.Bill;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BillStore gom các lần đổi trạng thái qua BillWriteQueue rồi ghi theo lô trong một transaction
+ * Đổi trạng thái cùng một hóa đơn nhiều lần trong cửa sổ gom chỉ ghi lần cuối.
+ * Đọc luôn thấy thay đổi đang chờ: truy vấn không phụ thuộc trạng thái được phủ trạng thái
+ * đang chờ lên kết quả, còn truy vấn lọc/đếm theo trạng thái và các lần ghi khác flush trước.
+ */
+public class BufferedBillStore implements BillStore {
+
+    /**
+     * Một lần đổi trạng thái đang chờ ghi
+     */
+    private class StatusWrite implements Runnable {
+        final int billId;
+        final String status;
+        final long updatedAt;
+
+        StatusWrite(int billId, String status, long updatedAt) {
+            this.billId = billId;
+            this.status = status;
+            this.updatedAt = updatedAt;
+        }
+
+        @Override
+        public void run() {
+            delegate.updateStatus(billId, status, updatedAt);
+        }
+    }
+
+    private final BillStore delegate;
+    private final BillWriteQueue queue;
+    private final Map<Integer, StatusWrite> pendingStatuses = new ConcurrentHashMap<>();
+
+    public BufferedBillStore(BillStore delegate, long windowMillis) {
+        this.delegate = delegate;
+        this.queue = new BillWriteQueue(windowMillis, this::writeBatch);
+    }
+
+    /**
+     * Ghi ngay mọi thay đổi đang chờ
+     */
+    public void flush() {
+        queue.flush();
+    }
+
+    private void writeBatch(List<Runnable> writes) {
+        delegate.runInTransaction(() -> {
+            for (Runnable write : writes) {
+                write.run();
+            }
+        });
+        // Đã commit: store đã có trạng thái mới, bỏ phần phủ (trừ khi đã bị thay bằng lần đổi sau)
+        for (Runnable write : writes) {
+            if (write instanceof StatusWrite) {
+                pendingStatuses.remove(((StatusWrite) write).billId, write);
+            }
+        }
+    }
+
+    private void flushIfPending() {
+        // Còn phần phủ nghĩa là lô chưa commit (kể cả lô đang ghi dở), flush() đợi lô đó
+        if (!pendingStatuses.isEmpty() || queue.hasPending()) {
+            queue.flush();
+        }
+    }
+
+    private Bill overlay(Bill bill) {
+        StatusWrite pending = bill != null ? pendingStatuses.get(bill.getId()) : null;
+        if (pending != null) {
+            bill.setStatus(pending.status);
+            bill.setLastUpdated(new Date(pending.updatedAt));
+        }
+        return bill;
+    }
+
+    private List<Bill> overlay(List<Bill> bills) {
+        if (!pendingStatuses.isEmpty()) {
+            for (Bill bill : bills) {
+                overlay(bill);
+            }
+        }
+        return bills;
+    }
+
+    @Override
+    public void put(String username, Bill bill) {
+        flushIfPending();
+        delegate.put(username, bill);
+    }
+
+    @Override
+    public void putAll(String username, List<Bill> bills) {
+        flushIfPending();
+        delegate.putAll(username, bills);
+    }
+
+    @Override
+    public boolean updateStatus(int billId, String status, long updatedAt) {
+        if (!pendingStatuses.containsKey(billId) && delegate.getOwner(billId) == null) {
+            return false;
+        }
+        StatusWrite write = new StatusWrite(billId, status, updatedAt);
+        pendingStatuses.put(billId, write);
+        queue.enqueue("status:" + billId, write);
+        return true;
+    }
+
+    @Override
+    public int updateStatus(List<Integer> billIds, String expectedStatus, String status, long updatedAt) {
+        flushIfPending();
+        return delegate.updateStatus(billIds, expectedStatus, status, updatedAt);
+    }
+
+    @Override
+    public void runInTransaction(Runnable work) {
+        flushIfPending();
+        delegate.runInTransaction(work);
+    }
+
+    @Override
+    public Bill get(int billId) {
+        return overlay(delegate.get(billId));
+    }
+
+    @Override
+    public String getOwner(int billId) {
+        return delegate.getOwner(billId);
+    }
+
+    @Override
+    public List<Bill> getAll() {
+        return overlay(delegate.getAll());
+    }
+
+    @Override
+    public List<Bill> getByUsername(String username) {
+        return overlay(delegate.getByUsername(username));
+    }
+
+    @Override
+    public List<Bill> getByUsernameAndStatus(String username, String status) {
+        flushIfPending();
+        return delegate.getByUsernameAndStatus(username, status);
+    }
+
+    @Override
+    public List<Bill> getByStatus(String status) {
+        flushIfPending();
+        return delegate.getByStatus(status);
+    }
+
+    @Override
+    public int count(String username, String status) {
+        if (status != null) {
+            flushIfPending();
+        }
+        return delegate.count(username, status);
+    }
+
+    @Override
+    public double sumAmount(String username) {
+        return delegate.sumAmount(username);
+    }
+
+    @Override
+    public int getMaxBillId() {
+        return delegate.getMaxBillId();
+    }
+
+    @Override
+    public long getLatestOrderDate(String username) {
+        return delegate.getLatestOrderDate(username);
+    }
+
+    @Override
+    public int deleteByUsername(String username) {
+        flushIfPending();
+        return delegate.deleteByUsername(username);
+    }
+
+    @Override
+    public RevenueRollup.Bucket sumRevenue(int fromDay, int toDay) {
+        flushIfPending();
+        return delegate.sumRevenue(fromDay, toDay);
+    }
+
+    @Override
+    public int getPeakHour(int fromHour) {
+        flushIfPending();
+        return delegate.getPeakHour(fromHour);
+    }
+
+    @Override
+    public int archiveCompletedBefore(long cutoff) {
+        flushIfPending();
+        return delegate.archiveCompletedBefore(cutoff);
+    }
+
+    @Override
+    public List<Bill> getArchived(String username, String status, long fromTime, long toTime) {
+        if (status != null) {
+            flushIfPending();
+        }
+        return overlay(delegate.getArchived(username, status, fromTime, toTime));
+    }
+
+    @Override
+    public BillPage getPage(String username, String status, String cursor, int limit) {
+        if (status != null) {
+            flushIfPending();
+        }
+        BillPage page = delegate.getPage(username, status, cursor, limit);
+        overlay(page.getBills());
+        return page;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.myapplication.storage;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Một dòng giỏ hàng khi lưu: chỉ foodId, số lượng và giá lúc thêm
+ * FoodItem được lấy lại từ FoodDataManager khi load, không lưu kèm.
+ */
+public class CartRecord {
+
+    @SerializedName("f")
+    private final int foodId;
+    @SerializedName("q")
+    private final int quantity;
+    @SerializedName("p")
+    private final double priceAtAdd;
+
+    public CartRecord(int foodId, int quantity, double priceAtAdd) {
+        this.foodId = foodId;
+        this.quantity = quantity;
+        this.priceAtAdd = priceAtAdd;
+    }
+
+    public int getFoodId() {
+        return foodId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public double getPriceAtAdd() {
+        return priceAtAdd;
+    }
+}
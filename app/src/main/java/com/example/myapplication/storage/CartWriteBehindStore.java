@@ -0,0 +1,168 @@
+package com.example.myapplication.storage;
+
+import android.content.SharedPreferences;
+import com.example.myapplication.utils.Logger;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lưu giỏ hàng theo kiểu write-behind: mỗi lần sửa chỉ giữ lại bản chụp mới nhất của user,
+ * luồng nền serialize và ghi sau khi ngừng sửa debounceMillis (nhiều lần bấm +/- chỉ ghi một lần).
+ * flush() ghi ngay trên luồng gọi, dùng khi rời màn hình, đăng xuất và đặt hàng.
+ * Giỏ hàng được lưu dạng mảng CartRecord; load() vẫn đọc được định dạng cũ
+ * (mảng CartItem kèm cả FoodItem), lần lưu sau sẽ ghi lại theo dạng mới.
+ */
+public class CartWriteBehindStore {
+
+    private static final String TAG = "CartWriteBehindStore";
+
+    private final SharedPreferences prefs;
+    private final Gson gson;
+    private final String keySuffix;
+    private final long debounceMillis;
+    private final Object writerLock = new Object();
+    private final LinkedHashMap<String, List<CartRecord>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CartWriteBehindStore(SharedPreferences prefs, Gson gson, String keySuffix, long debounceMillis) {
+        this.prefs = prefs;
+        this.gson = gson;
+        this.keySuffix = keySuffix;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Xếp bản chụp giỏ hàng của user để ghi sau (thay bản đang chờ), hẹn lại mốc ghi
+     * @param snapshot danh sách không còn bị sửa sau khi gọi (CartRecord bất biến)
+     */
+    public void save(String username, List<CartRecord> snapshot) {
+        synchronized (pending) {
+            pending.put(username, snapshot);
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+            }
+            scheduledFlush = executor.schedule(this::flushInBackground, debounceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Đọc giỏ hàng của user, ưu tiên bản đang chờ ghi
+     */
+    public List<CartRecord> load(String username) {
+        // Giữ writerLock để không đọc prefs khi một lô vừa rời hàng đợi nhưng chưa commit
+        synchronized (writerLock) {
+            synchronized (pending) {
+                List<CartRecord> snapshot = pending.get(username);
+                if (snapshot != null) {
+                    return new ArrayList<>(snapshot);
+                }
+            }
+            String json = prefs.getString(username + keySuffix, "");
+            return json.isEmpty() ? new ArrayList<>() : decode(json);
+        }
+    }
+
+    private List<CartRecord> decode(String json) {
+        List<CartRecord> records = new ArrayList<>();
+        JsonElement root = JsonParser.parseString(json);
+        if (!root.isJsonArray()) {
+            return records;
+        }
+        JsonArray array = root.getAsJsonArray();
+        for (JsonElement element : array) {
+            if (!element.isJsonObject()) {
+                continue;
+            }
+            JsonObject object = element.getAsJsonObject();
+            if (object.has("foodItem")) {
+                // Định dạng cũ: {"foodItem": {...}, "quantity": n}
+                JsonObject food = object.getAsJsonObject("foodItem");
+                records.add(new CartRecord(food.get("id").getAsInt(), object.get("quantity").getAsInt(),
+                        food.get("price").getAsDouble()));
+            } else {
+                records.add(gson.fromJson(object, CartRecord.class));
+            }
+        }
+        return records;
+    }
+
+    public boolean hasPending() {
+        synchronized (pending) {
+            return !pending.isEmpty();
+        }
+    }
+
+    /**
+     * Ghi ngay mọi giỏ hàng đang chờ (và đợi lô đang ghi dở), trả về khi đã commit
+     */
+    public void flush() {
+        synchronized (writerLock) {
+            Map<String, List<CartRecord>> writes;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                writes = new LinkedHashMap<>(pending);
+                pending.clear();
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+            }
+            try {
+                SharedPreferences.Editor editor = prefs.edit();
+                for (Map.Entry<String, List<CartRecord>> write : writes.entrySet()) {
+                    editor.putString(write.getKey() + keySuffix, gson.toJson(write.getValue()));
+                }
+                if (!editor.commit()) {
+                    throw new IllegalStateException("Could not commit cart prefs");
+                }
+            } catch (RuntimeException e) {
+                requeue(writes);
+                throw e;
+            }
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            Logger.e(TAG, "Error writing pending carts, retrying", e);
+            synchronized (pending) {
+                if (scheduledFlush == null || scheduledFlush.isDone()) {
+                    scheduledFlush = executor.schedule(this::flushInBackground, debounceMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Đưa lô ghi lỗi về hàng đợi, trừ các user đã có bản chụp mới hơn
+     */
+    private void requeue(Map<String, List<CartRecord>> writes) {
+        synchronized (pending) {
+            for (Map.Entry<String, List<CartRecord>> write : writes.entrySet()) {
+                if (!pending.containsKey(write.getKey())) {
+                    pending.put(write.getKey(), write.getValue());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.myapplication.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Hàng đợi hạn chuyển trạng thái tự động, sắp theo thời điểm đến hạn (min-heap)
+ * Mỗi hóa đơn có tối đa một hạn; đặt lại hoặc hủy chỉ ghi vào map, entry cũ
+ * trong heap bị bỏ qua khi lên đầu nên không phải tìm trong heap.
+ */
+public class DeliveryDeadlineQueue {
+
+    private final PriorityQueue<long[]> heap = new PriorityQueue<>((a, b) ->
+            a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+    private final Map<Integer, Long> deadlines = new HashMap<>();
+
+    /**
+     * Đặt (hoặc thay) hạn của hóa đơn
+     */
+    public synchronized void schedule(int billId, long deadline) {
+        Long previous = deadlines.put(billId, deadline);
+        if (previous == null || previous != deadline) {
+            heap.add(new long[]{deadline, billId});
+            compactIfNeeded();
+        }
+    }
+
+    public synchronized void cancel(int billId) {
+        if (deadlines.remove(billId) != null) {
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * @return hạn sớm nhất, Long.MAX_VALUE nếu hàng đợi rỗng
+     */
+    public synchronized long nextDeadline() {
+        skipStale();
+        return heap.isEmpty() ? Long.MAX_VALUE : heap.peek()[0];
+    }
+
+    /**
+     * Lấy ra các hóa đơn đã đến hạn (deadline <= now), sớm nhất trước
+     */
+    public synchronized List<Integer> pollDue(long now) {
+        List<Integer> due = new ArrayList<>();
+        skipStale();
+        while (!heap.isEmpty() && heap.peek()[0] <= now) {
+            int billId = (int) heap.poll()[1];
+            deadlines.remove(billId);
+            due.add(billId);
+            skipStale();
+        }
+        return due;
+    }
+
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    private void skipStale() {
+        while (!heap.isEmpty() && !isCurrent(heap.peek())) {
+            heap.poll();
+        }
+    }
+
+    private boolean isCurrent(long[] entry) {
+        Long deadline = deadlines.get((int) entry[1]);
+        return deadline != null && deadline == entry[0];
+    }
+
+    /**
+     * Dựng lại heap khi entry cũ chiếm quá nửa
+     */
+    private void compactIfNeeded() {
+        if (heap.size() <= 2 * deadlines.size() + 16) {
+            return;
+        }
+        heap.clear();
+        for (Map.Entry<Integer, Long> entry : deadlines.entrySet()) {
+            heap.add(new long[]{entry.getValue(), entry.getKey()});
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.FoodItem;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Chỉ mục thực đơn theo danh mục và tình trạng còn bán, đánh trên slot của FoodSlotTable
+ * Mỗi danh mục giữ danh sách slot của các món trong đó, món còn bán được đánh dấu trong một BitSet,
+ * nên lọc theo danh mục chỉ duyệt các món của danh mục đó. Danh sách danh mục lấy từ các
+ * danh mục đang có món (theo thứ tự xuất hiện), không cần khai báo cứng.
+ */
+public class FoodCatalogIndex implements FoodSlotTable.Listener {
+
+    private final FoodSlotTable slots;
+    private final List<String> categoryBySlot = new ArrayList<>();
+    private final LinkedHashMap<String, SlotList> slotsByCategory = new LinkedHashMap<>();
+    private final BitSet available = new BitSet();
+
+    public FoodCatalogIndex(FoodSlotTable slots) {
+        this.slots = slots;
+        slots.addListener(this);
+    }
+
+    @Override
+    public void onAdded(int slot, FoodItem item) {
+        while (categoryBySlot.size() <= slot) {
+            categoryBySlot.add(null);
+        }
+        categoryBySlot.set(slot, item.getCategory());
+        bucket(item.getCategory()).add(slot);
+        available.set(slot, item.isAvailable());
+    }
+
+    /**
+     * Cập nhật danh mục và tình trạng của món sau khi sửa (kể cả bật/tắt còn bán)
+     */
+    @Override
+    public void onUpdated(int slot, FoodItem item) {
+        String oldCategory = categoryBySlot.get(slot);
+        if (!equalsCategory(oldCategory, item.getCategory())) {
+            removeFromBucket(oldCategory, slot);
+            bucket(item.getCategory()).add(slot);
+            categoryBySlot.set(slot, item.getCategory());
+        }
+        available.set(slot, item.isAvailable());
+    }
+
+    @Override
+    public void onRemoved(int slot) {
+        removeFromBucket(categoryBySlot.get(slot), slot);
+        categoryBySlot.set(slot, null);
+        available.clear(slot);
+    }
+
+    @Override
+    public void onCleared() {
+        categoryBySlot.clear();
+        slotsByCategory.clear();
+        available.clear();
+    }
+
+    public List<FoodItem> getByCategory(String category) {
+        SlotList inCategory = slotsByCategory.get(category);
+        if (inCategory == null) {
+            return new ArrayList<>();
+        }
+        List<FoodItem> items = new ArrayList<>(inCategory.size());
+        for (int i = 0; i < inCategory.size(); i++) {
+            items.add(slots.get(inCategory.get(i)));
+        }
+        return items;
+    }
+
+    public List<FoodItem> getAvailable() {
+        List<FoodItem> items = new ArrayList<>(available.cardinality());
+        for (int slot = available.nextSetBit(0); slot >= 0; slot = available.nextSetBit(slot + 1)) {
+            items.add(slots.get(slot));
+        }
+        return items;
+    }
+
+    public List<FoodItem> getAvailableByCategory(String category) {
+        SlotList inCategory = slotsByCategory.get(category);
+        if (inCategory == null) {
+            return new ArrayList<>();
+        }
+        List<FoodItem> items = new ArrayList<>(inCategory.size());
+        for (int i = 0; i < inCategory.size(); i++) {
+            int slot = inCategory.get(i);
+            if (available.get(slot)) {
+                items.add(slots.get(slot));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Các danh mục đang có ít nhất một món, theo thứ tự xuất hiện trong thực đơn
+     */
+    public List<String> getCategories() {
+        List<String> categories = new ArrayList<>(slotsByCategory.size());
+        for (String category : slotsByCategory.keySet()) {
+            if (category != null) {
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+
+    private SlotList bucket(String category) {
+        SlotList inCategory = slotsByCategory.get(category);
+        if (inCategory == null) {
+            inCategory = new SlotList();
+            slotsByCategory.put(category, inCategory);
+        }
+        return inCategory;
+    }
+
+    private void removeFromBucket(String category, int slot) {
+        SlotList inCategory = slotsByCategory.get(category);
+        if (inCategory == null) {
+            return;
+        }
+        inCategory.remove(slot);
+        if (inCategory.size() == 0) {
+            slotsByCategory.remove(category); // Danh mục không còn món thì bỏ khỏi danh sách
+        }
+    }
+
+    private static boolean equalsCategory(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.myapplication.storage;
+
+import android.content.SharedPreferences;
+import com.example.myapplication.model.FoodItem;
+import com.example.myapplication.utils.Logger;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lưu thực đơn theo từng món: mỗi món một key food_item_{id} trong prefs, kèm change log append-only
+ * Sửa một món chỉ serialize món đó và ghi thêm một dòng vào log (fsync), không ghi lại cả thực đơn.
+ * Record ghi bằng apply() nên có thể chưa xuống đĩa khi app bị tắt; lúc load, log được replay lên
+ * các record rồi commit và xóa log (compact). Thứ tự thực đơn là thứ tự id (id mới luôn lớn nhất).
+ * Dữ liệu cũ (cả danh sách JSON trong key food_items) được tách thành record ở lần load đầu.
+ */
+public class FoodCatalogStore {
+
+    public static final String KEY_LEGACY_FOOD_ITEMS = "food_items";
+
+    private static final String TAG = "FoodCatalogStore";
+    private static final String RECORD_PREFIX = "food_item_";
+    private static final String KEY_FORMAT = "food_records_version";
+    private static final int FORMAT_RECORDS = 1;
+    private static final int MAX_LOG_ENTRIES = 200; // Quá số này thì compact ngay khi ghi
+
+    private static final String OP_PUT = "put";
+    private static final String OP_DELETE = "delete";
+
+    /**
+     * Một dòng trong change log
+     */
+    private static class Entry {
+        private String op;
+        private int id;
+        private FoodItem item;
+
+        Entry(String op, int id, FoodItem item) {
+            this.op = op;
+            this.id = id;
+            this.item = item;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final File logFile;
+    private final Gson gson;
+    private int logEntries = -1;
+
+    public FoodCatalogStore(SharedPreferences prefs, File logFile, Gson gson) {
+        this.prefs = prefs;
+        this.logFile = logFile;
+        this.gson = gson;
+    }
+
+    /**
+     * Dựng thực đơn từ các record (chuyển dữ liệu cũ nếu có) và replay change log
+     * @return danh sách theo thứ tự id; null nếu chưa từng lưu thực đơn (cần khởi tạo mặc định)
+     */
+    public synchronized List<FoodItem> load() {
+        if (prefs.getInt(KEY_FORMAT, 0) != FORMAT_RECORDS && !migrateLegacyList()) {
+            return null;
+        }
+
+        TreeMap<Integer, FoodItem> items = new TreeMap<>();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (!entry.getKey().startsWith(RECORD_PREFIX) || !(entry.getValue() instanceof String)) {
+                continue;
+            }
+            try {
+                FoodItem item = gson.fromJson((String) entry.getValue(), FoodItem.class);
+                if (item != null) {
+                    items.put(item.getId(), item);
+                }
+            } catch (JsonParseException e) {
+                Logger.w(TAG, "Skipping corrupt food record: " + entry.getKey());
+            }
+        }
+
+        List<Entry> log = readLog();
+        if (!log.isEmpty()) {
+            SharedPreferences.Editor editor = prefs.edit();
+            for (Entry entry : log) {
+                if (OP_PUT.equals(entry.op) && entry.item != null) {
+                    items.put(entry.item.getId(), entry.item);
+                    editor.putString(recordKey(entry.item.getId()), gson.toJson(entry.item));
+                } else if (OP_DELETE.equals(entry.op)) {
+                    items.remove(entry.id);
+                    editor.remove(recordKey(entry.id));
+                }
+            }
+            if (editor.commit()) {
+                truncateLog();
+            }
+            Logger.i(TAG, "Replayed " + log.size() + " food changes into records");
+        }
+        return new ArrayList<>(items.values());
+    }
+
+    /**
+     * Ghi thêm/sửa một món: một dòng log và một record
+     */
+    public synchronized void put(FoodItem item) throws IOException {
+        append(new Entry(OP_PUT, item.getId(), item));
+        prefs.edit().putString(recordKey(item.getId()), gson.toJson(item)).apply();
+        compactIfNeeded();
+    }
+
+    public synchronized void delete(int id) throws IOException {
+        append(new Entry(OP_DELETE, id, null));
+        prefs.edit().remove(recordKey(id)).apply();
+        compactIfNeeded();
+    }
+
+    /**
+     * Thay toàn bộ thực đơn (khởi tạo mặc định, reset): ghi lại mọi record trong một lần commit
+     */
+    public synchronized void replaceAll(List<FoodItem> items) {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (String key : prefs.getAll().keySet()) {
+            if (key.startsWith(RECORD_PREFIX)) {
+                editor.remove(key);
+            }
+        }
+        for (FoodItem item : items) {
+            editor.putString(recordKey(item.getId()), gson.toJson(item));
+        }
+        editor.putInt(KEY_FORMAT, FORMAT_RECORDS).remove(KEY_LEGACY_FOOD_ITEMS);
+        if (editor.commit()) {
+            truncateLog();
+        }
+    }
+
+    /**
+     * Tách danh sách JSON cũ thành record, ghi record và bỏ key cũ trong cùng một commit
+     * @return false nếu không có dữ liệu cũ
+     */
+    private boolean migrateLegacyList() {
+        String json = prefs.getString(KEY_LEGACY_FOOD_ITEMS, null);
+        if (json == null) {
+            return false;
+        }
+        Type listType = new TypeToken<List<FoodItem>>(){}.getType();
+        List<FoodItem> legacy = gson.fromJson(json, listType);
+        replaceAll(legacy != null ? legacy : new ArrayList<>());
+        Logger.i(TAG, "Migrated " + (legacy != null ? legacy.size() : 0) + " food items to per-item records");
+        return true;
+    }
+
+    private void compactIfNeeded() {
+        if (logEntries >= MAX_LOG_ENTRIES && prefs.edit().commit()) {
+            truncateLog(); // commit() ghi xuống đĩa cả các record đã apply trước đó
+        }
+    }
+
+    private void append(Entry entry) throws IOException {
+        String line = gson.toJson(entry) + "\n";
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (logEntries < 0) {
+            logEntries = readLog().size();
+        } else {
+            logEntries++;
+        }
+    }
+
+    /**
+     * Đọc các dòng hợp lệ theo thứ tự ghi; dòng cuối bị ghi dở (crash giữa chừng) bị bỏ qua
+     */
+    private List<Entry> readLog() {
+        List<Entry> entries = new ArrayList<>();
+        if (!logFile.exists()) {
+            logEntries = 0;
+            return entries;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    Entry entry = gson.fromJson(line, Entry.class);
+                    if (entry != null && entry.op != null) {
+                        entries.add(entry);
+                    }
+                } catch (JsonParseException e) {
+                    // Bản ghi hỏng (ghi dở), bỏ qua
+                }
+            }
+        } catch (IOException e) {
+            Logger.e(TAG, "Error reading food change log", e);
+        }
+        logEntries = entries.size();
+        return entries;
+    }
+
+    private void truncateLog() {
+        if (logFile.exists()) {
+            logFile.delete();
+        }
+        logEntries = 0;
+    }
+
+    private static String recordKey(int id) {
+        return RECORD_PREFIX + id;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.FoodItem;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chỉ mục thực đơn sắp theo giá (tăng dần, trùng giá thì theo id)
+ * Giá lúc đưa vào chỉ mục được giữ theo id, nên khi FoodDataManager thay món bằng bản sao có giá mới,
+ * vị trí cũ được tìm nhị phân theo (giá cũ, id). Liệt kê theo giá chỉ tốn chép kết quả, lọc khoảng giá
+ * dùng tìm nhị phân, món rẻ nhất/đắt nhất là hai đầu mảng.
+ */
+public class FoodPriceIndex {
+
+    private double[] prices = new double[16];
+    private FoodItem[] items = new FoodItem[16];
+    private int size;
+    private final Map<Integer, Double> priceById = new HashMap<>();
+
+    /**
+     * Sắp lại toàn bộ thực đơn theo giá
+     */
+    public void rebuild(List<FoodItem> menu) {
+        FoodItem[] sorted = menu.toArray(new FoodItem[0]);
+        Arrays.sort(sorted, (a, b) -> {
+            int result = Double.compare(a.getPrice(), b.getPrice());
+            return result != 0 ? result : Integer.compare(a.getId(), b.getId());
+        });
+        size = sorted.length;
+        items = Arrays.copyOf(sorted, Math.max(16, size));
+        prices = new double[items.length];
+        priceById.clear();
+        for (int i = 0; i < size; i++) {
+            prices[i] = sorted[i].getPrice();
+            priceById.put(sorted[i].getId(), prices[i]);
+        }
+    }
+
+    public void add(FoodItem item) {
+        if (indexOf(item.getId()) >= 0) {
+            update(item);
+            return;
+        }
+        insert(item);
+    }
+
+    /**
+     * Đặt lại món vào đúng vị trí sau khi đổi giá
+     */
+    public void update(FoodItem item) {
+        int index = indexOf(item.getId());
+        if (index >= 0) {
+            if (prices[index] == item.getPrice()) {
+                items[index] = item;
+                return;
+            }
+            removeAt(index);
+        }
+        insert(item);
+    }
+
+    public void remove(int foodId) {
+        int index = indexOf(foodId);
+        if (index >= 0) {
+            removeAt(index);
+        }
+    }
+
+    /**
+     * @return danh sách mới sắp theo giá; giảm dần thì các món trùng giá vẫn theo id tăng dần
+     */
+    public List<FoodItem> getSorted(boolean ascending) {
+        List<FoodItem> result = new ArrayList<>(size);
+        if (ascending) {
+            result.addAll(Arrays.asList(items).subList(0, size));
+            return result;
+        }
+        int end = size;
+        while (end > 0) {
+            int start = lowerBound(prices[end - 1], Integer.MIN_VALUE);
+            result.addAll(Arrays.asList(items).subList(start, end));
+            end = start;
+        }
+        return result;
+    }
+
+    /**
+     * @return các món có minPrice <= giá <= maxPrice, theo giá tăng dần
+     */
+    public List<FoodItem> getInRange(double minPrice, double maxPrice) {
+        int from = lowerBound(minPrice, Integer.MIN_VALUE);
+        int to = lowerBound(maxPrice, Integer.MAX_VALUE);
+        if (from >= to) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList(items).subList(from, to));
+    }
+
+    public FoodItem getCheapest() {
+        return size > 0 ? items[0] : null;
+    }
+
+    public FoodItem getMostExpensive() {
+        return size > 0 ? items[size - 1] : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void insert(FoodItem item) {
+        int index = lowerBound(item.getPrice(), item.getId());
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            prices = Arrays.copyOf(prices, size * 2);
+        }
+        System.arraycopy(items, index, items, index + 1, size - index);
+        System.arraycopy(prices, index, prices, index + 1, size - index);
+        items[index] = item;
+        prices[index] = item.getPrice();
+        priceById.put(item.getId(), item.getPrice());
+        size++;
+    }
+
+    private void removeAt(int index) {
+        priceById.remove(items[index].getId());
+        System.arraycopy(items, index + 1, items, index, size - index - 1);
+        System.arraycopy(prices, index + 1, prices, index, size - index - 1);
+        size--;
+        items[size] = null;
+    }
+
+    /**
+     * Vị trí đầu tiên có (giá, id) >= (price, id)
+     */
+    private int lowerBound(double price, int id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int result = Double.compare(prices[mid], price);
+            if (result < 0 || (result == 0 && items[mid].getId() < id)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Vị trí của món theo (giá đã đưa vào chỉ mục, id), -1 nếu không có
+     */
+    private int indexOf(int foodId) {
+        Double price = priceById.get(foodId);
+        if (price == null) {
+            return -1;
+        }
+        int index = lowerBound(price, foodId);
+        return index < size && items[index].getId() == foodId ? index : -1;
+    }
+}
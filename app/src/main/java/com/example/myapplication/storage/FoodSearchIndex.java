@@ -0,0 +1,216 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.FoodItem;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Chỉ mục tìm kiếm thực đơn: tên, mô tả, danh mục được bỏ dấu tiếng Việt ("Cơm Gà" -> "com ga"),
+ * tách thành từ và đưa vào một trie; mỗi từ giữ danh sách slot (đã sắp xếp) của các món chứa nó.
+ * Mỗi từ trong câu tìm được so như tiền tố nên gõ dở "com g" vẫn ra "Cơm Gà";
+ * kết quả là giao của các từ, theo thứ tự slot của FoodSlotTable (giống thứ tự thực đơn).
+ */
+public class FoodSearchIndex implements FoodSlotTable.Listener {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final String[] NO_TOKENS = new String[0];
+
+    private final FoodSlotTable slots;
+    private final TrieNode root = new TrieNode();
+    private final List<String[]> tokensBySlot = new ArrayList<>();
+
+    public FoodSearchIndex(FoodSlotTable slots) {
+        this.slots = slots;
+        slots.addListener(this);
+    }
+
+    @Override
+    public void onAdded(int slot, FoodItem item) {
+        String[] tokens = tokensOf(item);
+        while (tokensBySlot.size() <= slot) {
+            tokensBySlot.add(NO_TOKENS);
+        }
+        tokensBySlot.set(slot, tokens);
+        for (String token : tokens) {
+            root.insert(token).postings.add(slot);
+        }
+    }
+
+    /**
+     * Đánh chỉ mục lại món sau khi đổi tên/mô tả/danh mục, giữ nguyên vị trí trong kết quả
+     */
+    @Override
+    public void onUpdated(int slot, FoodItem item) {
+        String[] oldTokens = tokensBySlot.get(slot);
+        String[] newTokens = tokensOf(item);
+        for (String token : oldTokens) {
+            if (Arrays.binarySearch(newTokens, token) < 0) {
+                root.find(token).postings.remove(slot);
+            }
+        }
+        for (String token : newTokens) {
+            if (Arrays.binarySearch(oldTokens, token) < 0) {
+                root.insert(token).postings.add(slot);
+            }
+        }
+        tokensBySlot.set(slot, newTokens);
+    }
+
+    @Override
+    public void onRemoved(int slot) {
+        for (String token : tokensBySlot.get(slot)) {
+            root.find(token).postings.remove(slot);
+        }
+        tokensBySlot.set(slot, NO_TOKENS);
+    }
+
+    @Override
+    public void onCleared() {
+        root.clear();
+        tokensBySlot.clear();
+    }
+
+    /**
+     * Tìm món có mọi từ trong câu tìm là tiền tố của một từ trong tên/mô tả/danh mục
+     * @return danh sách mới theo thứ tự thực đơn; câu tìm không có từ nào thì trả về mọi món
+     */
+    public List<FoodItem> search(String query) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0) {
+            return slots.getAll();
+        }
+        BitSet matches = null;
+        for (String term : terms) {
+            TrieNode node = root.find(term);
+            if (node == null) {
+                return new ArrayList<>();
+            }
+            BitSet termMatches = new BitSet(slots.slotCount());
+            node.collect(termMatches);
+            if (matches == null) {
+                matches = termMatches;
+            } else {
+                matches.and(termMatches);
+            }
+            if (matches.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        List<FoodItem> results = new ArrayList<>(matches.cardinality());
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            results.add(slots.get(slot));
+        }
+        return results;
+    }
+
+    /**
+     * Bỏ dấu tiếng Việt và viết thường: "Cơm Gà Đặc Biệt" -> "com ga dac biet"
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd').replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Các từ (đã bỏ dấu) theo thứ tự xuất hiện, không trùng
+     */
+    public static String[] tokenize(String text) {
+        String folded = fold(text).trim();
+        if (folded.isEmpty()) {
+            return NO_TOKENS;
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : NON_WORD.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens.toArray(NO_TOKENS);
+    }
+
+    /**
+     * Từ của một món, sắp xếp để so khớp nhanh khi cập nhật
+     */
+    private static String[] tokensOf(FoodItem item) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokens.addAll(Arrays.asList(tokenize(item.getName())));
+        tokens.addAll(Arrays.asList(tokenize(item.getDescription())));
+        tokens.addAll(Arrays.asList(tokenize(item.getCategory())));
+        String[] sorted = tokens.toArray(NO_TOKENS);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Nút trie; con lưu trong mảng nhỏ (quét tuyến tính) vì mỗi nút thường chỉ có vài con
+     */
+    private static final class TrieNode {
+        private char[] keys = new char[0];
+        private TrieNode[] children = new TrieNode[0];
+        final SlotList postings = new SlotList(); // Slot các món có từ kết thúc tại nút này
+
+        TrieNode find(String token) {
+            TrieNode node = this;
+            for (int i = 0; i < token.length() && node != null; i++) {
+                node = node.child(token.charAt(i));
+            }
+            return node;
+        }
+
+        TrieNode insert(String token) {
+            TrieNode node = this;
+            for (int i = 0; i < token.length(); i++) {
+                char c = token.charAt(i);
+                TrieNode next = node.child(c);
+                if (next == null) {
+                    next = new TrieNode();
+                    node.keys = Arrays.copyOf(node.keys, node.keys.length + 1);
+                    node.children = Arrays.copyOf(node.children, node.children.length + 1);
+                    node.keys[node.keys.length - 1] = c;
+                    node.children[node.children.length - 1] = next;
+                }
+                node = next;
+            }
+            return node;
+        }
+
+        private TrieNode child(char c) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Gộp slot của mọi từ có tiền tố là nút này
+         */
+        void collect(BitSet into) {
+            postings.addTo(into);
+            for (TrieNode child : children) {
+                child.collect(into);
+            }
+        }
+
+        void clear() {
+            keys = new char[0];
+            children = new TrieNode[0];
+            postings.clear();
+        }
+    }
+}
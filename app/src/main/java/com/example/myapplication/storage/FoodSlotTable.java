@@ -0,0 +1,134 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.FoodItem;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bảng slot dùng chung cho các chỉ mục thực đơn: mỗi món một slot, tra id -> slot -> món
+ * Slot cấp tăng dần theo thứ tự thêm và không dùng lại, nên duyệt theo slot là theo thứ tự thực đơn.
+ * FoodCatalogIndex và FoodSearchIndex đăng ký Listener và chỉ giữ dữ liệu riêng của mình theo slot;
+ * sau nhiều lần xóa, bảng cấp lại slot liền nhau rồi báo các chỉ mục dựng lại.
+ */
+public class FoodSlotTable {
+
+    /**
+     * Chỉ mục đánh theo slot, được báo mỗi lần bảng đổi
+     */
+    public interface Listener {
+        void onAdded(int slot, FoodItem item);
+
+        /** Món cùng id được thay (hoặc sửa tại chỗ), slot giữ nguyên */
+        void onUpdated(int slot, FoodItem item);
+
+        void onRemoved(int slot);
+
+        /** Bảng bị xóa hết, các onAdded tiếp theo dựng lại từ slot 0 */
+        void onCleared();
+    }
+
+    private final List<FoodItem> itemsBySlot = new ArrayList<>();
+    private final IntIntHashMap slotById = new IntIntHashMap();
+    private final List<Listener> listeners = new ArrayList<>();
+    private int liveItems;
+
+    /**
+     * Đăng ký chỉ mục; các món đang có được báo ngay qua onAdded
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        for (int slot = 0; slot < itemsBySlot.size(); slot++) {
+            FoodItem item = itemsBySlot.get(slot);
+            if (item != null) {
+                listener.onAdded(slot, item);
+            }
+        }
+    }
+
+    /**
+     * Thay toàn bộ thực đơn, cấp slot lại từ đầu
+     */
+    public void rebuild(List<FoodItem> items) {
+        itemsBySlot.clear();
+        slotById.clear();
+        liveItems = 0;
+        for (Listener listener : listeners) {
+            listener.onCleared();
+        }
+        for (FoodItem item : items) {
+            put(item);
+        }
+    }
+
+    /**
+     * Thêm món, hoặc thay món cùng id ở slot cũ
+     */
+    public void put(FoodItem item) {
+        int slot = slotById.get(item.getId());
+        if (slot != IntIntHashMap.MISSING) {
+            itemsBySlot.set(slot, item);
+            for (Listener listener : listeners) {
+                listener.onUpdated(slot, item);
+            }
+            return;
+        }
+        slot = itemsBySlot.size();
+        itemsBySlot.add(item);
+        slotById.put(item.getId(), slot);
+        liveItems++;
+        for (Listener listener : listeners) {
+            listener.onAdded(slot, item);
+        }
+    }
+
+    public void remove(int foodId) {
+        int slot = slotById.remove(foodId);
+        if (slot == IntIntHashMap.MISSING) {
+            return;
+        }
+        itemsBySlot.set(slot, null);
+        liveItems--;
+        for (Listener listener : listeners) {
+            listener.onRemoved(slot);
+        }
+        if (itemsBySlot.size() > 64 && liveItems < itemsBySlot.size() / 2) {
+            rebuild(getAll());
+        }
+    }
+
+    /**
+     * @return món theo id, null nếu không có
+     */
+    public FoodItem getById(int foodId) {
+        int slot = slotById.get(foodId);
+        return slot != IntIntHashMap.MISSING ? itemsBySlot.get(slot) : null;
+    }
+
+    /**
+     * @return các món theo thứ tự thực đơn (danh sách mới)
+     */
+    public List<FoodItem> getAll() {
+        List<FoodItem> items = new ArrayList<>(liveItems);
+        for (FoodItem item : itemsBySlot) {
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    public int size() {
+        return liveItems;
+    }
+
+    FoodItem get(int slot) {
+        return itemsBySlot.get(slot);
+    }
+
+    /**
+     * Số slot đã cấp (kể cả slot trống), dùng để định cỡ BitSet
+     */
+    int slotCount() {
+        return itemsBySlot.size();
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.myapplication.storage;
+
+import java.util.Arrays;
+
+/**
+ * Map int -> int dùng open addressing trên hai mảng int
+ * Không boxing Integer nên dùng được cho hàng chục nghìn billId với chi phí
+ * bộ nhớ nhỏ. Khóa 0 được lưu riêng vì ô trống trong mảng là 0.
+ */
+public class IntIntHashMap {
+
+    /** Giá trị trả về khi không có khóa */
+    public static final int MISSING = -1;
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private int[] values;
+    private boolean hasZeroKey;
+    private int zeroValue;
+    private int size;
+
+    public IntIntHashMap() {
+        this(16);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * Chỉ thêm nếu chưa có khóa
+     * @return giá trị đang có, hoặc MISSING nếu vừa thêm mới
+     */
+    public int putIfAbsent(int key, int value) {
+        if (key == 0) {
+            if (hasZeroKey) {
+                return zeroValue;
+            }
+            hasZeroKey = true;
+            zeroValue = value;
+            size++;
+            return MISSING;
+        }
+        if (size + 1 > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+        int index = indexOf(keys, key);
+        if (keys[index] == key) {
+            return values[index];
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        return MISSING;
+    }
+
+    /**
+     * Thêm hoặc ghi đè
+     * @return giá trị cũ, hoặc MISSING nếu chưa có khóa
+     */
+    public int put(int key, int value) {
+        int previous = putIfAbsent(key, value);
+        if (previous == MISSING) {
+            return MISSING;
+        }
+        if (key == 0) {
+            zeroValue = value;
+        } else {
+            values[indexOf(keys, key)] = value;
+        }
+        return previous;
+    }
+
+    /**
+     * @return giá trị đã xóa, hoặc MISSING nếu không có khóa
+     */
+    public int remove(int key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return MISSING;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+        int index = indexOf(keys, key);
+        if (keys[index] != key) {
+            return MISSING;
+        }
+        int removed = values[index];
+        // Dời các khóa phía sau vào chỗ trống để chuỗi dò tuyến tính không bị đứt
+        int mask = keys.length - 1;
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (keys[next] != 0) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0;
+        size--;
+        return removed;
+    }
+
+    public int get(int key) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : MISSING;
+        }
+        int index = indexOf(keys, key);
+        return keys[index] == key ? values[index] : MISSING;
+    }
+
+    public boolean containsKey(int key) {
+        return key == 0 ? hasZeroKey : keys[indexOf(keys, key)] == key;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Các khóa hiện có (không theo thứ tự)
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int i = 0;
+        if (hasZeroKey) {
+            result[i++] = 0;
+        }
+        for (int key : keys) {
+            if (key != 0) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = indexOf(keys, oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Vị trí chứa key hoặc ô trống đầu tiên trên chuỗi dò tuyến tính
+     */
+    private static int indexOf(int[] keys, int key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
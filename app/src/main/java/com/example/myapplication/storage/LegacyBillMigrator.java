@@ -0,0 +1,167 @@
+package com.example.myapplication.storage;
+
+import android.content.SharedPreferences;
+import com.example.myapplication.model.Bill;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+/**
+ * Chuyển dữ liệu hóa đơn cũ sang BillStore
+ * Dữ liệu cũ gồm JSON array trong key {username}_bills của bill_prefs và journal
+ * chưa compact. Trước khi chuyển, dữ liệu được kiểm tra/sửa bằng BillIntegrityChecker.
+ * Mỗi user được ghi trong một transaction rồi mới xóa dữ liệu cũ, nếu bị dừng
+ * giữa chừng thì lần sau chỉ chạy tiếp các user còn lại.
+ */
+public class LegacyBillMigrator {
+
+    public static final String KEY_BILLS_SUFFIX = "_bills";
+
+    private final SharedPreferences prefs;
+    private final BillJournal journal;
+    private final Gson gson;
+    private final BillStreamAggregator aggregator;
+    private final BillIntegrityChecker integrityChecker;
+    private final TypeAdapter<Bill> billAdapter;
+
+    public LegacyBillMigrator(SharedPreferences prefs, BillJournal journal, Gson gson) {
+        this.prefs = prefs;
+        this.journal = journal;
+        this.gson = gson;
+        this.aggregator = new BillStreamAggregator(gson);
+        this.integrityChecker = new BillIntegrityChecker(gson, aggregator);
+        this.billAdapter = gson.getAdapter(Bill.class);
+    }
+
+    /**
+     * Các user còn dữ liệu cũ (trong snapshot hoặc journal)
+     */
+    public Set<String> getUsernames() {
+        Set<String> usernames = new HashSet<>();
+        for (String key : prefs.getAll().keySet()) {
+            if (key.endsWith(KEY_BILLS_SUFFIX)) {
+                usernames.add(key.substring(0, key.length() - KEY_BILLS_SUFFIX.length()));
+            }
+        }
+        usernames.addAll(journal.usernames());
+        return usernames;
+    }
+
+    public boolean hasLegacyData() {
+        return !getUsernames().isEmpty();
+    }
+
+    /**
+     * ID lớn nhất còn trong dữ liệu cũ, 0 nếu không còn
+     */
+    public int findMaxBillId() throws IOException {
+        int[] maxId = {0};
+        BillStreamAggregator.Visitor visitor = record -> maxId[0] = Math.max(maxId[0], record.billId);
+        for (String username : getUsernames()) {
+            for (Bill bill : journal.replayInto(new ArrayList<>(), username)) {
+                aggregator.add(bill, visitor);
+            }
+            aggregator.scan(snapshot(username), BillStreamAggregator.FIELD_ID, null, visitor);
+        }
+        return maxId[0];
+    }
+
+    /**
+     * Kiểm tra dữ liệu cũ (một lượt stream) và sửa các user bị ảnh hưởng ngay trong bill_prefs
+     * @param newIds nguồn cấp ID mới cho hóa đơn trùng/hỏng ID
+     */
+    public BillIntegrityChecker.Report checkAndRepair(IntSupplier newIds) {
+        BillIntegrityChecker.Report report = new BillIntegrityChecker.Report();
+        for (String username : getUsernames()) {
+            integrityChecker.check(username, snapshot(username),
+                    journal.replayInto(new ArrayList<>(), username), report);
+        }
+
+        for (String username : report.getAffectedUsernames()) {
+            try {
+                List<Bill> bills = journal.replayInto(integrityChecker.parseLenient(snapshot(username)), username);
+                integrityChecker.repair(username, bills, report, newIds);
+                prefs.edit().putString(username + KEY_BILLS_SUFFIX, gson.toJson(bills)).commit();
+                journal.truncate(username);
+            } catch (RuntimeException e) {
+                // JSON hỏng hoàn toàn, giữ nguyên để không mất dữ liệu
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Chuyển toàn bộ dữ liệu cũ sang store
+     * ID đã thuộc về user khác trong store (từ lần migrate trước) sẽ được gán ID mới.
+     * User có dữ liệu không đọc được sẽ được giữ nguyên (vẫn còn trong getUsernames()).
+     * @return số hóa đơn đã chuyển
+     */
+    public int migrate(BillStore store, IntSupplier newIds) {
+        checkAndRepair(newIds);
+
+        int migrated = 0;
+        for (String username : getUsernames()) {
+            List<Bill> bills;
+            try {
+                bills = readBills(username);
+            } catch (IOException | RuntimeException e) {
+                continue;
+            }
+            for (Bill bill : bills) {
+                String owner = store.getOwner(bill.getId());
+                if (owner != null && !owner.equals(username)) {
+                    bill.setId(newIds.getAsInt());
+                }
+            }
+            store.putAll(username, bills);
+
+            prefs.edit().remove(username + KEY_BILLS_SUFFIX).commit();
+            journal.truncate(username);
+            migrated += bills.size();
+        }
+        return migrated;
+    }
+
+    /**
+     * Stream snapshot của user từng phần tử một, hóa đơn đã bị journal ghi đè được bỏ qua
+     */
+    private List<Bill> readBills(String username) throws IOException {
+        List<Bill> journalBills = journal.replayInto(new ArrayList<>(), username);
+        Set<Integer> journalIds = new HashSet<>();
+        for (Bill bill : journalBills) {
+            journalIds.add(bill.getId());
+        }
+
+        List<Bill> bills = new ArrayList<>();
+        String json = snapshot(username);
+        if (!json.isEmpty()) {
+            JsonReader reader = new JsonReader(new StringReader(json));
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    continue;
+                }
+                Bill bill = billAdapter.read(reader);
+                if (bill != null && !journalIds.contains(bill.getId())) {
+                    bills.add(bill);
+                }
+            }
+            reader.endArray();
+        }
+        bills.addAll(journalBills);
+        return bills;
+    }
+
+    private String snapshot(String username) {
+        return prefs.getString(username + KEY_BILLS_SUFFIX, "");
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.Bill;
+import java.util.Calendar;
+
+/**
+ * Rollup doanh thu và số đơn theo giờ và theo ngày
+ * Bucket nằm trong bảng revenue_days/revenue_hours của bills.db và được SqliteBillStore cập nhật
+ * trong cùng transaction với lần ghi hóa đơn, nên không thể lệch với hóa đơn đã lưu.
+ * Đơn bị hủy không được tính. Tổng hôm nay/tuần/tháng/năm chỉ cần cộng
+ * vài bucket ngày thay vì quét toàn bộ lịch sử đơn hàng.
+ * Khóa ngày là yyyyMMdd, khóa giờ là yyyyMMddHH (theo múi giờ thiết bị).
+ */
+public final class RevenueRollup {
+
+    /** Chỉ giữ bucket theo giờ trong khoảng này (dùng cho giờ cao điểm) */
+    public static final int HOURLY_RETENTION_DAYS = 14;
+
+    /**
+     * Một bucket: doanh thu và số đơn
+     */
+    public static class Bucket {
+        private double revenue;
+        private int orders;
+
+        public double getRevenue() { return revenue; }
+        public int getOrders() { return orders; }
+
+        void add(double revenue, int orders) {
+            this.revenue += revenue;
+            this.orders += orders;
+        }
+    }
+
+    private RevenueRollup() {
+    }
+
+    /**
+     * Đơn có được tính vào doanh thu không (mọi trạng thái trừ hủy)
+     */
+    public static boolean isCounted(String status) {
+        return status != null && !Bill.STATUS_CANCELLED.equals(status);
+    }
+
+    /**
+     * Khóa giờ đầu tiên còn được giữ bucket giờ
+     */
+    public static int hourlyRetentionStart(long now) {
+        return dayKey(now - HOURLY_RETENTION_DAYS * 24L * 60 * 60 * 1000) * 100;
+    }
+
+    public static int dayKey(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        return calendar.get(Calendar.YEAR) * 10000
+                + (calendar.get(Calendar.MONTH) + 1) * 100
+                + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    public static int hourKey(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        return dayKey(time) * 100 + calendar.get(Calendar.HOUR_OF_DAY);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.myapplication.storage;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Danh sách slot tăng dần trên mảng int (không boxing), dùng cho các chỉ mục thực đơn
+ * Slot mới luôn lớn nhất nên thêm thường chỉ là nối vào cuối.
+ */
+class SlotList {
+    private int[] slots = new int[2];
+    private int size;
+
+    void add(int slot) {
+        int index = size == 0 || slots[size - 1] < slot ? size : Arrays.binarySearch(slots, 0, size, slot);
+        if (index >= 0 && index < size) {
+            return; // Đã có
+        }
+        int insertAt = index >= 0 ? index : -index - 1;
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        System.arraycopy(slots, insertAt, slots, insertAt + 1, size - insertAt);
+        slots[insertAt] = slot;
+        size++;
+    }
+
+    void remove(int slot) {
+        int index = Arrays.binarySearch(slots, 0, size, slot);
+        if (index >= 0) {
+            System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+            size--;
+        }
+    }
+
+    int get(int index) {
+        return slots[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void addTo(BitSet into) {
+        for (int i = 0; i < size; i++) {
+            into.set(slots[i]);
+        }
+    }
+
+    void clear() {
+        slots = new int[2];
+        size = 0;
+    }
+}
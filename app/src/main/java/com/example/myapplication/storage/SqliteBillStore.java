@@ -0,0 +1,877 @@
+package com.example.myapplication.storage;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import com.example.myapplication.model.Bill;
+import com.google.gson.Gson;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * BillStore trên SQLite
+ * Các cột dùng để lọc/tổng hợp (username, status, totalAmount, orderDate) được tách
+ * riêng và có index, phần còn lại của hóa đơn nằm trong payload. Trạng thái và
+ * lastUpdated lấy từ cột nên đổi trạng thái chỉ là một câu UPDATE trên một dòng.
+ * Payload mã hóa bằng BillCodec, tên món lưu một lần trong bảng bill_strings.
+ * Hóa đơn đã lưu trữ chỉ giữ các cột tổng hợp trong archived_bills, payload nằm
+ * trong segment của BillArchive.
+ * Bucket doanh thu (revenue_days/revenue_hours, xem RevenueRollup) được cập nhật trong cùng
+ * transaction với lần ghi hóa đơn làm đổi doanh thu (put, đổi trạng thái vào/ra hủy, xóa).
+ */
+public class SqliteBillStore extends SQLiteOpenHelper implements BillStore {
+
+    public static final String DATABASE_NAME = "bills.db";
+    public static final String ARCHIVE_DIR = "bill_archive";
+    private static final int DATABASE_VERSION = 4;
+
+    static final String TABLE_BILLS = "bills";
+    static final String COL_ID = "billId";
+    static final String COL_USERNAME = "username";
+    static final String COL_STATUS = "status";
+    static final String COL_AMOUNT = "totalAmount";
+    static final String COL_ORDER_DATE = "orderDate";
+    static final String COL_LAST_UPDATED = "lastUpdated";
+    static final String COL_PAYLOAD = "payload";
+
+    static final String TABLE_STRINGS = "bill_strings";
+    static final String COL_STRING_ID = "id";
+    static final String COL_STRING_VALUE = "value";
+
+    static final String TABLE_ARCHIVED = "archived_bills";
+    static final String COL_SEGMENT = "segment";
+
+    static final String TABLE_REVENUE_DAYS = "revenue_days";
+    static final String TABLE_REVENUE_HOURS = "revenue_hours";
+    static final String COL_BUCKET = "bucket";
+    static final String COL_REVENUE = "revenue";
+    static final String COL_ORDERS = "orders";
+
+    private static final String NEWEST_FIRST = " ORDER BY " + COL_ORDER_DATE + " DESC, " + COL_ID + " DESC";
+    private static final String SELECT_BILLS = "SELECT " + COL_ID + ", " + COL_STATUS + ", "
+            + COL_LAST_UPDATED + ", " + COL_PAYLOAD + " FROM " + TABLE_BILLS;
+    private static final String SELECT_ARCHIVED = "SELECT " + COL_ID + ", " + COL_STATUS + ", "
+            + COL_LAST_UPDATED + ", " + COL_SEGMENT + " FROM " + TABLE_ARCHIVED;
+    private static final String AGGREGATE_COLUMNS = COL_ID + ", " + COL_USERNAME + ", "
+            + COL_STATUS + ", " + COL_AMOUNT + ", " + COL_ORDER_DATE;
+
+    private final SqliteStringDictionary dictionary;
+    private final BillCodec codec;
+    private final BillArchive archive;
+    private String cachedSegment;
+    private Map<Integer, byte[]> cachedPayloads;
+
+    public SqliteBillStore(Context context, Gson gson) {
+        this(context, DATABASE_NAME, new File(context.getFilesDir(), ARCHIVE_DIR), gson);
+    }
+
+    /**
+     * @param name tên file database, null để dùng database trong bộ nhớ (test)
+     * @param archiveDirectory thư mục chứa segment lưu trữ
+     */
+    public SqliteBillStore(Context context, String name, File archiveDirectory, Gson gson) {
+        super(context, name, null, DATABASE_VERSION);
+        this.dictionary = new SqliteStringDictionary();
+        this.codec = new BillCodec(gson, dictionary);
+        this.archive = new BillArchive(archiveDirectory);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_BILLS + " ("
+                + COL_ID + " INTEGER PRIMARY KEY, "
+                + COL_USERNAME + " TEXT NOT NULL, "
+                + COL_STATUS + " TEXT NOT NULL, "
+                + COL_AMOUNT + " REAL NOT NULL, "
+                + COL_ORDER_DATE + " INTEGER NOT NULL, "
+                + COL_LAST_UPDATED + " INTEGER, "
+                + COL_PAYLOAD + " BLOB NOT NULL)");
+        db.execSQL("CREATE INDEX idx_bills_username_date ON " + TABLE_BILLS
+                + " (" + COL_USERNAME + ", " + COL_ORDER_DATE + ")");
+        db.execSQL("CREATE INDEX idx_bills_status_date ON " + TABLE_BILLS
+                + " (" + COL_STATUS + ", " + COL_ORDER_DATE + ")");
+        db.execSQL("CREATE INDEX idx_bills_date ON " + TABLE_BILLS
+                + " (" + COL_ORDER_DATE + ")");
+        createStringsTable(db);
+        createArchiveTable(db);
+        createRevenueTables(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // Payload JSON của v1 vẫn đọc được, chỉ cần thêm bảng chuỗi
+            createStringsTable(db);
+        }
+        if (oldVersion < 3) {
+            createArchiveTable(db);
+        }
+        if (oldVersion < 4) {
+            // Rollup trước đây nằm ngoài database, dựng lại từ hóa đơn đang có
+            createRevenueTables(db);
+            rebuildRevenue(db);
+        }
+    }
+
+    private static void createStringsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_STRINGS + " ("
+                + COL_STRING_ID + " INTEGER PRIMARY KEY, "
+                + COL_STRING_VALUE + " TEXT NOT NULL UNIQUE)");
+    }
+
+    private static void createArchiveTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ARCHIVED + " ("
+                + COL_ID + " INTEGER PRIMARY KEY, "
+                + COL_USERNAME + " TEXT NOT NULL, "
+                + COL_STATUS + " TEXT NOT NULL, "
+                + COL_AMOUNT + " REAL NOT NULL, "
+                + COL_ORDER_DATE + " INTEGER NOT NULL, "
+                + COL_LAST_UPDATED + " INTEGER, "
+                + COL_SEGMENT + " TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX idx_archived_username_date ON " + TABLE_ARCHIVED
+                + " (" + COL_USERNAME + ", " + COL_ORDER_DATE + ")");
+        db.execSQL("CREATE INDEX idx_archived_date ON " + TABLE_ARCHIVED
+                + " (" + COL_ORDER_DATE + ")");
+        db.execSQL("CREATE INDEX idx_archived_segment ON " + TABLE_ARCHIVED
+                + " (" + COL_SEGMENT + ")");
+    }
+
+    private static void createRevenueTables(SQLiteDatabase db) {
+        for (String table : new String[]{TABLE_REVENUE_DAYS, TABLE_REVENUE_HOURS}) {
+            db.execSQL("CREATE TABLE " + table + " ("
+                    + COL_BUCKET + " INTEGER PRIMARY KEY, "
+                    + COL_REVENUE + " REAL NOT NULL, "
+                    + COL_ORDERS + " INTEGER NOT NULL)");
+        }
+    }
+
+    private static void rebuildRevenue(SQLiteDatabase db) {
+        int retentionStart = RevenueRollup.hourlyRetentionStart(System.currentTimeMillis());
+        for (String table : new String[]{TABLE_BILLS, TABLE_ARCHIVED}) {
+            try (Cursor cursor = db.rawQuery("SELECT " + COL_AMOUNT + ", " + COL_ORDER_DATE + " FROM " + table
+                    + " WHERE " + COL_STATUS + " != ?", new String[]{Bill.STATUS_CANCELLED})) {
+                while (cursor.moveToNext()) {
+                    addRevenue(db, cursor.getLong(1), cursor.getDouble(0), 1, retentionStart);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void put(String username, Bill bill) {
+        putAll(username, Collections.singletonList(bill));
+    }
+
+    @Override
+    public void putAll(String username, List<Bill> bills) {
+        SQLiteDatabase db = getWritableDatabase();
+        boolean success = false;
+        boolean unarchived = false;
+        db.beginTransaction();
+        try {
+            for (Bill bill : bills) {
+                BillStreamAggregator.Record old = readRevenueRow(db, TABLE_BILLS, bill.getId());
+                if (old == null) {
+                    old = readRevenueRow(db, TABLE_ARCHIVED, bill.getId());
+                }
+                ContentValues values = toValues(username, bill);
+                db.insertWithOnConflict(TABLE_BILLS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                updateRevenue(db, old, values.getAsString(COL_STATUS),
+                        values.getAsDouble(COL_AMOUNT), values.getAsLong(COL_ORDER_DATE));
+                // Ghi lại hóa đơn đã lưu trữ thì bản trong bảng chính là bản duy nhất
+                unarchived |= db.delete(TABLE_ARCHIVED, COL_ID + " = ?",
+                        new String[]{String.valueOf(bill.getId())}) > 0;
+            }
+            db.setTransactionSuccessful();
+            success = true;
+        } finally {
+            db.endTransaction();
+            if (!success) {
+                // Chuỗi mới thêm trong transaction đã bị rollback
+                dictionary.invalidate();
+            }
+        }
+        // Trong transaction bên ngoài (runInTransaction) thì để lần lưu trữ sau dọn, tránh xóa
+        // segment mà transaction đó có thể rollback lại
+        if (unarchived && !db.inTransaction()) {
+            deleteUnreferencedSegments();
+        }
+    }
+
+    @Override
+    public boolean updateStatus(int billId, String status, long updatedAt) {
+        SQLiteDatabase db = getWritableDatabase();
+        BillStreamAggregator.Record old;
+        db.beginTransaction();
+        try {
+            old = readRevenueRow(db, TABLE_BILLS, billId);
+            if (old != null) {
+                ContentValues values = new ContentValues();
+                values.put(COL_STATUS, status);
+                values.put(COL_LAST_UPDATED, updatedAt);
+                db.update(TABLE_BILLS, values, COL_ID + " = ?", new String[]{String.valueOf(billId)});
+                updateRevenue(db, old, status, old.totalAmount, old.orderDate);
+            }
+            // Kể cả khi không có dòng nào: transaction này có thể nằm trong lô của BufferedBillStore
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (old != null) {
+            return true;
+        }
+
+        // Hóa đơn đã lưu trữ được đưa lại vào bảng chính với trạng thái mới
+        String owner = getArchivedOwner(billId);
+        Bill bill = owner != null ? getArchivedBill(billId) : null;
+        if (bill == null) {
+            return false;
+        }
+        bill.setStatus(status);
+        bill.setLastUpdated(new Date(updatedAt));
+        put(owner, bill);
+        return true;
+    }
+
+    @Override
+    public int updateStatus(List<Integer> billIds, String expectedStatus, String status, long updatedAt) {
+        SQLiteDatabase db = getWritableDatabase();
+        int updated = 0;
+        db.beginTransaction();
+        try {
+            SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_BILLS + " SET "
+                    + COL_STATUS + " = ?, " + COL_LAST_UPDATED + " = ? WHERE "
+                    + COL_ID + " = ? AND " + COL_STATUS + " = ?");
+            update.bindString(1, status);
+            update.bindLong(2, updatedAt);
+            update.bindString(4, expectedStatus);
+            // DELIVERING -> DELIVERED không đổi doanh thu, chỉ đọc dòng cũ khi đổi vào/ra trạng thái hủy
+            boolean revenueChanges = RevenueRollup.isCounted(expectedStatus) != RevenueRollup.isCounted(status);
+            for (int billId : billIds) {
+                BillStreamAggregator.Record old = revenueChanges ? readRevenueRow(db, TABLE_BILLS, billId) : null;
+                update.bindLong(3, billId);
+                if (update.executeUpdateDelete() > 0) {
+                    updated++;
+                    if (old != null) {
+                        updateRevenue(db, old, status, old.totalAmount, old.orderDate);
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return updated;
+    }
+
+    @Override
+    public void runInTransaction(Runnable work) {
+        SQLiteDatabase db = getWritableDatabase();
+        boolean success = false;
+        db.beginTransaction();
+        try {
+            work.run();
+            db.setTransactionSuccessful();
+            success = true;
+        } finally {
+            db.endTransaction();
+            if (!success) {
+                dictionary.invalidate();
+            }
+        }
+    }
+
+    @Override
+    public Bill get(int billId) {
+        List<Bill> bills = query(SELECT_BILLS + " WHERE " + COL_ID + " = ?", String.valueOf(billId));
+        return !bills.isEmpty() ? bills.get(0) : getArchivedBill(billId);
+    }
+
+    @Override
+    public String getOwner(int billId) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT " + COL_USERNAME + " FROM " + TABLE_BILLS + " WHERE " + COL_ID + " = ?",
+                new String[]{String.valueOf(billId)})) {
+            if (cursor.moveToFirst()) {
+                return cursor.getString(0);
+            }
+        }
+        return getArchivedOwner(billId);
+    }
+
+    @Override
+    public List<Bill> getAll() {
+        return query(SELECT_BILLS + NEWEST_FIRST);
+    }
+
+    @Override
+    public List<Bill> getByUsername(String username) {
+        return query(SELECT_BILLS + " WHERE " + COL_USERNAME + " = ?" + NEWEST_FIRST, username);
+    }
+
+    @Override
+    public List<Bill> getByUsernameAndStatus(String username, String status) {
+        return query(SELECT_BILLS + " WHERE " + COL_USERNAME + " = ? AND " + COL_STATUS + " = ?" + NEWEST_FIRST,
+                username, status);
+    }
+
+    @Override
+    public List<Bill> getByStatus(String status) {
+        return query(SELECT_BILLS + " WHERE " + COL_STATUS + " = ?" + NEWEST_FIRST, status);
+    }
+
+    @Override
+    public int count(String username, String status) {
+        List<String> args = new ArrayList<>();
+        String where = where(username, status, args);
+        args.addAll(new ArrayList<>(args));
+        return (int) DatabaseUtils.longForQuery(getReadableDatabase(),
+                "SELECT (SELECT COUNT(*) FROM " + TABLE_BILLS + where + ")"
+                        + " + (SELECT COUNT(*) FROM " + TABLE_ARCHIVED + where + ")",
+                args.toArray(new String[0]));
+    }
+
+    @Override
+    public double sumAmount(String username) {
+        List<String> args = new ArrayList<>();
+        String where = where(username, null, args);
+        args.addAll(new ArrayList<>(args));
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT (SELECT TOTAL(" + COL_AMOUNT + ") FROM " + TABLE_BILLS + where + ")"
+                        + " + (SELECT TOTAL(" + COL_AMOUNT + ") FROM " + TABLE_ARCHIVED + where + ")",
+                args.toArray(new String[0]))) {
+            return cursor.moveToFirst() ? cursor.getDouble(0) : 0;
+        }
+    }
+
+    @Override
+    public int getMaxBillId() {
+        return (int) DatabaseUtils.longForQuery(getReadableDatabase(),
+                "SELECT MAX((SELECT IFNULL(MAX(" + COL_ID + "), 0) FROM " + TABLE_BILLS + "), "
+                        + "(SELECT IFNULL(MAX(" + COL_ID + "), 0) FROM " + TABLE_ARCHIVED + "))", null);
+    }
+
+    @Override
+    public long getLatestOrderDate(String username) {
+        return DatabaseUtils.longForQuery(getReadableDatabase(),
+                "SELECT MAX((SELECT IFNULL(MAX(" + COL_ORDER_DATE + "), 0) FROM " + TABLE_BILLS
+                        + " WHERE " + COL_USERNAME + " = ?), "
+                        + "(SELECT IFNULL(MAX(" + COL_ORDER_DATE + "), 0) FROM " + TABLE_ARCHIVED
+                        + " WHERE " + COL_USERNAME + " = ?))", new String[]{username, username});
+    }
+
+    @Override
+    public int deleteByUsername(String username) {
+        SQLiteDatabase db = getWritableDatabase();
+        int deleted;
+        db.beginTransaction();
+        try {
+            String[] args = {username};
+            int retentionStart = RevenueRollup.hourlyRetentionStart(System.currentTimeMillis());
+            for (String table : new String[]{TABLE_BILLS, TABLE_ARCHIVED}) {
+                try (Cursor cursor = db.rawQuery("SELECT " + COL_AMOUNT + ", " + COL_ORDER_DATE + " FROM " + table
+                        + " WHERE " + COL_USERNAME + " = ? AND " + COL_STATUS + " != ?",
+                        new String[]{username, Bill.STATUS_CANCELLED})) {
+                    while (cursor.moveToNext()) {
+                        addRevenue(db, cursor.getLong(1), -cursor.getDouble(0), -1, retentionStart);
+                    }
+                }
+            }
+            deleted = db.delete(TABLE_BILLS, COL_USERNAME + " = ?", args)
+                    + db.delete(TABLE_ARCHIVED, COL_USERNAME + " = ?", args);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        deleteUnreferencedSegments();
+        return deleted;
+    }
+
+    @Override
+    public RevenueRollup.Bucket sumRevenue(int fromDay, int toDay) {
+        RevenueRollup.Bucket total = new RevenueRollup.Bucket();
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT TOTAL(" + COL_REVENUE + "), IFNULL(SUM("
+                        + COL_ORDERS + "), 0) FROM " + TABLE_REVENUE_DAYS + " WHERE " + COL_BUCKET + " BETWEEN ? AND ?",
+                new String[]{String.valueOf(fromDay), String.valueOf(toDay)})) {
+            if (cursor.moveToFirst()) {
+                total.add(cursor.getDouble(0), cursor.getInt(1));
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public int getPeakHour(int fromHour) {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT " + COL_BUCKET + " % 100 AS hourOfDay FROM "
+                        + TABLE_REVENUE_HOURS + " WHERE " + COL_BUCKET + " >= ? GROUP BY hourOfDay"
+                        + " HAVING SUM(" + COL_ORDERS + ") > 0 ORDER BY SUM(" + COL_ORDERS + ") DESC, hourOfDay LIMIT 1",
+                new String[]{String.valueOf(fromHour)})) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : -1;
+        }
+    }
+
+    /**
+     * Trạng thái, tiền và ngày của một hóa đơn trong bảng, null nếu không có
+     */
+    private static BillStreamAggregator.Record readRevenueRow(SQLiteDatabase db, String table, int billId) {
+        try (Cursor cursor = db.rawQuery("SELECT " + COL_STATUS + ", " + COL_AMOUNT + ", " + COL_ORDER_DATE
+                + " FROM " + table + " WHERE " + COL_ID + " = ?", new String[]{String.valueOf(billId)})) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            BillStreamAggregator.Record record = new BillStreamAggregator.Record();
+            record.billId = billId;
+            record.status = cursor.getString(0);
+            record.totalAmount = cursor.getDouble(1);
+            record.orderDate = cursor.getLong(2);
+            return record;
+        }
+    }
+
+    /**
+     * Chuyển phần doanh thu của một hóa đơn từ dòng cũ (null nếu là hóa đơn mới) sang giá trị mới,
+     * chạy trong transaction của lần ghi hóa đơn
+     */
+    private static void updateRevenue(SQLiteDatabase db, BillStreamAggregator.Record old,
+                                      String status, double amount, long orderDate) {
+        boolean wasCounted = old != null && RevenueRollup.isCounted(old.status);
+        boolean isCounted = RevenueRollup.isCounted(status);
+        if (wasCounted && isCounted && old.totalAmount == amount && old.orderDate == orderDate) {
+            return;
+        }
+        if (!wasCounted && !isCounted) {
+            return;
+        }
+        int retentionStart = RevenueRollup.hourlyRetentionStart(System.currentTimeMillis());
+        if (wasCounted) {
+            addRevenue(db, old.orderDate, -old.totalAmount, -1, retentionStart);
+        }
+        if (isCounted) {
+            addRevenue(db, orderDate, amount, 1, retentionStart);
+        }
+        db.delete(TABLE_REVENUE_HOURS, COL_BUCKET + " < ?", new String[]{String.valueOf(retentionStart)});
+    }
+
+    private static void addRevenue(SQLiteDatabase db, long orderDate, double amount, int orders, int retentionStart) {
+        addToBucket(db, TABLE_REVENUE_DAYS, RevenueRollup.dayKey(orderDate), amount, orders);
+        int hourKey = RevenueRollup.hourKey(orderDate);
+        if (hourKey >= retentionStart) {
+            addToBucket(db, TABLE_REVENUE_HOURS, hourKey, amount, orders);
+        }
+    }
+
+    private static void addToBucket(SQLiteDatabase db, String table, int key, double amount, int orders) {
+        SQLiteStatement update = db.compileStatement("UPDATE " + table + " SET "
+                + COL_REVENUE + " = " + COL_REVENUE + " + ?, " + COL_ORDERS + " = " + COL_ORDERS + " + ?"
+                + " WHERE " + COL_BUCKET + " = ?");
+        update.bindDouble(1, amount);
+        update.bindLong(2, orders);
+        update.bindLong(3, key);
+        if (update.executeUpdateDelete() == 0) {
+            ContentValues values = new ContentValues();
+            values.put(COL_BUCKET, key);
+            values.put(COL_REVENUE, amount);
+            values.put(COL_ORDERS, orders);
+            db.insert(table, null, values);
+        }
+    }
+
+    @Override
+    public int archiveCompletedBefore(long cutoff) {
+        deleteUnreferencedSegments();
+        long runId = newArchiveRunId();
+
+        Map<String, List<BillArchive.Entry>> entriesBySegment = new LinkedHashMap<>();
+        List<ContentValues> archivedRows = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT " + AGGREGATE_COLUMNS + ", "
+                        + COL_LAST_UPDATED + ", " + COL_PAYLOAD + " FROM " + TABLE_BILLS
+                        + " WHERE " + COL_STATUS + " IN (?, ?) AND " + COL_ORDER_DATE + " < ?",
+                new String[]{Bill.STATUS_DELIVERED, Bill.STATUS_CANCELLED, String.valueOf(cutoff)})) {
+            while (cursor.moveToNext()) {
+                String segment = BillArchive.segmentOf(cursor.getLong(4), runId);
+                List<BillArchive.Entry> entries = entriesBySegment.get(segment);
+                if (entries == null) {
+                    entries = new ArrayList<>();
+                    entriesBySegment.put(segment, entries);
+                }
+                entries.add(new BillArchive.Entry(cursor.getInt(0), cursor.getString(1), cursor.getBlob(6)));
+
+                ContentValues row = new ContentValues();
+                row.put(COL_ID, cursor.getInt(0));
+                row.put(COL_USERNAME, cursor.getString(1));
+                row.put(COL_STATUS, cursor.getString(2));
+                row.put(COL_AMOUNT, cursor.getDouble(3));
+                row.put(COL_ORDER_DATE, cursor.getLong(4));
+                if (!cursor.isNull(5)) {
+                    row.put(COL_LAST_UPDATED, cursor.getLong(5));
+                }
+                row.put(COL_SEGMENT, segment);
+                archivedRows.add(row);
+            }
+        }
+        if (archivedRows.isEmpty()) {
+            return 0;
+        }
+
+        // Ghi segment trước, chỉ khi đã ghi xong mới chuyển index và xóa khỏi bảng chính
+        try {
+            for (Map.Entry<String, List<BillArchive.Entry>> segment : entriesBySegment.entrySet()) {
+                archive.write(segment.getKey(), segment.getValue());
+            }
+        } catch (IOException e) {
+            deleteUnreferencedSegments();
+            throw new UncheckedIOException(e);
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement delete = db.compileStatement(
+                    "DELETE FROM " + TABLE_BILLS + " WHERE " + COL_ID + " = ?");
+            for (ContentValues row : archivedRows) {
+                db.insertWithOnConflict(TABLE_ARCHIVED, null, row, SQLiteDatabase.CONFLICT_REPLACE);
+                delete.bindLong(1, row.getAsInteger(COL_ID));
+                delete.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return archivedRows.size();
+    }
+
+    @Override
+    public List<Bill> getArchived(String username, String status, long fromTime, long toTime) {
+        List<String> args = new ArrayList<>();
+        String where = where(username, status, args);
+        args.add(String.valueOf(fromTime));
+        args.add(String.valueOf(toTime));
+        return queryArchived(SELECT_ARCHIVED + where + (where.isEmpty() ? " WHERE " : " AND ")
+                + COL_ORDER_DATE + " >= ? AND " + COL_ORDER_DATE + " < ?" + NEWEST_FIRST,
+                args.toArray(new String[0]));
+    }
+
+    @Override
+    public BillPage getPage(String username, String status, String cursor, int limit) {
+        long beforeDate = Long.MAX_VALUE;
+        long beforeId = Long.MAX_VALUE;
+        if (cursor != null) {
+            long[] position = BillPage.decodeCursor(cursor);
+            beforeDate = position[0];
+            beforeId = position[1];
+        }
+        List<String> args = new ArrayList<>();
+        String where = where(username, status, args);
+        // orderDate <= ? để dùng được index (..., orderDate), phần OR chỉ tách các hóa đơn cùng ngày
+        where += (where.isEmpty() ? " WHERE " : " AND ") + COL_ORDER_DATE + " <= ? AND ("
+                + COL_ORDER_DATE + " < ? OR " + COL_ID + " < ?)";
+        args.add(String.valueOf(beforeDate));
+        args.add(String.valueOf(beforeDate));
+        args.add(String.valueOf(beforeId));
+        String[] selectionArgs = args.toArray(new String[0]);
+        // Mỗi tầng lấy tối đa limit + 1 dòng, dòng thừa sau khi trộn cho biết còn trang sau
+        String tail = where + NEWEST_FIRST + " LIMIT " + (limit + 1);
+
+        List<Bill> recent = query(SELECT_BILLS + tail, selectionArgs);
+        List<long[]> archivedKeys = new ArrayList<>();
+        try (Cursor rows = getReadableDatabase().rawQuery("SELECT " + COL_ORDER_DATE + ", " + COL_ID
+                + " FROM " + TABLE_ARCHIVED + tail, selectionArgs)) {
+            while (rows.moveToNext()) {
+                archivedKeys.add(new long[]{rows.getLong(0), rows.getLong(1)});
+            }
+        }
+
+        // Trộn hai danh sách đã sắp xếp, chỉ đọc segment cho hóa đơn lưu trữ lọt vào trang
+        List<Integer> pageIds = new ArrayList<>(limit);
+        Map<Integer, Bill> billsById = new HashMap<>();
+        List<String> archivedIds = new ArrayList<>();
+        int r = 0;
+        int a = 0;
+        long lastDate = 0;
+        long lastId = 0;
+        while (pageIds.size() < limit && (r < recent.size() || a < archivedKeys.size())) {
+            long[] key = a < archivedKeys.size() ? archivedKeys.get(a) : null;
+            Bill bill = r < recent.size() ? recent.get(r) : null;
+            if (bill != null && (key == null || compareNewestFirst(orderDateOf(bill), bill.getId(), key) <= 0)) {
+                pageIds.add(bill.getId());
+                billsById.put(bill.getId(), bill);
+                lastDate = orderDateOf(bill);
+                lastId = bill.getId();
+                r++;
+            } else {
+                pageIds.add((int) key[1]);
+                archivedIds.add(String.valueOf(key[1]));
+                lastDate = key[0];
+                lastId = key[1];
+                a++;
+            }
+        }
+        boolean hasMore = r < recent.size() || a < archivedKeys.size();
+
+        if (!archivedIds.isEmpty()) {
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < archivedIds.size(); i++) {
+                placeholders.append(i == 0 ? "?" : ", ?");
+            }
+            for (Bill bill : queryArchived(SELECT_ARCHIVED + " WHERE " + COL_ID + " IN (" + placeholders + ")",
+                    archivedIds.toArray(new String[0]))) {
+                billsById.put(bill.getId(), bill);
+            }
+        }
+        List<Bill> bills = new ArrayList<>(pageIds.size());
+        for (int billId : pageIds) {
+            Bill bill = billsById.get(billId);
+            if (bill != null) {
+                bills.add(bill);
+            }
+        }
+        return new BillPage(bills, hasMore ? BillPage.encodeCursor(lastDate, (int) lastId) : null);
+    }
+
+    /**
+     * Âm nếu (orderDate, billId) đứng trước key theo thứ tự mới nhất trước
+     */
+    private static int compareNewestFirst(long orderDate, long billId, long[] key) {
+        if (orderDate != key[0]) {
+            return orderDate > key[0] ? -1 : 1;
+        }
+        return Long.compare(key[1], billId);
+    }
+
+    private static long orderDateOf(Bill bill) {
+        return bill.getOrderDate() != null ? bill.getOrderDate().getTime() : 0L;
+    }
+
+    private Bill getArchivedBill(int billId) {
+        List<Bill> bills = queryArchived(SELECT_ARCHIVED + " WHERE " + COL_ID + " = ?", String.valueOf(billId));
+        return bills.isEmpty() ? null : bills.get(0);
+    }
+
+    private String getArchivedOwner(int billId) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT " + COL_USERNAME + " FROM " + TABLE_ARCHIVED + " WHERE " + COL_ID + " = ?",
+                new String[]{String.valueOf(billId)})) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    /**
+     * Đọc hóa đơn lưu trữ: lấy danh sách từ archived_bills rồi chỉ mở các segment cần thiết
+     */
+    private List<Bill> queryArchived(String sql, String... args) {
+        List<Integer> ids = new ArrayList<>();
+        Map<Integer, String> statuses = new HashMap<>();
+        Map<Integer, Long> lastUpdated = new HashMap<>();
+        Map<String, Set<Integer>> idsBySegment = new LinkedHashMap<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(sql, args)) {
+            while (cursor.moveToNext()) {
+                int billId = cursor.getInt(0);
+                ids.add(billId);
+                statuses.put(billId, cursor.getString(1));
+                if (!cursor.isNull(2)) {
+                    lastUpdated.put(billId, cursor.getLong(2));
+                }
+                Set<Integer> segmentIds = idsBySegment.get(cursor.getString(3));
+                if (segmentIds == null) {
+                    segmentIds = new HashSet<>();
+                    idsBySegment.put(cursor.getString(3), segmentIds);
+                }
+                segmentIds.add(billId);
+            }
+        }
+
+        Map<Integer, byte[]> payloads = new HashMap<>();
+        try {
+            for (Map.Entry<String, Set<Integer>> segment : idsBySegment.entrySet()) {
+                Map<Integer, byte[]> segmentPayloads = readSegment(segment.getKey());
+                for (int billId : segment.getValue()) {
+                    byte[] payload = segmentPayloads.get(billId);
+                    if (payload != null) {
+                        payloads.put(billId, payload);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<Bill> bills = new ArrayList<>(ids.size());
+        for (int billId : ids) {
+            byte[] payload = payloads.get(billId);
+            if (payload == null) {
+                continue;
+            }
+            Bill bill = codec.decode(payload);
+            bill.setId(billId);
+            bill.setStatus(statuses.get(billId));
+            if (lastUpdated.containsKey(billId)) {
+                bill.setLastUpdated(new Date(lastUpdated.get(billId)));
+            }
+            bills.add(bill);
+        }
+        return bills;
+    }
+
+    /**
+     * Payload theo billId của một segment; giữ lại segment đọc gần nhất vì các trang
+     * lịch sử liên tiếp thường rơi vào cùng một tháng (segment không bao giờ bị sửa)
+     */
+    private Map<Integer, byte[]> readSegment(String segment) throws IOException {
+        synchronized (archive) {
+            if (!segment.equals(cachedSegment)) {
+                Map<Integer, byte[]> payloads = new HashMap<>();
+                archive.read(segment, entry -> payloads.put(entry.billId, entry.payload));
+                cachedSegment = segment;
+                cachedPayloads = payloads;
+            }
+            return cachedPayloads;
+        }
+    }
+
+    /**
+     * ID cho lần lưu trữ mới, không trùng với segment đã có trên đĩa
+     */
+    private long newArchiveRunId() {
+        Set<String> runs = new HashSet<>();
+        for (String segment : archive.listSegments()) {
+            runs.add(segment.substring(segment.indexOf('-') + 1));
+        }
+        long runId = System.currentTimeMillis();
+        while (runs.contains(String.valueOf(runId))) {
+            runId++;
+        }
+        return runId;
+    }
+
+    /**
+     * Xóa segment không còn hóa đơn nào tham chiếu (đã khôi phục/xóa hết, hoặc lần lưu trữ bị dừng)
+     */
+    private void deleteUnreferencedSegments() {
+        Set<String> referenced = new HashSet<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT DISTINCT " + COL_SEGMENT + " FROM " + TABLE_ARCHIVED, null)) {
+            while (cursor.moveToNext()) {
+                referenced.add(cursor.getString(0));
+            }
+        }
+        synchronized (archive) {
+            for (String segment : archive.listSegments()) {
+                if (!referenced.contains(segment)) {
+                    archive.delete(segment);
+                    if (segment.equals(cachedSegment)) {
+                        cachedSegment = null;
+                        cachedPayloads = null;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Điều kiện WHERE theo username/status (null = không lọc), thêm tham số vào args
+     */
+    private static String where(String username, String status, List<String> args) {
+        StringBuilder where = new StringBuilder();
+        if (username != null) {
+            where.append(" WHERE ").append(COL_USERNAME).append(" = ?");
+            args.add(username);
+        }
+        if (status != null) {
+            where.append(username == null ? " WHERE " : " AND ").append(COL_STATUS).append(" = ?");
+            args.add(status);
+        }
+        return where.toString();
+    }
+
+    private List<Bill> query(String sql, String... args) {
+        List<Bill> bills = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(sql, args)) {
+            while (cursor.moveToNext()) {
+                Bill bill = codec.decode(cursor.getBlob(3));
+                bill.setId(cursor.getInt(0));
+                bill.setStatus(cursor.getString(1));
+                if (!cursor.isNull(2)) {
+                    bill.setLastUpdated(new Date(cursor.getLong(2)));
+                }
+                bills.add(bill);
+            }
+        }
+        return bills;
+    }
+
+    private ContentValues toValues(String username, Bill bill) {
+        ContentValues values = new ContentValues();
+        values.put(COL_ID, bill.getId());
+        values.put(COL_USERNAME, username);
+        values.put(COL_STATUS, bill.getStatus() != null ? bill.getStatus() : Bill.STATUS_PENDING);
+        values.put(COL_AMOUNT, bill.getTotalAmount());
+        values.put(COL_ORDER_DATE, bill.getOrderDate() != null ? bill.getOrderDate().getTime() : 0L);
+        if (bill.getLastUpdated() != null) {
+            values.put(COL_LAST_UPDATED, bill.getLastUpdated().getTime());
+        }
+        values.put(COL_PAYLOAD, codec.encode(bill));
+        return values;
+    }
+
+    /**
+     * Bảng chuỗi trong bill_strings, cache toàn bộ trong bộ nhớ (số tên món nhỏ)
+     */
+    private class SqliteStringDictionary implements BillCodec.StringDictionary {
+        private Map<String, Integer> ids;
+        private Map<Integer, String> values;
+
+        @Override
+        public synchronized int idOf(String value) {
+            load();
+            Integer id = ids.get(value);
+            if (id == null) {
+                ContentValues row = new ContentValues();
+                row.put(COL_STRING_VALUE, value);
+                id = (int) getWritableDatabase().insertOrThrow(TABLE_STRINGS, null, row);
+                ids.put(value, id);
+                values.put(id, value);
+            }
+            return id;
+        }
+
+        @Override
+        public synchronized String valueOf(int id) {
+            load();
+            return values.get(id);
+        }
+
+        synchronized void invalidate() {
+            ids = null;
+            values = null;
+        }
+
+        private void load() {
+            if (ids != null) {
+                return;
+            }
+            ids = new HashMap<>();
+            values = new HashMap<>();
+            try (Cursor cursor = getReadableDatabase().rawQuery("SELECT " + COL_STRING_ID + ", "
+                    + COL_STRING_VALUE + " FROM " + TABLE_STRINGS, null)) {
+                while (cursor.moveToNext()) {
+                    ids.put(cursor.getString(1), cursor.getInt(0));
+                    values.put(cursor.getInt(0), cursor.getString(1));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.myapplication.storage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU theo key (username) có giới hạn theo tổng trọng số thay vì số phần tử
+ * Dùng để giữ dữ liệu làm việc của các user vừa dùng máy (giỏ hàng) trong bộ nhớ:
+ * đổi qua lại giữa các user gần đây không phải đọc lại prefs. Phần tử bị đẩy ra
+ * được báo cho EvictionListener (ngoài khóa).
+ */
+public class WorkingSetCache<V> {
+
+    /** Trọng số của một giá trị, ví dụ số dòng trong giỏ */
+    public interface Weigher<V> {
+        int weigh(V value);
+    }
+
+    /** Nhận phần tử bị đẩy khỏi cache */
+    public interface EvictionListener<V> {
+        void onEvicted(String key, V value);
+    }
+
+    private final int maxWeight;
+    private final Weigher<V> weigher;
+    private final EvictionListener<V> evictionListener;
+    private final LinkedHashMap<String, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int weight;
+    private int hitCount;
+    private int missCount;
+    private int evictionCount;
+
+    public WorkingSetCache(int maxWeight, Weigher<V> weigher, EvictionListener<V> evictionListener) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * @return giá trị đã cache (và đánh dấu vừa dùng), null nếu không có
+     */
+    public synchronized V get(String key) {
+        V value = entries.get(key);
+        if (value != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return value;
+    }
+
+    /**
+     * Lấy ra và bỏ khỏi cache (khi user trở lại dùng máy), tính là một lần hit/miss
+     */
+    public synchronized V take(String key) {
+        V value = entries.remove(key);
+        if (value == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        weight -= weigh(value);
+        return value;
+    }
+
+    /**
+     * Thêm/thay giá trị, đẩy các phần tử lâu không dùng nhất ra đến khi đủ giới hạn
+     * Phần tử vừa thêm không bị đẩy ra ngay cả khi một mình nó vượt giới hạn.
+     */
+    public void put(String key, V value) {
+        List<Map.Entry<String, V>> evicted = new ArrayList<>();
+        synchronized (this) {
+            V previous = entries.put(key, value);
+            if (previous != null) {
+                weight -= weigh(previous);
+            }
+            weight += weigh(value);
+            Iterator<Map.Entry<String, V>> iterator = entries.entrySet().iterator();
+            while (weight > maxWeight && entries.size() > 1) {
+                Map.Entry<String, V> eldest = iterator.next();
+                iterator.remove();
+                weight -= weigh(eldest.getValue());
+                evictionCount++;
+                evicted.add(eldest);
+            }
+        }
+        for (Map.Entry<String, V> entry : evicted) {
+            evictionListener.onEvicted(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public synchronized V remove(String key) {
+        V value = entries.remove(key);
+        if (value != null) {
+            weight -= weigh(value);
+        }
+        return value;
+    }
+
+    private int weigh(V value) {
+        // +1 để cả giá trị rỗng cũng chiếm chỗ, số user được giữ luôn có giới hạn
+        return weigher.weigh(value) + 1;
+    }
+
+    public synchronized int size() { return entries.size(); }
+    public synchronized int getWeight() { return weight; }
+    public synchronized int getHitCount() { return hitCount; }
+    public synchronized int getMissCount() { return missCount; }
+    public synchronized int getEvictionCount() { return evictionCount; }
+}
@@ -50,7 +50,7 @@ public class NotificationUtils {
                 return;
             }
             
-            String currentUsername = userManager.getCurrentUser().getUsername();
+            String currentUsername = userManager.getCurrentUsername();
             
             // Check if cart has items
             int cartCount = cartManager.getCartItemCount();
@@ -91,7 +91,7 @@ public class NotificationUtils {
                 return;
             }
             
-            String currentUsername = userManager.getCurrentUser().getUsername();
+            String currentUsername = userManager.getCurrentUsername();
             int cartCount = cartManager.getCartItemCount();
             
             if (cartCount > 0) {
@@ -288,7 +288,7 @@ public class NotificationUtils {
             long timeSince = currentTime - lastTime;
             
             UserManager userManager = UserManager.getInstance(context);
-            String currentUser = userManager.isLoggedIn() ? userManager.getCurrentUser().getUsername() : "none";
+            String currentUser = userManager.isLoggedIn() ? userManager.getCurrentUsername() : "none";
             
             CartManager cartManager = CartManager.getInstance(context);
             int cartCount = cartManager.getCartItemCount();
@@ -155,6 +155,13 @@ public class EnhancedCartManager implements CartContract.CartManager {
     /**
      * Additional helper methods
      */
+
+    /**
+     * Ghi ngay các thay đổi giỏ hàng đang chờ
+     */
+    public void flushPendingWrites() {
+        originalManager.flushPendingWrites();
+    }
     
     /**
      * Get formatted subtotal
@@ -240,6 +247,14 @@ public class EnhancedCartManager implements CartContract.CartManager {
         if (getTotalPrice() <= 0) {
             return new ValidationUtils.ValidationResult(false, "Tổng tiền không hợp lệ");
         }
+
+        CartManager.CatalogCheck catalogCheck = originalManager.checkAgainstCatalog();
+        if (catalogCheck.hasChanges()) {
+            if (cartView != null) {
+                cartView.onCartUpdated();
+            }
+            return new ValidationUtils.ValidationResult(false, catalogCheck.getMessage());
+        }
         
         return new ValidationUtils.ValidationResult(true, "Giỏ hàng hợp lệ");
     }
@@ -5,8 +5,6 @@ import com.example.myapplication.manager.FoodDataManager;
 import com.example.myapplication.model.FoodItem;
 import com.example.myapplication.utils.ValidationUtils;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -95,34 +93,12 @@ public class EnhancedFoodDataManager implements FoodContract.FoodDataManager, Fo
             return getAllFoodItems();
         }
         
-        List<FoodItem> allItems = getAllFoodItems();
-        List<FoodItem> searchResults = new ArrayList<>();
-        String query = searchQuery.toLowerCase().trim();
-        
-        for (FoodItem item : allItems) {
-            if (item.getName().toLowerCase().contains(query) ||
-                item.getDescription().toLowerCase().contains(query) ||
-                item.getCategory().toLowerCase().contains(query)) {
-                searchResults.add(item);
-            }
-        }
-        
-        return searchResults;
+        return FoodDataManager.searchFoodItems(searchQuery);
     }
     
     @Override
     public List<FoodItem> getFoodItemsSortedByPrice(boolean ascending) {
-        List<FoodItem> items = new ArrayList<>(getAllFoodItems());
-        
-        Collections.sort(items, new Comparator<FoodItem>() {
-            @Override
-            public int compare(FoodItem item1, FoodItem item2) {
-                int result = Double.compare(item1.getPrice(), item2.getPrice());
-                return ascending ? result : -result;
-            }
-        });
-        
-        return items;
+        return FoodDataManager.getFoodItemsSortedByPrice(ascending);
     }
     
     /**
@@ -133,19 +109,10 @@ public class EnhancedFoodDataManager implements FoodContract.FoodDataManager, Fo
      * Get food items in price range
      * @param minPrice Minimum price
      * @param maxPrice Maximum price
-     * @return List of food items in price range
+     * @return List of food items in price range, cheapest first
      */
     public List<FoodItem> getFoodItemsInPriceRange(double minPrice, double maxPrice) {
-        List<FoodItem> allItems = getAllFoodItems();
-        List<FoodItem> filteredItems = new ArrayList<>();
-        
-        for (FoodItem item : allItems) {
-            if (item.getPrice() >= minPrice && item.getPrice() <= maxPrice) {
-                filteredItems.add(item);
-            }
-        }
-        
-        return filteredItems;
+        return FoodDataManager.getFoodItemsInPriceRange(minPrice, maxPrice);
     }
     
     /**
@@ -153,8 +120,7 @@ public class EnhancedFoodDataManager implements FoodContract.FoodDataManager, Fo
      * @return Cheapest food item or null if no items
      */
     public FoodItem getCheapestFoodItem() {
-        List<FoodItem> items = getFoodItemsSortedByPrice(true);
-        return items.isEmpty() ? null : items.get(0);
+        return FoodDataManager.getCheapestFoodItem();
     }
     
     /**
@@ -162,8 +128,7 @@ public class EnhancedFoodDataManager implements FoodContract.FoodDataManager, Fo
      * @return Most expensive food item or null if no items
      */
     public FoodItem getMostExpensiveFoodItem() {
-        List<FoodItem> items = getFoodItemsSortedByPrice(false);
-        return items.isEmpty() ? null : items.get(0);
+        return FoodDataManager.getMostExpensiveFoodItem();
     }
     
     /**
@@ -0,0 +1,144 @@
+package com.example.myapplication.manager;
+
+import android.content.Context;
+import com.example.myapplication.model.Bill;
+import com.example.myapplication.model.CartItem;
+import com.example.myapplication.model.FoodItem;
+import com.example.myapplication.model.User;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stress test cho CartManager: thêm/sửa/đặt hàng đồng thời từ nhiều luồng
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CartManagerConcurrencyTest {
+
+    private static final int ADDERS = 4;
+    private static final int ADDS_PER_THREAD = 500;
+    private static final int CHECKOUT_THREADS = 2;
+    private static final int TOGGLED_FOOD_ID = 6;
+
+    @Test
+    public void concurrentEditsAndCheckoutsNeitherLoseNorDuplicateItems() throws Exception {
+        Context context = RuntimeEnvironment.getApplication();
+        UserManager userManager = UserManager.getInstance(context);
+        userManager.login("stress_user");
+        User customer = userManager.getCurrentUser();
+        CartManager cartManager = CartManager.getInstance(context);
+        cartManager.clearCart();
+
+        List<FoodItem> foods = new ArrayList<>();
+        for (int id = 1; id <= TOGGLED_FOOD_ID; id++) {
+            foods.add(new FoodItem(id, "Món " + id, "", 1000 * id, 0, "Ramen"));
+        }
+        cartManager.addToCart(foods.get(TOGGLED_FOOD_ID - 1), 1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(ADDERS + CHECKOUT_THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger addersLeft = new AtomicInteger(ADDERS);
+        Map<Integer, Bill> placedBills = new ConcurrentHashMap<>();
+        List<Bill> duplicates = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Mỗi luồng thêm từng món 1..5, mỗi lần +1
+        for (int t = 0; t < ADDERS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    cartManager.addToCart(foods.get(i % (TOGGLED_FOOD_ID - 1)), 1);
+                }
+                addersLeft.decrementAndGet();
+                return null;
+            }));
+        }
+        // Món 6 liên tục đổi số lượng giữa 1 và 2
+        futures.add(executor.submit(() -> {
+            start.await();
+            for (int i = 0; addersLeft.get() > 0; i++) {
+                cartManager.updateQuantity(TOGGLED_FOOD_ID, 1 + i % 2);
+            }
+            return null;
+        }));
+        // Hai luồng dùng chung từng token, như bấm "Đặt hàng" hai lần; giỏ trống thì thêm món 6 để đặt tiếp
+        String[] tokens = new String[20];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = CartManager.newCheckoutToken();
+        }
+        for (int t = 0; t < CHECKOUT_THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (String token : tokens) {
+                    CartManager.CheckoutResult result;
+                    do {
+                        if (cartManager.getCartItemCount() == 0) {
+                            cartManager.addToCart(foods.get(TOGGLED_FOOD_ID - 1), 1);
+                        }
+                        result = cartManager.checkout(token, cartManager.getTotalPrice(), 0, customer);
+                    } while (!result.isSuccess());
+                    if (result.isDuplicate()) {
+                        duplicates.add(result.getBill());
+                    } else {
+                        assertNull(placedBills.put(result.getBill().getId(), result.getBill()));
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Mỗi token tạo đúng một hóa đơn, lần bấm còn lại trả về hóa đơn đó
+        assertEquals(tokens.length, placedBills.size());
+        assertEquals(tokens.length * (CHECKOUT_THREADS - 1), duplicates.size());
+        for (Bill duplicate : duplicates) {
+            assertSame(placedBills.get(duplicate.getId()), duplicate);
+        }
+
+        // Mọi món 1..5 đã thêm nằm trong đúng một hóa đơn hoặc còn trong giỏ
+        int billed = 0;
+        for (Bill bill : placedBills.values()) {
+            double itemsTotal = 0;
+            for (Bill.BillItem item : bill.getBillItems()) {
+                if (item.getFoodId() != TOGGLED_FOOD_ID) {
+                    billed += item.getQuantity();
+                }
+                itemsTotal += item.getPrice() * item.getQuantity();
+            }
+            assertEquals(itemsTotal, bill.getTotalAmount(), 1e-6);
+        }
+        int inCart = 0;
+        int cartQuantity = 0;
+        double cartTotal = 0;
+        for (CartItem item : cartManager.getCartItems()) {
+            if (item.getFoodItem().getId() != TOGGLED_FOOD_ID) {
+                inCart += item.getQuantity();
+            }
+            cartQuantity += item.getQuantity();
+            cartTotal += item.getTotalPrice();
+        }
+        assertEquals(ADDERS * ADDS_PER_THREAD, billed + inCart);
+        assertEquals(cartQuantity, cartManager.getCartItemCount());
+        assertEquals(cartTotal, cartManager.getTotalPrice(), 1e-6);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.myapplication.manager;
+
+import android.content.Context;
+import com.example.myapplication.model.FoodCatalogSnapshot;
+import com.example.myapplication.model.FoodItem;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test FoodDataManager: bản chụp thực đơn dùng chung, có version và không bị sửa tại chỗ
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FoodDataManagerTest {
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.getApplication();
+        FoodDataManager.initialize(context);
+        FoodDataManager.resetToDefault(context);
+    }
+
+    @Test
+    public void readersShareOneSnapshotUntilAWriteSwapsIt() {
+        FoodCatalogSnapshot before = FoodDataManager.getCatalogSnapshot();
+        List<FoodItem> items = FoodDataManager.getAllFoodItems();
+        assertSame(items, FoodDataManager.getAllFoodItems());
+        assertEquals(7, items.size());
+        try {
+            items.add(new FoodItem(99, "Món lạ", "", 1000, 0, "Rice"));
+            fail("Snapshot list must be read-only");
+        } catch (UnsupportedOperationException expected) {
+            // Danh sách dùng chung nên không cho sửa
+        }
+
+        FoodItem ramen = FoodDataManager.getFoodItemById(1);
+        assertTrue(FoodDataManager.updateFoodItem(1, "Ramen Shoyu", ramen.getDescription(), 90000,
+                ramen.getCategory(), true, null));
+
+        FoodCatalogSnapshot after = FoodDataManager.getCatalogSnapshot();
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertEquals("Ramen Tonkotsu", before.getItems().get(0).getName()); // Bản chụp cũ giữ nguyên
+        assertEquals(85000, ramen.getPrice(), 0);
+        assertEquals("Ramen Shoyu", after.getItems().get(0).getName());
+        assertSame(after.getItems().get(0), FoodDataManager.getFoodItemById(1));
+        assertSame(after.getItems().get(0), FoodDataManager.searchFoodItems("shoyu").get(0));
+    }
+
+    @Test
+    public void toggleAndDeletePublishNewVersions() {
+        long version = FoodDataManager.getCatalogVersion();
+        FoodItem eel = FoodDataManager.getFoodItemById(6);
+        assertFalse(eel.isAvailable());
+
+        assertTrue(FoodDataManager.toggleFoodAvailability(6));
+        assertFalse(eel.isAvailable());
+        assertTrue(FoodDataManager.getFoodItemById(6).isAvailable());
+        assertEquals(7, FoodDataManager.getAvailableFoodItems().size());
+
+        assertTrue(FoodDataManager.deleteFoodItem(6));
+        assertNull(FoodDataManager.getFoodItemById(6));
+        assertEquals(6, FoodDataManager.getAllFoodItems().size());
+        assertEquals(version + 2, FoodDataManager.getCatalogVersion());
+        assertFalse(FoodDataManager.deleteFoodItem(6));
+        assertEquals(version + 2, FoodDataManager.getCatalogVersion());
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.Bill;
+import com.example.myapplication.model.CartItem;
+import com.example.myapplication.model.FoodItem;
+import com.google.gson.Gson;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test cho BillCodec: round-trip, đọc JSON cũ và so sánh kích thước với Gson
+ */
+public class BillCodecTest {
+
+    private static final FoodItem[] MENU = {
+            new FoodItem(1, "Ramen Tonkotsu",
+                    "Mì ramen truyền thống với nước dùng xương heo đậm đà, thịt xá xíu và trứng lòng đào",
+                    85000, 0, "Noodles"),
+            new FoodItem(2, "Sushi Set", "Set sushi tươi ngon gồm cá hồi, cá ngừ, tôm và tamago",
+                    120000, 0, "Sushi"),
+            new FoodItem(5, "Cơm Gà Teriyaki", "Cơm trắng với gà nướng teriyaki, rau củ và nước sốt đặc biệt",
+                    68000, 0, "Rice"),
+            new FoodItem(7, "Mandu Gyoza", "Bánh xếp Nhật chiên giòn với nhân thịt heo và rau củ",
+                    45000, 0, "Appetizer")
+    };
+
+    private Gson gson;
+    private BillCodec codec;
+
+    /**
+     * Dictionary trong bộ nhớ thay cho bảng bill_strings
+     */
+    private static class MapDictionary implements BillCodec.StringDictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        @Override
+        public int idOf(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                values.add(value);
+                id = values.size();
+                ids.put(value, id);
+            }
+            return id;
+        }
+
+        @Override
+        public String valueOf(int id) {
+            return id >= 1 && id <= values.size() ? values.get(id - 1) : null;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        gson = new Gson();
+        codec = new BillCodec(gson, new MapDictionary());
+    }
+
+    /**
+     * Hóa đơn giống BillManager.createBill tạo ra: cả items cũ lẫn billItems
+     */
+    private static Bill order(int billId, Random random) {
+        List<CartItem> cartItems = new ArrayList<>();
+        List<Bill.BillItem> billItems = new ArrayList<>();
+        double total = 0;
+        int lines = 1 + random.nextInt(3);
+        for (int i = 0; i < lines; i++) {
+            FoodItem food = MENU[random.nextInt(MENU.length)];
+            int quantity = 1 + random.nextInt(3);
+            cartItems.add(new CartItem(food, quantity));
+            billItems.add(new Bill.BillItem(food.getId(), food.getName(), food.getPrice(), quantity));
+            total += food.getPrice() * quantity;
+        }
+        Bill bill = new Bill(billId, "user" + (billId % 200), cartItems, total,
+                "123 Nguyễn Huệ, Quận 1, TP.HCM", "0901234567", "Nguyễn Văn A",
+                new Date(1700000000000L + billId * 60_000L), Bill.STATUS_DELIVERED);
+        bill.setBillItems(billItems);
+        bill.setLastUpdated(new Date(bill.getOrderDate().getTime() + 45 * 60_000L));
+        return bill;
+    }
+
+    @Test
+    public void encode_roundTripsBill() {
+        Bill bill = order(42, new Random(1));
+        bill.setNotes("Ít cay");
+
+        Bill decoded = codec.decode(codec.encode(bill));
+
+        assertEquals(42, decoded.getId());
+        assertEquals(bill.getUsername(), decoded.getUsername());
+        assertEquals(bill.getTotalAmount(), decoded.getTotalAmount(), 0);
+        assertEquals(bill.getOrderDate(), decoded.getOrderDate());
+        assertEquals(bill.getLastUpdated(), decoded.getLastUpdated());
+        assertEquals(Bill.STATUS_DELIVERED, decoded.getStatus());
+        assertEquals(bill.getDeliveryAddress(), decoded.getDeliveryAddress());
+        assertEquals(bill.getPhone(), decoded.getPhone());
+        assertEquals(bill.getFullName(), decoded.getFullName());
+        assertEquals("Ít cay", decoded.getNotes());
+        assertEquals(bill.getBillItems().size(), decoded.getBillItems().size());
+        for (int i = 0; i < bill.getBillItems().size(); i++) {
+            Bill.BillItem expected = bill.getBillItems().get(i);
+            Bill.BillItem actual = decoded.getBillItems().get(i);
+            assertEquals(expected.getFoodId(), actual.getFoodId());
+            assertEquals(expected.getFoodName(), actual.getFoodName());
+            assertEquals(expected.getPrice(), actual.getPrice(), 0);
+            assertEquals(expected.getQuantity(), actual.getQuantity());
+        }
+        assertTrue(decoded.getItems().isEmpty());
+    }
+
+    @Test
+    public void encode_keepsNullsFractionsAndUnknownStatus() {
+        Bill bill = new Bill(7, "alice", null, 12.5, null, null, null, null, "ON_HOLD");
+        bill.setLastUpdated(new Date(-5L));
+        bill.addBillItem(new Bill.BillItem(3, null, -1.25, 2));
+
+        Bill decoded = codec.decode(codec.encode(bill));
+
+        assertEquals(12.5, decoded.getTotalAmount(), 0);
+        assertNull(decoded.getOrderDate());
+        assertEquals(-5L, decoded.getLastUpdated().getTime());
+        assertEquals("ON_HOLD", decoded.getStatus());
+        assertNull(decoded.getDeliveryAddress());
+        assertNull(decoded.getBillItems().get(0).getFoodName());
+        assertEquals(-1.25, decoded.getBillItems().get(0).getPrice(), 0);
+    }
+
+    @Test
+    public void encode_convertsLegacyItemsWhenNoBillItems() {
+        Bill bill = order(9, new Random(2));
+        List<Bill.BillItem> expected = bill.getBillItems();
+        bill.setBillItems(new ArrayList<>());
+
+        Bill decoded = codec.decode(codec.encode(bill));
+
+        assertEquals(expected.size(), decoded.getBillItems().size());
+        assertEquals(expected.get(0).getFoodName(), decoded.getBillItems().get(0).getFoodName());
+        assertEquals(bill.getTotalItemCount(), decoded.getTotalItemCount());
+        assertEquals(bill.getItemsSummary(), decoded.getItemsSummary());
+    }
+
+    @Test
+    public void decode_acceptsLegacyGsonJson() {
+        Bill bill = order(11, new Random(3));
+        byte[] json = gson.toJson(bill).getBytes(StandardCharsets.UTF_8);
+
+        Bill decoded = codec.decode(json);
+
+        assertEquals(11, decoded.getId());
+        assertEquals(bill.getOrderDate(), decoded.getOrderDate());
+        assertEquals(bill.getItems().size(), decoded.getItems().size());
+        assertEquals(bill.getBillItems().get(0).getFoodName(), decoded.getBillItems().get(0).getFoodName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsTruncatedPayload() {
+        byte[] payload = codec.encode(order(5, new Random(4)));
+        byte[] truncated = new byte[payload.length / 2];
+        System.arraycopy(payload, 0, truncated, 0, truncated.length);
+        codec.decode(truncated);
+    }
+
+    /**
+     * So sánh trên 50k đơn tổng hợp: bản nhị phân đọc ra cùng số món và nhỏ hơn nhiều so với JSON
+     */
+    @Test
+    public void binaryPayload_50kOrders() {
+        Random random = new Random(50_000);
+        List<Bill> orders = new ArrayList<>();
+        for (int i = 1; i <= 50_000; i++) {
+            orders.add(order(i, random));
+        }
+
+        long jsonBytes = 0;
+        long binaryBytes = 0;
+        long jsonItems = 0;
+        long binaryItems = 0;
+        for (Bill bill : orders) {
+            byte[] json = gson.toJson(bill).getBytes(StandardCharsets.UTF_8);
+            byte[] binary = codec.encode(bill);
+            jsonBytes += json.length;
+            binaryBytes += binary.length;
+            jsonItems += codec.decode(json).getTotalItemCount();
+            binaryItems += codec.decode(binary).getTotalItemCount();
+        }
+        assertEquals(jsonItems, binaryItems);
+        assertTrue("binary payload should be under a quarter of JSON", binaryBytes * 4 < jsonBytes);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.myapplication.storage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test cho BillIdAllocator (hi/lo)
+ */
+public class BillIdAllocatorTest {
+
+    /**
+     * Store trong bộ nhớ, đếm số lần đọc/ghi
+     */
+    private static class CountingStore implements BillIdAllocator.HighWaterMarkStore {
+        int highWater;
+        int reads;
+        int writes;
+
+        CountingStore(int highWater) {
+            this.highWater = highWater;
+        }
+
+        @Override
+        public synchronized int read() {
+            reads++;
+            return highWater;
+        }
+
+        @Override
+        public synchronized void write(int highWaterMark) {
+            writes++;
+            highWater = highWaterMark;
+        }
+    }
+
+    @Test
+    public void nextId_isUniqueAndIncreasing() {
+        BillIdAllocator allocator = new BillIdAllocator(new CountingStore(1), 5);
+        int previous = 0;
+        for (int i = 0; i < 100; i++) {
+            int id = allocator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    public void nextId_neverReusesIdsAfterRestart() {
+        CountingStore store = new CountingStore(1);
+        Set<Integer> handedOut = new HashSet<>();
+
+        // Phiên 1 chỉ dùng một phần block rồi "crash"
+        BillIdAllocator first = new BillIdAllocator(store, 10);
+        for (int i = 0; i < 3; i++) {
+            handedOut.add(first.nextId());
+        }
+
+        // Phiên 2 đọc lại high-water mark từ store
+        BillIdAllocator second = new BillIdAllocator(store, 10);
+        for (int i = 0; i < 25; i++) {
+            assertTrue(handedOut.add(second.nextId()));
+        }
+    }
+
+    @Test
+    public void nextId_storeAccessDoesNotDependOnBillCount() {
+        int allocations = 1000;
+        int blockSize = 20;
+
+        // 100 đơn so với 1.000.000 đơn đã có: high-water mark khác nhau, chi phí như nhau
+        CountingStore smallStore = new CountingStore(101);
+        CountingStore largeStore = new CountingStore(1_000_001);
+        BillIdAllocator small = new BillIdAllocator(smallStore, blockSize);
+        BillIdAllocator large = new BillIdAllocator(largeStore, blockSize);
+
+        for (int i = 0; i < allocations; i++) {
+            small.nextId();
+            large.nextId();
+        }
+
+        int expectedBlocks = allocations / blockSize;
+        assertEquals(expectedBlocks, smallStore.writes);
+        assertEquals(expectedBlocks, largeStore.writes);
+        assertEquals(smallStore.reads, largeStore.reads);
+        assertEquals(1_000_001 + allocations, largeStore.highWater);
+    }
+
+    @Test
+    public void nextId_isCollisionFreeAcrossThreads() throws InterruptedException {
+        BillIdAllocator allocator = new BillIdAllocator(new CountingStore(1), 7);
+        Set<Integer> ids = new HashSet<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                List<Integer> local = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    local.add(allocator.nextId());
+                }
+                synchronized (ids) {
+                    ids.addAll(local);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8 * 500, ids.size());
+    }
+}
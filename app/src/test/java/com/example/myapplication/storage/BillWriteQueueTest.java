@@ -0,0 +1,87 @@
+package com.example.myapplication.storage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test cho BillWriteQueue
+ */
+public class BillWriteQueueTest {
+
+    @Test
+    public void flush_coalescesWritesPerKeyInOneBatch() {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> written = new ArrayList<>();
+        BillWriteQueue queue = new BillWriteQueue(60_000, writes -> {
+            batches.add(new ArrayList<>(written));
+            for (Runnable write : writes) {
+                write.run();
+            }
+        });
+
+        queue.enqueue("status:1", () -> written.add("1=CONFIRMED"));
+        queue.enqueue("status:2", () -> written.add("2=CONFIRMED"));
+        queue.enqueue("status:1", () -> written.add("1=PREPARING"));
+        queue.enqueue("status:1", () -> written.add("1=READY"));
+        assertTrue(queue.hasPending());
+        queue.flush();
+
+        assertEquals(1, batches.size());
+        assertEquals(Arrays.asList("2=CONFIRMED", "1=READY"), written);
+        assertFalse(queue.hasPending());
+        queue.flush();
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void failedBatch_isRequeuedUnlessSuperseded() {
+        List<String> written = new ArrayList<>();
+        boolean[] fail = {true};
+        BillWriteQueue queue = new BillWriteQueue(60_000, writes -> {
+            if (fail[0]) {
+                throw new IllegalStateException("disk full");
+            }
+            for (Runnable write : writes) {
+                write.run();
+            }
+        });
+
+        queue.enqueue("a", () -> written.add("a1"));
+        queue.enqueue("b", () -> written.add("b1"));
+        try {
+            queue.flush();
+            fail("expected the batch to fail");
+        } catch (IllegalStateException expected) {
+            // lô được xếp lại
+        }
+        queue.enqueue("b", () -> written.add("b2"));
+        fail[0] = false;
+        queue.flush();
+
+        assertEquals(Arrays.asList("a1", "b2"), written);
+    }
+
+    @Test
+    public void backgroundWriter_flushesAfterWindow() throws InterruptedException {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        BillWriteQueue queue = new BillWriteQueue(20, writes -> {
+            for (Runnable write : writes) {
+                write.run();
+            }
+        });
+
+        queue.enqueue("a", () -> written.add("a"));
+        for (int i = 0; i < 100 && queue.hasPending(); i++) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(20);
+
+        assertEquals(Collections.singletonList("a"), written);
+    }
+}
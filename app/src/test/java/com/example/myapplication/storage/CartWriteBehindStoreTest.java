@@ -0,0 +1,120 @@
+package com.example.myapplication.storage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Looper;
+import com.example.myapplication.model.CartItem;
+import com.example.myapplication.model.FoodItem;
+import com.google.gson.Gson;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Unit test cho CartWriteBehindStore (SharedPreferences của Robolectric)
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CartWriteBehindStoreTest {
+
+    private static final String SUFFIX = "_cart_items";
+
+    private SharedPreferences prefs;
+
+    @Before
+    public void setUp() {
+        prefs = RuntimeEnvironment.getApplication().getSharedPreferences("cart_test", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+    }
+
+    private static List<CartRecord> cart(int... quantities) {
+        List<CartRecord> records = new ArrayList<>();
+        for (int i = 0; i < quantities.length; i++) {
+            records.add(new CartRecord(i + 1, quantities[i], 10000 * (i + 1)));
+        }
+        return records;
+    }
+
+    private static List<Integer> quantities(List<CartRecord> records) {
+        List<Integer> quantities = new ArrayList<>();
+        for (CartRecord record : records) {
+            quantities.add(record.getQuantity());
+        }
+        return quantities;
+    }
+
+    @Test
+    public void flushedEditsSurviveProcessKill() {
+        // Cửa sổ debounce dài: chỉ flush() mới ghi xuống prefs
+        CartWriteBehindStore store = new CartWriteBehindStore(prefs, new Gson(), SUFFIX, 60_000);
+        for (int quantity = 1; quantity <= 5; quantity++) {
+            store.save("alice", cart(quantity, 2));
+        }
+        store.save("bob", cart(7));
+        assertEquals(Arrays.asList(5, 2), quantities(store.load("alice")));
+        assertFalse(prefs.contains("alice" + SUFFIX));
+
+        store.flush();
+        store.save("alice", cart(9, 9)); // Sửa sau flush, mất theo tiến trình
+
+        // Tiến trình bị kill: store mới chỉ còn những gì đã ghi xuống prefs
+        CartWriteBehindStore restarted = new CartWriteBehindStore(prefs, new Gson(), SUFFIX, 60_000);
+        assertEquals(Arrays.asList(5, 2), quantities(restarted.load("alice")));
+        assertEquals(Arrays.asList(7), quantities(restarted.load("bob")));
+        assertTrue(restarted.load("carol").isEmpty());
+    }
+
+    @Test
+    public void legacyCartJsonLoadsAsRecords() {
+        Gson gson = new Gson();
+        List<CartItem> legacy = Arrays.asList(
+                new CartItem(new FoodItem(3, "Ramen Tonkotsu", "Mô tả", 85000, 0, "Noodles"), 2),
+                new CartItem(new FoodItem(8, "Sake Nigiri", "Mô tả", 45000, 0, "Sushi"), 1));
+        prefs.edit().putString("alice" + SUFFIX, gson.toJson(legacy)).commit();
+
+        CartWriteBehindStore store = new CartWriteBehindStore(prefs, gson, SUFFIX, 60_000);
+        List<CartRecord> records = store.load("alice");
+        assertEquals(2, records.size());
+        assertEquals(3, records.get(0).getFoodId());
+        assertEquals(2, records.get(0).getQuantity());
+        assertEquals(85000, records.get(0).getPriceAtAdd(), 0);
+        assertEquals(8, records.get(1).getFoodId());
+
+        // Lưu lại theo dạng mới, không còn FoodItem trong prefs
+        store.save("alice", records);
+        store.flush();
+        assertFalse(prefs.getString("alice" + SUFFIX, "").contains("Ramen"));
+        assertEquals(Arrays.asList(2, 1), quantities(store.load("alice")));
+    }
+
+    @Test
+    public void burstOfEditsIsWrittenOnceInBackground() throws InterruptedException {
+        AtomicInteger writes = new AtomicInteger();
+        SharedPreferences.OnSharedPreferenceChangeListener listener = (p, key) -> writes.incrementAndGet();
+        prefs.registerOnSharedPreferenceChangeListener(listener);
+        CartWriteBehindStore store = new CartWriteBehindStore(prefs, new Gson(), SUFFIX, 50);
+        for (int quantity = 1; quantity <= 5; quantity++) {
+            store.save("alice", cart(quantity));
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (store.hasPending() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        store.flush(); // Đợi lô nền đang ghi dở (nếu có)
+        shadowOf(Looper.getMainLooper()).idle(); // Listener được gọi trên main looper
+
+        assertEquals(1, writes.get());
+        assertEquals(Arrays.asList(5), quantities(new CartWriteBehindStore(prefs, new Gson(), SUFFIX, 50).load("alice")));
+        prefs.unregisterOnSharedPreferenceChangeListener(listener);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.myapplication.storage;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test cho DeliveryDeadlineQueue
+ */
+public class DeliveryDeadlineQueueTest {
+
+    @Test
+    public void pollDue_returnsOnlyDueBillsEarliestFirst() {
+        DeliveryDeadlineQueue queue = new DeliveryDeadlineQueue();
+        queue.schedule(1, 3000L);
+        queue.schedule(2, 1000L);
+        queue.schedule(3, 2000L);
+
+        assertEquals(1000L, queue.nextDeadline());
+        assertEquals(Arrays.asList(2, 3), queue.pollDue(2000L));
+        assertEquals(3000L, queue.nextDeadline());
+        assertEquals(1, queue.size());
+        assertEquals(Collections.singletonList(1), queue.pollDue(5000L));
+        assertEquals(Long.MAX_VALUE, queue.nextDeadline());
+    }
+
+    @Test
+    public void rescheduleAndCancel_replacePreviousDeadline() {
+        DeliveryDeadlineQueue queue = new DeliveryDeadlineQueue();
+        queue.schedule(1, 1000L);
+        queue.schedule(2, 1500L);
+        queue.schedule(1, 4000L);
+        queue.cancel(2);
+
+        assertEquals(4000L, queue.nextDeadline());
+        assertTrue(queue.pollDue(3000L).isEmpty());
+        assertEquals(Collections.singletonList(1), queue.pollDue(4000L));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void manyReschedules_keepOneEntryPerBill() {
+        DeliveryDeadlineQueue queue = new DeliveryDeadlineQueue();
+        for (int round = 0; round < 1000; round++) {
+            queue.schedule(round % 10, 10_000L + round);
+        }
+
+        assertEquals(10, queue.size());
+        assertEquals(10, queue.pollDue(Long.MAX_VALUE).size());
+    }
+}
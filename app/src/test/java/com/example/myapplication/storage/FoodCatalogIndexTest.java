@@ -0,0 +1,81 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.FoodItem;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.myapplication.storage.FoodFixtures.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test cho FoodCatalogIndex: bucket danh mục, bitset còn bán và danh sách danh mục
+ */
+public class FoodCatalogIndexTest {
+
+    @Test
+    public void bucketsByCategoryAndAvailabilityInMenuOrder() {
+        FoodSlotTable slots = new FoodSlotTable();
+        FoodCatalogIndex index = new FoodCatalogIndex(slots);
+        slots.rebuild(Arrays.asList(
+                inCategory(1, "Noodles", true),
+                inCategory(2, "Sushi", false),
+                inCategory(3, "Noodles", false),
+                inCategory(4, "Rice", true),
+                inCategory(5, "Noodles", true)));
+
+        assertEquals(Arrays.asList(1, 3, 5), ids(index.getByCategory("Noodles")));
+        assertEquals(Arrays.asList(1, 5), ids(index.getAvailableByCategory("Noodles")));
+        assertEquals(Arrays.asList(1, 4, 5), ids(index.getAvailable()));
+        assertEquals(Arrays.asList("Noodles", "Sushi", "Rice"), index.getCategories());
+        assertTrue(index.getByCategory("Dessert").isEmpty());
+        assertEquals(4, slots.getById(4).getId());
+        assertNull(slots.getById(99));
+    }
+
+    @Test
+    public void keepsBucketsInSyncOnMutation() {
+        FoodSlotTable slots = new FoodSlotTable();
+        FoodCatalogIndex index = new FoodCatalogIndex(slots);
+        FoodItem sushi = inCategory(2, "Sushi", true);
+        slots.rebuild(Arrays.asList(inCategory(1, "Noodles", true), sushi));
+
+        slots.put(inCategory(3, "Dessert", true));
+        assertEquals(Arrays.asList("Noodles", "Sushi", "Dessert"), index.getCategories());
+
+        sushi.setCategory("Rice"); // Sửa tại chỗ rồi gọi put vẫn phải đúng
+        sushi.setAvailable(false);
+        slots.put(sushi);
+        assertEquals(Arrays.asList("Noodles", "Dessert", "Rice"), index.getCategories());
+        assertEquals(Arrays.asList(2), ids(index.getByCategory("Rice")));
+        assertTrue(index.getAvailableByCategory("Rice").isEmpty());
+        assertEquals(Arrays.asList(1, 3), ids(index.getAvailable()));
+
+        slots.remove(3);
+        assertEquals(Arrays.asList("Noodles", "Rice"), index.getCategories());
+        assertNull(slots.getById(3));
+        assertEquals(2, slots.size());
+    }
+
+    @Test
+    public void staysInSyncWhenSlotTableCompacts() {
+        FoodSlotTable slots = new FoodSlotTable();
+        FoodCatalogIndex index = new FoodCatalogIndex(slots);
+        FoodSearchIndex search = new FoodSearchIndex(slots);
+        List<FoodItem> items = new ArrayList<>();
+        for (int id = 1; id <= 100; id++) {
+            items.add(inCategory(id, id % 2 == 0 ? "Rice" : "Noodles", id % 3 != 0));
+        }
+        slots.rebuild(items);
+
+        for (int id = 1; id <= 90; id++) {
+            slots.remove(id); // Xóa quá nửa thì bảng cấp lại slot
+        }
+        assertEquals(Arrays.asList(92, 94, 96, 98, 100), ids(index.getByCategory("Rice")));
+        assertEquals(Arrays.asList(91, 92, 94, 95, 97, 98, 100), ids(index.getAvailable()));
+        assertEquals(Arrays.asList(91, 93, 95, 97, 99), ids(search.search("noodles")));
+        assertEquals(10, slots.size());
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.myapplication.storage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import com.example.myapplication.model.FoodItem;
+import com.google.gson.Gson;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.myapplication.storage.FoodFixtures.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test cho FoodCatalogStore: chuyển danh sách JSON cũ, record từng món và replay change log
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FoodCatalogStoreTest {
+
+    private final Gson gson = new Gson();
+    private SharedPreferences prefs;
+    private File logFile;
+
+    @Before
+    public void setUp() {
+        Context context = RuntimeEnvironment.getApplication();
+        prefs = context.getSharedPreferences("food_test", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+        logFile = new File(context.getFilesDir(), "food_test.log");
+        logFile.delete();
+    }
+
+    @Test
+    public void migratesLegacyListIntoRecords() {
+        prefs.edit().putString(FoodCatalogStore.KEY_LEGACY_FOOD_ITEMS,
+                gson.toJson(Arrays.asList(food(1, "Ramen", 85000), food(2, "Sushi", 120000)))).commit();
+
+        FoodCatalogStore store = new FoodCatalogStore(prefs, logFile, gson);
+        assertEquals(Arrays.asList("Ramen", "Sushi"), names(store.load()));
+        assertFalse(prefs.contains(FoodCatalogStore.KEY_LEGACY_FOOD_ITEMS));
+        assertTrue(prefs.contains("food_item_1"));
+
+        // Lần sau đọc thẳng từ record
+        assertEquals(Arrays.asList("Ramen", "Sushi"), names(new FoodCatalogStore(prefs, logFile, gson).load()));
+    }
+
+    @Test
+    public void writesOnlyTheChangedRecordAndReplaysLogOnLoad() throws Exception {
+        FoodCatalogStore store = new FoodCatalogStore(prefs, logFile, gson);
+        assertNull(store.load()); // Chưa có gì: FoodDataManager khởi tạo mặc định
+        store.replaceAll(Arrays.asList(food(1, "Ramen", 85000), food(2, "Sushi", 120000)));
+        assertTrue(prefs.contains("food_item_2"));
+
+        store.put(food(1, "Ramen Shoyu", 90000));
+        store.put(food(3, "Udon", 75000));
+        store.delete(2);
+        assertFalse(prefs.contains("food_item_2"));
+        assertTrue(logFile.exists());
+
+        // Record chưa kịp ghi (app bị tắt sau khi ghi log): log vẫn khôi phục được
+        prefs.edit().remove("food_item_3").commit();
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write("{\"op\":\"put\",\"id\":4,\"item\":{\"id\":4,\"na".getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<FoodItem> loaded = new FoodCatalogStore(prefs, logFile, gson).load();
+        assertEquals(Arrays.asList("Ramen Shoyu", "Udon"), names(loaded));
+        assertEquals(90000, loaded.get(0).getPrice(), 0);
+        assertTrue(prefs.contains("food_item_3"));
+        assertFalse(logFile.exists()); // Đã compact vào record
+    }
+}
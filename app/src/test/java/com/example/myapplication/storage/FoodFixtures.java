@@ -0,0 +1,49 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.FoodItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Món ăn mẫu và hàm lấy id/tên dùng chung cho các test thực đơn
+ */
+final class FoodFixtures {
+
+    private FoodFixtures() {
+    }
+
+    static FoodItem food(int id, double price) {
+        return new FoodItem(id, "Món " + id, "", price, 0, "Rice");
+    }
+
+    static FoodItem food(int id, String name, double price) {
+        return new FoodItem(id, name, "", price, 0, "Rice");
+    }
+
+    static FoodItem food(int id, String name, String description, String category) {
+        return new FoodItem(id, name, description, 50000, 0, category);
+    }
+
+    static FoodItem inCategory(int id, String category, boolean available) {
+        FoodItem item = new FoodItem(id, "Món " + id, "", 50000, 0, category);
+        item.setAvailable(available);
+        return item;
+    }
+
+    static List<Integer> ids(List<FoodItem> items) {
+        List<Integer> ids = new ArrayList<>();
+        for (FoodItem item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    static List<String> names(List<FoodItem> items) {
+        List<String> names = new ArrayList<>();
+        for (FoodItem item : items) {
+            names.add(item.getName());
+        }
+        return names;
+    }
+}
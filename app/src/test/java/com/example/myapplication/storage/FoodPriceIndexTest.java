@@ -0,0 +1,54 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.FoodItem;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static com.example.myapplication.storage.FoodFixtures.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test cho FoodPriceIndex: thứ tự theo giá, khoảng giá và cập nhật khi sửa giá
+ */
+public class FoodPriceIndexTest {
+
+    @Test
+    public void sortsByPriceAndAnswersRangesWithBinarySearch() {
+        FoodPriceIndex index = new FoodPriceIndex();
+        index.rebuild(Arrays.asList(
+                food(1, 85000), food(2, 45000), food(3, 65000), food(4, 45000), food(5, 120000)));
+
+        assertEquals(Arrays.asList(2, 4, 3, 1, 5), ids(index.getSorted(true)));
+        assertEquals(Arrays.asList(5, 1, 3, 2, 4), ids(index.getSorted(false))); // trùng giá vẫn theo id
+        assertEquals(Arrays.asList(2, 4, 3, 1), ids(index.getInRange(45000, 85000)));
+        assertEquals(Arrays.asList(3), ids(index.getInRange(50000, 80000)));
+        assertTrue(index.getInRange(130000, 200000).isEmpty());
+        assertTrue(index.getInRange(90000, 50000).isEmpty());
+        assertEquals(2, index.getCheapest().getId());
+        assertEquals(5, index.getMostExpensive().getId());
+    }
+
+    @Test
+    public void repositionsItemWhenReplacedWithNewPrice() {
+        FoodPriceIndex index = new FoodPriceIndex();
+        index.rebuild(Arrays.asList(food(1, 85000), food(2, 45000), food(4, 85000)));
+
+        FoodItem ramen = food(1, 30000); // FoodDataManager thay bằng bản sao có giá mới
+        index.update(ramen);
+        assertEquals(Arrays.asList(1, 2, 4), ids(index.getSorted(true)));
+        assertSame(ramen, index.getCheapest());
+        index.remove(4);
+
+        index.add(food(3, 150000));
+        assertEquals(3, index.getMostExpensive().getId());
+        index.remove(1);
+        assertEquals(2, index.getCheapest().getId());
+        assertEquals(2, index.size());
+
+        index.remove(2);
+        index.remove(3);
+        assertNull(index.getCheapest());
+        assertTrue(index.getSorted(false).isEmpty());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.FoodItem;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.example.myapplication.storage.FoodFixtures.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test cho FoodSearchIndex
+ */
+public class FoodSearchIndexTest {
+
+    @Test
+    public void foldsDiacriticsAndMatchesPrefixes() {
+        FoodSlotTable slots = new FoodSlotTable();
+        FoodSearchIndex index = new FoodSearchIndex(slots);
+        slots.rebuild(Arrays.asList(
+                food(1, "Ramen Tonkotsu", "Mì ramen nước dùng xương heo", "Noodles"),
+                food(5, "Cơm Gà Teriyaki", "Cơm trắng với gà nướng teriyaki", "Rice"),
+                food(6, "Cơm Lươn Nhật", "Cơm với lươn nướng kabayaki", "Rice"),
+                food(8, "Đậu hũ chiên", "Đậu hũ non chiên giòn", "Appetizer")));
+
+        assertEquals("com ga dau", FoodSearchIndex.fold("Cơm Gà Đậu"));
+        assertEquals(Arrays.asList(5), ids(index.search("com ga")));
+        assertEquals(Arrays.asList(5), ids(index.search("CƠM  gà!")));
+        assertEquals(Arrays.asList(5, 6), ids(index.search("cơm n")));   // "n" khớp "nướng", "nhật"
+        assertEquals(Arrays.asList(8), ids(index.search("dau hu")));
+        assertEquals(Arrays.asList(5, 6), ids(index.search("rice")));
+        assertTrue(index.search("pizza").isEmpty());
+        assertEquals(Arrays.asList(1, 5, 6, 8), ids(index.search("  ")));
+    }
+
+    @Test
+    public void updatesIncrementallyOnAddUpdateRemove() {
+        FoodSlotTable slots = new FoodSlotTable();
+        FoodSearchIndex index = new FoodSearchIndex(slots);
+        FoodItem ramen = food(1, "Ramen Tonkotsu", "", "Noodles");
+        FoodItem udon = food(2, "Udon Tempura", "", "Noodles");
+        slots.rebuild(Arrays.asList(ramen, udon));
+
+        slots.put(food(3, "Phở Bò", "Phở bò tái", "Noodles"));
+        assertEquals(Arrays.asList(3), ids(index.search("pho")));
+
+        udon.setName("Udon Kitsune"); // Sửa tại chỗ rồi gọi put vẫn phải đúng
+        slots.put(udon);
+        assertTrue(index.search("tempura").isEmpty());
+        assertEquals(Arrays.asList(2), ids(index.search("kitsune")));
+        assertEquals(Arrays.asList(1, 2, 3), ids(index.search("noodles")));
+
+        slots.remove(1);
+        assertTrue(index.search("ramen").isEmpty());
+        assertEquals(Arrays.asList(2, 3), ids(index.search("noo")));
+        assertEquals(2, slots.size());
+    }
+
+    @Test
+    public void tenThousandItemsMatchScan() {
+        String[] dishes = {"Cơm", "Phở", "Bún", "Mì", "Bánh", "Lẩu", "Cháo", "Xôi", "Ramen", "Sushi", "Udon", "Gỏi"};
+        String[] mains = {"Gà", "Bò", "Heo", "Tôm", "Cá", "Mực", "Vịt", "Lươn", "Đậu hũ", "Trứng", "Cua", "Sườn"};
+        String[] styles = {"nướng", "chiên", "xào", "hấp", "kho", "luộc", "rim", "sốt cay", "teriyaki", "tempura"};
+        String[] categories = {"Rice", "Noodles", "Soup", "Appetizer", "Sushi", "Dessert"};
+        Random random = new Random(21);
+        List<FoodItem> items = new ArrayList<>();
+        for (int id = 1; id <= 10_000; id++) {
+            String name = dishes[random.nextInt(dishes.length)] + " " + mains[random.nextInt(mains.length)]
+                    + " " + styles[random.nextInt(styles.length)] + " " + id;
+            String description = "Món " + styles[random.nextInt(styles.length)] + " với "
+                    + mains[random.nextInt(mains.length)] + " và rau " + random.nextInt(500);
+            items.add(food(id, name, description, categories[random.nextInt(categories.length)]));
+        }
+
+        FoodSlotTable slots = new FoodSlotTable();
+        FoodSearchIndex index = new FoodSearchIndex(slots);
+        slots.rebuild(items);
+
+        // Đối chiếu với cách quét cũ (contains trên chuỗi đã bỏ dấu) cho một câu tìm
+        int expected = 0;
+        for (FoodItem item : items) {
+            String text = FoodSearchIndex.fold(item.getName() + " " + item.getDescription());
+            if (text.matches("(^|.*\\W)com\\b.*") && text.matches("(^|.*\\W)ga\\b.*")) {
+                expected++;
+            }
+        }
+        assertEquals(expected, index.search("com ga").size());
+    }
+}
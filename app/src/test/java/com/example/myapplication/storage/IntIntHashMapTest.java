@@ -0,0 +1,42 @@
+package com.example.myapplication.storage;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test cho IntIntHashMap, đối chiếu với HashMap
+ */
+public class IntIntHashMapTest {
+
+    @Test
+    public void randomOperations_matchHashMap() {
+        IntIntHashMap map = new IntIntHashMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(14);
+
+        for (int i = 0; i < 50_000; i++) {
+            // Khóa nhỏ để có nhiều va chạm, gồm cả 0 và số âm
+            int key = random.nextInt(200) - 20;
+            int op = random.nextInt(3);
+            if (op == 0) {
+                Integer previous = expected.put(key, i);
+                assertEquals(previous != null ? previous : IntIntHashMap.MISSING, map.put(key, i));
+            } else if (op == 1) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed != null ? removed : IntIntHashMap.MISSING, map.remove(key));
+            } else {
+                Integer value = expected.get(key);
+                assertEquals(value != null ? value : IntIntHashMap.MISSING, map.get(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals((int) entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+}
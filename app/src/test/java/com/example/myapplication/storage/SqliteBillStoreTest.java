@@ -0,0 +1,248 @@
+package com.example.myapplication.storage;
+
+import com.example.myapplication.model.Bill;
+import com.google.gson.Gson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test cho SqliteBillStore (database trong bộ nhớ, chạy bằng Robolectric)
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SqliteBillStoreTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private SqliteBillStore store;
+    private File archiveDir;
+
+    @Before
+    public void setUp() {
+        archiveDir = new File(temp.getRoot(), "archive");
+        store = new SqliteBillStore(RuntimeEnvironment.getApplication(), null, archiveDir, new Gson());
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    private static Bill bill(int billId, String username, double amount, long orderTime, String status) {
+        Bill bill = new Bill(billId, username, null, amount, "addr", "0123456789", "Name",
+                new Date(orderTime), status);
+        bill.setBillItems(new ArrayList<>(Arrays.asList(new Bill.BillItem(1, "Ramen Tonkotsu", amount, 1))));
+        return bill;
+    }
+
+    @Test
+    public void put_roundTripsBill() {
+        store.put("alice", bill(7, "alice", 85000, 1000L, Bill.STATUS_PENDING));
+
+        Bill loaded = store.get(7);
+        assertNotNull(loaded);
+        assertEquals(7, loaded.getId());
+        assertEquals(85000, loaded.getTotalAmount(), 0.001);
+        assertEquals(Bill.STATUS_PENDING, loaded.getStatus());
+        assertEquals(1000L, loaded.getOrderDate().getTime());
+        assertEquals("Ramen Tonkotsu", loaded.getBillItems().get(0).getFoodName());
+        assertEquals("alice", store.getOwner(7));
+        assertNull(store.get(8));
+    }
+
+    @Test
+    public void queries_areFilteredAndNewestFirst() {
+        store.putAll("alice", Arrays.asList(
+                bill(1, "alice", 100, 1000L, Bill.STATUS_DELIVERED),
+                bill(2, "alice", 200, 3000L, Bill.STATUS_PENDING),
+                bill(3, "alice", 300, 2000L, Bill.STATUS_PENDING)));
+        store.put("bob", bill(4, "bob", 400, 4000L, Bill.STATUS_PENDING));
+
+        assertIds(store.getByUsername("alice"), 2, 3, 1);
+        assertIds(store.getByUsernameAndStatus("alice", Bill.STATUS_PENDING), 2, 3);
+        assertIds(store.getByStatus(Bill.STATUS_PENDING), 4, 2, 3);
+        assertIds(store.getAll(), 4, 2, 3, 1);
+
+        assertEquals(3, store.count("alice", null));
+        assertEquals(3, store.count(null, Bill.STATUS_PENDING));
+        assertEquals(2, store.count("alice", Bill.STATUS_PENDING));
+        assertEquals(4, store.count(null, null));
+        assertEquals(600, store.sumAmount("alice"), 0.001);
+        assertEquals(1000, store.sumAmount(null), 0.001);
+        assertEquals(4, store.getMaxBillId());
+    }
+
+    @Test
+    public void updateStatus_changesOnlyThatBill() {
+        store.put("alice", bill(1, "alice", 100, 1000L, Bill.STATUS_PENDING));
+        store.put("alice", bill(2, "alice", 200, 2000L, Bill.STATUS_PENDING));
+
+        assertTrue(store.updateStatus(1, Bill.STATUS_CANCELLED, 5000L));
+        assertFalse(store.updateStatus(99, Bill.STATUS_CANCELLED, 5000L));
+
+        assertEquals(Bill.STATUS_CANCELLED, store.get(1).getStatus());
+        assertEquals(5000L, store.get(1).getLastUpdated().getTime());
+        assertEquals(Bill.STATUS_PENDING, store.get(2).getStatus());
+        assertEquals(1, store.count(null, Bill.STATUS_CANCELLED));
+    }
+
+    @Test
+    public void updateStatus_batchSkipsBillsNotInExpectedStatus() {
+        store.putAll("alice", Arrays.asList(
+                bill(1, "alice", 100, 1000L, Bill.STATUS_DELIVERING),
+                bill(2, "alice", 200, 2000L, Bill.STATUS_CANCELLED),
+                bill(3, "alice", 300, 3000L, Bill.STATUS_DELIVERING)));
+
+        assertEquals(2, store.updateStatus(Arrays.asList(1, 2, 3, 99),
+                Bill.STATUS_DELIVERING, Bill.STATUS_DELIVERED, 9000L));
+
+        assertEquals(Bill.STATUS_DELIVERED, store.get(1).getStatus());
+        assertEquals(9000L, store.get(3).getLastUpdated().getTime());
+        assertEquals(Bill.STATUS_CANCELLED, store.get(2).getStatus());
+    }
+
+    @Test
+    public void deleteByUsername_keepsOtherUsers() {
+        store.put("alice", bill(1, "alice", 100, 1000L, Bill.STATUS_PENDING));
+        store.put("bob", bill(2, "bob", 200, 2000L, Bill.STATUS_PENDING));
+
+        assertEquals(1, store.deleteByUsername("alice"));
+        assertTrue(store.getByUsername("alice").isEmpty());
+        assertIds(store.getAll(), 2);
+    }
+
+    @Test
+    public void archive_movesOldCompletedBillsAndKeepsTotals() {
+        store.putAll("alice", Arrays.asList(
+                bill(1, "alice", 100, 1000L, Bill.STATUS_DELIVERED),
+                bill(2, "alice", 200, 2000L, Bill.STATUS_CANCELLED),
+                bill(3, "alice", 300, 3000L, Bill.STATUS_PENDING),
+                bill(4, "alice", 400, 9000L, Bill.STATUS_DELIVERED)));
+        store.put("bob", bill(5, "bob", 500, 1500L, Bill.STATUS_DELIVERED));
+
+        assertEquals(3, store.archiveCompletedBefore(5000L));
+        assertEquals(0, store.archiveCompletedBefore(5000L));
+
+        // Danh sách chỉ còn đơn gần đây, tổng hợp vẫn gồm cả hai tầng
+        assertIds(store.getByUsername("alice"), 4, 3);
+        assertEquals(4, store.count("alice", null));
+        assertEquals(1, store.count(null, Bill.STATUS_CANCELLED));
+        assertEquals(1500, store.sumAmount(null), 0.001);
+        assertEquals(5, store.getMaxBillId());
+        assertEquals("bob", store.getOwner(5));
+        RevenueRollup.Bucket revenue = store.sumRevenue(0, Integer.MAX_VALUE); // Không tính đơn hủy
+        assertEquals(1300, revenue.getRevenue(), 0.001);
+        assertEquals(4, revenue.getOrders());
+
+        // Đọc lại từ segment
+        assertIds(store.getArchived("alice", null, 0, Long.MAX_VALUE), 2, 1);
+        assertIds(store.getArchived(null, Bill.STATUS_DELIVERED, 0, Long.MAX_VALUE), 5, 1);
+        assertIds(store.getArchived(null, null, 1000L, 2000L), 5, 1);
+        assertEquals(9000L, store.getLatestOrderDate("alice"));
+        Bill archived = store.get(2);
+        assertEquals(Bill.STATUS_CANCELLED, archived.getStatus());
+        assertEquals("Ramen Tonkotsu", archived.getBillItems().get(0).getFoodName());
+
+        // Đổi trạng thái đưa hóa đơn về tầng gần đây
+        assertTrue(store.updateStatus(2, Bill.STATUS_DELIVERED, 6000L));
+        assertIds(store.getByUsername("alice"), 4, 3, 2);
+        assertIds(store.getArchived("alice", null, 0, Long.MAX_VALUE), 1);
+        assertEquals(4, store.count("alice", null));
+
+        // Xóa hết đơn lưu trữ thì segment cũng bị xóa
+        store.deleteByUsername("alice");
+        store.deleteByUsername("bob");
+        String[] segments = archiveDir.list();
+        assertTrue(segments == null || segments.length == 0);
+    }
+
+    @Test
+    public void getPage_walksBothTiersNewestFirst() {
+        store.putAll("alice", Arrays.asList(
+                bill(1, "alice", 100, 1000L, Bill.STATUS_DELIVERED),
+                bill(2, "alice", 100, 2000L, Bill.STATUS_CANCELLED),
+                bill(3, "alice", 100, 2000L, Bill.STATUS_DELIVERED),
+                bill(4, "alice", 100, 6000L, Bill.STATUS_PENDING),
+                bill(5, "alice", 100, 6000L, Bill.STATUS_PENDING),
+                bill(6, "alice", 100, 7000L, Bill.STATUS_DELIVERED)));
+        store.put("bob", bill(7, "bob", 100, 3000L, Bill.STATUS_DELIVERED));
+        assertEquals(4, store.archiveCompletedBefore(5000L));
+
+        // Cùng orderDate thì billId lớn hơn trước, trang không bị lặp hay sót ở ranh giới
+        BillPage first = store.getPage("alice", null, null, 2);
+        assertIds(first.getBills(), 6, 5);
+        BillPage second = store.getPage("alice", null, first.getNextCursor(), 2);
+        assertIds(second.getBills(), 4, 3);
+        BillPage third = store.getPage("alice", null, second.getNextCursor(), 2);
+        assertIds(third.getBills(), 2, 1);
+        assertFalse(third.hasMore());
+        assertEquals("Ramen Tonkotsu", third.getBills().get(1).getBillItems().get(0).getFoodName());
+
+        BillPage delivered = store.getPage(null, Bill.STATUS_DELIVERED, null, 3);
+        assertIds(delivered.getBills(), 6, 7, 3);
+        assertIds(store.getPage(null, Bill.STATUS_DELIVERED, delivered.getNextCursor(), 3).getBills(), 1);
+
+        BillPage all = store.getPage(null, null, null, 10);
+        assertIds(all.getBills(), 6, 5, 4, 7, 3, 2, 1);
+        assertNull(all.getNextCursor());
+        assertTrue(store.getPage("carol", null, null, 10).getBills().isEmpty());
+    }
+
+    @Test
+    public void revenueBuckets_followWritesInTheSameTransaction() {
+        long now = System.currentTimeMillis();
+        long yesterday = now - 24L * 60 * 60 * 1000;
+        int today = RevenueRollup.dayKey(now);
+        store.putAll("alice", Arrays.asList(
+                bill(1, "alice", 100, yesterday, Bill.STATUS_PENDING),
+                bill(2, "alice", 200, now, Bill.STATUS_DELIVERING),
+                bill(3, "alice", 400, now, Bill.STATUS_CANCELLED)));
+        store.put("bob", bill(4, "bob", 800, now, Bill.STATUS_PENDING));
+
+        assertEquals(1100, store.sumRevenue(0, Integer.MAX_VALUE).getRevenue(), 0.001);
+        assertEquals(3, store.sumRevenue(0, Integer.MAX_VALUE).getOrders());
+        assertEquals(1000, store.sumRevenue(today, today).getRevenue(), 0.001);
+        assertEquals(RevenueRollup.hourKey(now) % 100, store.getPeakHour(RevenueRollup.hourlyRetentionStart(now)));
+
+        // Hủy rồi khôi phục, đổi trạng thái không liên quan hủy thì doanh thu giữ nguyên
+        assertTrue(store.updateStatus(4, Bill.STATUS_CANCELLED, now));
+        assertEquals(300, store.sumRevenue(0, Integer.MAX_VALUE).getRevenue(), 0.001);
+        assertTrue(store.updateStatus(3, Bill.STATUS_PENDING, now));
+        assertEquals(700, store.sumRevenue(0, Integer.MAX_VALUE).getRevenue(), 0.001);
+        assertEquals(1, store.updateStatus(Arrays.asList(2, 3), Bill.STATUS_DELIVERING, Bill.STATUS_DELIVERED, now));
+        assertEquals(700, store.sumRevenue(0, Integer.MAX_VALUE).getRevenue(), 0.001);
+        assertEquals(1, store.updateStatus(Arrays.asList(1, 2), Bill.STATUS_DELIVERED, Bill.STATUS_CANCELLED, now));
+        assertEquals(500, store.sumRevenue(0, Integer.MAX_VALUE).getRevenue(), 0.001);
+
+        // Ghi đè hóa đơn với số tiền khác, xóa user
+        store.put("alice", bill(3, "alice", 500, now, Bill.STATUS_PENDING));
+        assertEquals(500, store.sumRevenue(today, today).getRevenue(), 0.001);
+        store.deleteByUsername("alice");
+        RevenueRollup.Bucket empty = store.sumRevenue(0, Integer.MAX_VALUE);
+        assertEquals(0, empty.getRevenue(), 0.001);
+        assertEquals(0, empty.getOrders());
+        assertEquals(-1, store.getPeakHour(RevenueRollup.hourlyRetentionStart(now)));
+    }
+
+    private static void assertIds(List<Bill> bills, int... expected) {
+        int[] actual = new int[bills.size()];
+        for (int i = 0; i < bills.size(); i++) {
+            actual[i] = bills.get(i).getId();
+        }
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.myapplication.storage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test cho WorkingSetCache: giới hạn theo trọng số, thứ tự LRU và bộ đếm
+ */
+public class WorkingSetCacheTest {
+
+    private final List<String> evicted = new ArrayList<>();
+
+    /** Trọng số = độ dài chuỗi (+1 của cache), giới hạn 12 */
+    private WorkingSetCache<String> newCache() {
+        return new WorkingSetCache<>(12, String::length, (key, value) -> evicted.add(key));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedUntilWithinWeight() {
+        WorkingSetCache<String> cache = newCache();
+        cache.put("alice", "aaa");   // 4
+        cache.put("bob", "bb");      // 3
+        cache.put("carol", "ccc");   // 4 -> 11
+        assertEquals("aaa", cache.get("alice")); // alice thành mới dùng nhất
+
+        cache.put("dave", "dddd");   // 5 -> 16, đẩy bob rồi carol
+        assertEquals(Arrays.asList("bob", "carol"), evicted);
+        assertEquals(2, cache.size());
+        assertEquals(9, cache.getWeight());
+        assertEquals(2, cache.getEvictionCount());
+        assertNull(cache.get("bob"));
+    }
+
+    @Test
+    public void takeRemovesEntryAndCountsHitsAndMisses() {
+        WorkingSetCache<String> cache = newCache();
+        cache.put("alice", "aaa");
+        assertEquals("aaa", cache.take("alice"));
+        assertNull(cache.take("alice"));
+        assertNull(cache.get("bob"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getWeight());
+
+        // Giá trị một mình vượt giới hạn vẫn được giữ, chỉ các phần tử cũ bị đẩy ra
+        cache.put("bob", "b");
+        cache.put("carol", "cccccccccccccccc");
+        assertEquals(Arrays.asList("bob"), evicted);
+        assertEquals(1, cache.size());
+        assertEquals("cccccccccccccccc", cache.get("carol"));
+    }
+}